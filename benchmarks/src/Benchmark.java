@@ -0,0 +1,1326 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import javax.imageio.ImageIO;
+
+/*
+ * File: Benchmark.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Command line harness used to verify and measure the engine without a display.
+ * Usage: Benchmark <scenario> [options]
+ */
+
+public class Benchmark
+{
+	public static void main(String[] arg)
+	{
+		String scenario = arg.length > 0 ? arg[0] : "";
+
+		try {
+			switch(scenario)
+			{
+			case "concurrent":
+				concurrent(intArg(arg, 1, 8), intArg(arg, 2, 10));
+				break;
+			case "load":
+				load(intArg(arg, 1, 800), intArg(arg, 2, 800), intArg(arg, 3, 100));
+				break;
+			case "pack":
+				pack(intArg(arg, 1, 400), intArg(arg, 2, 400), intArg(arg, 3, 5));
+				break;
+			case "instances":
+				instances(intArg(arg, 1, 8), intArg(arg, 2, 16), intArg(arg, 3, 10));
+				break;
+			case "culling":
+				culling(intArg(arg, 1, 1000), intArg(arg, 2, 16), intArg(arg, 3, 20));
+				break;
+			case "occlusion":
+				occlusion(intArg(arg, 1, 400), intArg(arg, 2, 16), intArg(arg, 3, 20));
+				break;
+			case "backface":
+				backface(intArg(arg, 1, 48), intArg(arg, 2, 100));
+				break;
+			case "rasterizer":
+				rasterizer(intArg(arg, 1, 32), intArg(arg, 2, 50));
+				break;
+			case "vertices":
+				vertices(intArg(arg, 1, 64), intArg(arg, 2, 100));
+				break;
+			case "packed":
+				packed(intArg(arg, 1, 64), intArg(arg, 2, 100));
+				break;
+			case "scenegraph":
+				scenegraph(intArg(arg, 1, 4000), intArg(arg, 2, 100));
+				break;
+			case "moving":
+				moving(intArg(arg, 1, 4000), intArg(arg, 2, 1), intArg(arg, 3, 100));
+				break;
+			case "batch":
+				batch(intArg(arg, 1, 64), intArg(arg, 2, 100));
+				break;
+			case "setup":
+				setup(intArg(arg, 1, 128), intArg(arg, 2, 100));
+				break;
+			case "micro":
+				micro(intArg(arg, 1, 256), intArg(arg, 2, 30));
+				break;
+			case "clear":
+				clear(intArg(arg, 1, 64), intArg(arg, 2, 50));
+				break;
+			case "formats":
+				formats(intArg(arg, 1, 64), intArg(arg, 2, 50));
+				break;
+			case "layout":
+				layout(intArg(arg, 1, 64), intArg(arg, 2, 50));
+				break;
+			case "mipmaps":
+				mipmaps(intArg(arg, 1, 4096), intArg(arg, 2, 64), intArg(arg, 3, 30));
+				break;
+			default:
+				System.out.println("UNKNOWN SCENARIO: " + scenario);
+				System.out.println("Scenarios: concurrent [environments] [frames]");
+				System.out.println("           load [rings] [segments] [text parser rings]");
+				System.out.println("           pack [rings] [segments] [warm loads]");
+				System.out.println("           instances [rings] [segments] [frames]");
+				System.out.println("           culling [models] [rings] [frames]");
+				System.out.println("           occlusion [models] [rings] [frames]");
+				System.out.println("           backface [rings] [frames]");
+				System.out.println("           rasterizer [grid cells] [frames]");
+				System.out.println("           vertices [rings] [frames]");
+				System.out.println("           packed [rings] [frames]");
+				System.out.println("           scenegraph [bodies] [frames]");
+				System.out.println("           moving [bodies] [percent moved] [frames]");
+				System.out.println("           batch [rings] [frames]");
+				System.out.println("           setup [rings] [frames]");
+				System.out.println("           micro [rings] [frames]");
+				System.out.println("           clear [rings] [frames]");
+				System.out.println("           formats [rings] [frames]");
+				System.out.println("           layout [rings] [frames]");
+				System.out.println("           mipmaps [texture size] [models] [frames]");
+			}
+		}
+		catch (IOException e) { Application.throwError("ERROR - FAILED TO WRITE BENCHMARK ASSETS", e); }
+		catch (InterruptedException e) { Application.throwError("ERROR - BENCHMARK INTERRUPTED", e); }
+	}
+
+	// Renders K environments on K threads at once and checks every frame against a single-threaded render
+	public static void concurrent(int k, int frames) throws IOException, InterruptedException
+	{
+		String folder = assetFolder();
+		writeSphere(folder, "sphere", 24, 48);
+
+		// Reference renders, one environment at a time
+		final int[][][] reference = new int[k][][];
+		for(int i = 0; i < k; i++)
+			reference[i] = renderFrames(new Scene(folder, "sphere.obj", 6, i, 320, 200), frames);
+
+		// Same environments rendered concurrently
+		final Scene[] scenes = new Scene[k];
+		final int[][][] results = new int[k][][];
+		Thread[] threads = new Thread[k];
+
+		for(int i = 0; i < k; i++)
+			scenes[i] = new Scene(folder, "sphere.obj", 6, i, 320, 200);
+
+		for(int i = 0; i < k; i++)
+		{
+			final int index = i;
+			threads[i] = new Thread(() -> results[index] = renderFrames(scenes[index], frames), "Render " + i);
+			threads[i].start();
+		}
+
+		for(Thread t : threads)
+			t.join();
+
+		int failed = 0;
+		for(int i = 0; i < k; i++)
+			for(int f = 0; f < frames; f++)
+				if(results[i] == null || !Arrays.equals(reference[i][f], results[i][f]))
+				{
+					System.out.println("MISMATCH: environment " + i + ", frame " + f);
+					failed++;
+					break;
+				}
+
+		System.out.println(k + " environments x " + frames + " frames: " + (failed == 0 ? "PASSED" : failed + " FAILED"));
+
+		if(failed > 0)
+			System.exit(-1);
+	}
+
+	// Times loading a generated sphere with the byte parser, and a smaller one with both parsers
+	public static void load(int rings, int segments, int textRings) throws IOException
+	{
+		String folder = assetFolder();
+		writeSphere(folder, "large", rings, segments);
+		writeSphere(folder, "small", textRings, textRings);
+		
+		// Warm up
+		timeLoad(folder, "small.obj", false);
+		timeLoad(folder, "small.obj", true);
+		
+		long small = sphereLines(textRings, textRings);
+		long large = sphereLines(rings, segments);
+		double textTime = timeLoad(folder, "small.obj", true);
+		double byteTime = timeLoad(folder, "small.obj", false);
+		double largeTime = timeLoad(folder, "large.obj", false);
+		
+		System.out.println("--- OBJ LOAD ---");
+		System.out.printf("text parser: %,d lines in %.1f ms (%,.0f lines/s)%n", small, textTime, small / textTime * 1000);
+		System.out.printf("byte parser: %,d lines in %.1f ms (%,.0f lines/s)%n", small, byteTime, small / byteTime * 1000);
+		System.out.printf("byte parser: %,d lines in %.1f ms (%,.0f lines/s)%n", large, largeTime, large / largeTime * 1000);
+	}
+	
+	// Compares loading a model from its asset pack against the obj file, and checks both render the same frames
+	public static void pack(int rings, int segments, int loads) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "packed", rings, segments);
+		
+		// Compile step
+		long start = System.nanoTime();
+		AssetPack.compile(new Model(folder, "packed.obj"), folder + "packed" + AssetPack.EXTENSION);
+		double compileTime = (System.nanoTime() - start) / 1e6;
+		
+		// Cold loads are the first of each kind in this process
+		double packCold = timePack(folder);
+		double objCold = timeLoad(folder, "packed.obj", false);
+		double packWarm = 0;
+		double objWarm = 0;
+		
+		for(int i = 0; i < loads; i++)
+		{
+			packWarm += timePack(folder) / loads;
+			objWarm += timeLoad(folder, "packed.obj", false) / loads;
+		}
+		
+		// Round trip, both sources must render identical frames
+		int[][] objFrames = renderFrames(new Scene(() -> new Model(folder, "packed.obj"), 3, 0, 320, 200), 5);
+		int[][] packFrames = renderFrames(new Scene(() -> loadPack(folder), 3, 0, 320, 200), 5);
+		boolean same = Arrays.deepEquals(objFrames, packFrames);
+		
+		System.out.println("--- ASSET PACK ---");
+		System.out.printf("pack size: %,d bytes, obj size: %,d bytes%n", new File(folder + "packed" + AssetPack.EXTENSION).length(), new File(folder + "packed.obj").length());
+		System.out.printf("compile (obj load and pack write): %.1f ms%n", compileTime);
+		System.out.printf("cold load: pack %.1f ms, obj %.1f ms%n", packCold, objCold);
+		System.out.printf("warm load: pack %.1f ms, obj %.1f ms (average of %d)%n", packWarm, objWarm, loads);
+		System.out.println("round trip: " + (same ? "PASSED" : "FAILED"));
+		
+		if(!same)
+			System.exit(-1);
+	}
+	
+	// Measures heap use and frame time of 1, 100 and 10,000 copies of a mesh, as separate models and as instances
+	public static void instances(int rings, int segments, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "instanced", rings, segments);
+		
+		System.out.println("--- INSTANCING ---");
+		
+		for(int count : new int[] {1, 100, 10000})
+		{
+			for(boolean shared : new boolean[] {false, true})
+			{
+				long before = usedHeap();
+				Environment env = new Environment();
+				Structure[] placed = new Structure[count];
+				Model mesh = null;
+				
+				PrintStream out = quiet();
+				for(int i = 0; i < count; i++)
+				{
+					if(shared && mesh == null)
+						mesh = new Model(folder, "instanced.obj");
+					
+					placed[i] = shared ? new ModelInstance(mesh) : new Model(folder, "instanced.obj");
+					placeInGrid(placed[i], i, count);
+					env.addStructure(placed[i]);
+				}
+				System.setOut(out);
+				
+				Camera camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, 640, 400);
+				env.addCamera(camera);
+				env.finalizeRender();
+				long heap = usedHeap() - before;
+				
+				double frameTime = timeFrames(env, placed, frames);
+				
+				System.out.printf("%,6d %-9s heap: %,8.1f MB, frame: %8.2f ms%n", count, shared ? "instances" : "models", heap / 1048576.0, frameTime);
+			}
+		}
+	}
+	
+	// Renders a scene with 90% of the models off screen with and without view culling, the frames must match
+	public static void culling(int count, int rings, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "culled", rings, rings * 2);
+		
+		PrintStream out = quiet();
+		Model mesh = new Model(folder, "culled.obj");
+		System.setOut(out);
+		
+		Environment env = new Environment();
+		Structure[] placed = new Structure[count];
+		Random random = new Random(9);
+		
+		for(int i = 0; i < count; i++)
+		{
+			placed[i] = new ModelInstance(mesh);
+			
+			if(i % 10 == 0)
+				placeInGrid(placed[i], i / 10, (count + 9) / 10);
+			else
+			{
+				// Beside, above/below or behind the camera
+				float side = random.nextBoolean() ? 1 : -1;
+				placed[i].transform[Structure.POS_X] = 200 * random.nextFloat();
+				placed[i].transform[Structure.POS_Y] = (random.nextFloat() - 0.5f) * 400;
+				placed[i].transform[Structure.POS_Z] = (random.nextFloat() - 0.5f) * 400;
+				
+				switch(i % 3)
+				{
+				case 0: placed[i].transform[Structure.POS_Y] = side * (40 + 200 * random.nextFloat()); break;
+				case 1: placed[i].transform[Structure.POS_Z] = side * (30 + 200 * random.nextFloat()); break;
+				default: placed[i].transform[Structure.POS_X] = -10 - 200 * random.nextFloat();
+				}
+			}
+			
+			env.addStructure(placed[i]);
+		}
+		
+		Camera camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, 640, 400);
+		camera.getStats().setEnabled(true);
+		env.addCamera(camera);
+		env.finalizeRender();
+		
+		System.out.println("--- VIEW CULLING (" + count + " models, 90% off screen) ---");
+		long[][] hashes = new long[2][frames];
+		
+		for(int mode = 0; mode < 2; mode++)
+		{
+			camera.setCulling(mode == 1);
+			double ms = timeHashed(env, placed, frames, hashes[mode]);
+			
+			RenderStats.Snapshot stats = camera.getStats().snapshot();
+			System.out.printf("culling %-3s frame: %8.2f ms, triangles submitted: %,10d, structures culled: %,6d%n", mode == 1 ? "on" : "off",
+					ms, stats.get(RenderStats.Counter.TRIANGLES_SUBMITTED) / stats.frames, stats.get(RenderStats.Counter.STRUCTURES_CULLED) / stats.frames);
+		}
+		
+		System.out.println(Arrays.equals(hashes[0], hashes[1]) ? "PASSED: frames are identical" : "FAILED: culled frames differ");
+	}
+	
+	// Renders models behind a large occluder with and without occlusion culling, the frames must match
+	public static void occlusion(int count, int rings, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "occluded", rings, rings * 2);
+		writeSphere(folder, "occluder", 8, 16);
+		
+		PrintStream out = quiet();
+		Model mesh = new Model(folder, "occluded.obj");
+		Model occluder = new Model(folder, "occluder.obj");
+		System.setOut(out);
+		
+		Environment env = new Environment();
+		Structure[] placed = new Structure[count + 1];
+		
+		// Close sphere covering most of the screen
+		occluder.transform[Structure.POS_X] = 80;
+		occluder.transform[Structure.SCA_X] = occluder.transform[Structure.SCA_Y] = occluder.transform[Structure.SCA_Z] = 3;
+		placed[count] = occluder;
+		env.addStructure(occluder);
+		
+		for(int i = 0; i < count; i++)
+		{
+			placed[i] = new ModelInstance(mesh);
+			placeInGrid(placed[i], i, count);
+			env.addStructure(placed[i]);
+		}
+		
+		Camera camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, 640, 400);
+		camera.getStats().setEnabled(true);
+		env.addCamera(camera);
+		env.finalizeRender();
+		
+		System.out.println("--- OCCLUSION CULLING (" + count + " models behind an occluder) ---");
+		long[][] hashes = new long[2][frames];
+		
+		for(int mode = 0; mode < 2; mode++)
+		{
+			camera.setOcclusion(mode == 1);
+			double ms = timeHashed(env, placed, frames, hashes[mode]);
+			
+			RenderStats.Snapshot s = camera.getStats().snapshot();
+			System.out.printf("occlusion %-3s frame: %7.2f ms, structures occluded: %,5d, triangles set up: %,8d, occluded: %,8d, pixels tested: %,9d%n",
+					mode == 1 ? "on" : "off", ms, s.get(RenderStats.Counter.STRUCTURES_OCCLUDED) / s.frames, s.get(RenderStats.Counter.TRIANGLES_DRAWN) / s.frames,
+					s.get(RenderStats.Counter.TRIANGLES_OCCLUDED) / s.frames, s.get(RenderStats.Counter.PIXELS_TESTED) / s.frames);
+		}
+		
+		System.out.println(Arrays.equals(hashes[0], hashes[1]) ? "PASSED: frames are identical" : "FAILED: occluded frames differ");
+	}
+	
+	// Renders animated frames from a reset rotation after a warm up, stores a hash of each frame and returns the average frame time in milliseconds
+	private static double timeHashed(Environment env, Structure[] structures, int frames, long[] hashes)
+	{
+		long total = 0;
+		
+		for(Structure s : structures)
+			s.transform[Structure.ROT_Z] = 0;
+		
+		for(int f = -3; f < frames; f++)
+		{
+			if(f == 0)
+				env.getCamera().getStats().reset();
+			
+			long start = System.nanoTime();
+			for(Structure s : structures)
+				s.transform[Structure.ROT_Z] += 0.03f;
+			BufferedImage image = env.drawEnvironment(null);
+			
+			if(f >= 0)
+			{
+				total += System.nanoTime() - start;
+				hashes[f] = Arrays.hashCode(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+			}
+		}
+		
+		return total / 1e6 / frames;
+	}
+	
+	// Renders a row of spheres with each back-face culling mode, reports the frame time and rejected faces
+	public static void backface(int rings, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "backface", rings, rings * 2);
+		
+		PrintStream out = quiet();
+		Scene scene = new Scene(folder, "backface.obj", 6, 0, 640, 400);
+		System.setOut(out);
+		
+		RenderStats stats = scene.camera.getStats();
+		stats.setEnabled(true);
+		System.out.println("--- BACK-FACE CULLING ---");
+		
+		for(Material.CullMode mode : Material.CullMode.values())
+		{
+			for(Model m : scene.models)
+				for(Renderable r : m.children)
+					((BodyGroup) r).setCullMode(mode);
+			
+			for(int f = 0; f < 10; f++)
+				scene.draw();
+			
+			stats.reset();
+			long start = System.nanoTime();
+			for(int f = 0; f < frames; f++)
+				scene.draw();
+			double ms = (System.nanoTime() - start) / 1e6 / frames;
+			
+			RenderStats.Snapshot s = stats.snapshot();
+			long culled = s.get(RenderStats.Counter.BACKFACES_CULLED);
+			long faces = culled + s.get(RenderStats.Counter.TRIANGLES_SUBMITTED);
+			System.out.printf("cull %-5s frame: %6.2f ms, faces culled: %5.1f%%, pixels written: %,d per frame%n", mode, ms,
+					100.0 * culled / faces, s.get(RenderStats.Counter.PIXELS_WRITTEN) / s.frames);
+		}
+	}
+	
+	// Compares the rasterizers on a mesh of triangles sharing edges (holes and pixels drawn twice) and on a sphere scene
+	public static void rasterizer(int cells, int frames) throws IOException
+	{
+		final int w = 640, h = 400;
+		final String folder = assetFolder();
+		writeSphere(folder, "rasterizer", 24, 48);
+		
+		PrintStream out = quiet();
+		Scene scene = new Scene(folder, "rasterizer.obj", 6, 0, w, h);
+		System.setOut(out);
+		
+		RenderableTriangle[] mesh = gridTriangles(cells, w, h, new Random(7));
+		RenderBuffer buffer = new RenderBuffer(w, h);
+		RenderPackage pkg = buffer.getPackage();
+		pkg.stats.setEnabled(true);
+		scene.camera.getStats().setEnabled(true);
+		System.out.println("--- RASTERIZERS (" + mesh.length + " triangle mesh, 6 spheres) ---");
+		
+		for(RenderableTriangle.Rasterizer mode : RenderableTriangle.Rasterizer.values())
+		{
+			// Every pixel centre inside of the mesh should be drawn exactly once
+			pkg.rasterizer = mode;
+			pkg.stats.reset();
+			buffer.refresh();
+			for(RenderableTriangle t : mesh)
+				t.render(pkg);
+			
+			long tested = pkg.stats.getPixelsTested();
+			long covered = 0;
+			long holes = 0;
+			
+			for(int y = 0; y < h; y++)
+				for(int x = 0; x < w; x++)
+				{
+					boolean drawn = pkg.depth[y * w + x] != Float.POSITIVE_INFINITY;
+					if(drawn)
+						covered++;
+					else if(x >= GRID_MARGIN && x < w - GRID_MARGIN && y >= GRID_MARGIN && y < h - GRID_MARGIN)
+						holes++;
+				}
+			
+			// Fill rate of the mesh after a warm up
+			long start = 0;
+			for(int f = -10; f < frames; f++)
+			{
+				if(f == 0)
+					start = System.nanoTime();
+				buffer.refresh();
+				for(RenderableTriangle t : mesh)
+					t.render(pkg);
+			}
+			double meshMs = (System.nanoTime() - start) / 1e6 / frames;
+			
+			// Frame time of a scene
+			scene.camera.setRasterizer(mode);
+			for(int f = 0; f < 10; f++)
+				scene.draw();
+			
+			scene.camera.getStats().reset();
+			start = System.nanoTime();
+			for(int f = 0; f < frames; f++)
+				scene.draw();
+			double sceneMs = (System.nanoTime() - start) / 1e6 / frames;
+			RenderStats.Snapshot s = scene.camera.getStats().snapshot();
+			
+			System.out.printf("%-8s mesh: %6.2f ms (%6.1f Mpixels/s), holes: %,6d, drawn twice: %,6d | spheres: %6.2f ms, pixels written: %,d per frame%n",
+					mode, meshMs, tested / meshMs / 1000, holes, tested - covered, sceneMs, s.get(RenderStats.Counter.PIXELS_WRITTEN) / s.frames);
+		}
+	}
+	
+	// Reports the vertices transformed per frame against the vertices referenced by the faces (each face used to transform its own three)
+	public static void vertices(int rings, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "vertices", rings, rings * 2);
+		
+		PrintStream out = quiet();
+		Scene scene = new Scene(folder, "vertices.obj", 6, 0, 640, 400);
+		System.setOut(out);
+		
+		RenderStats stats = scene.camera.getStats();
+		System.out.println("--- VERTEX CACHE (6 spheres, " + rings + " rings) ---");
+		
+		for(int f = 0; f < 10; f++)
+			scene.draw();
+		
+		long start = System.nanoTime();
+		for(int f = 0; f < frames; f++)
+		{
+			scene.step();
+			scene.draw();
+		}
+		double ms = (System.nanoTime() - start) / 1e6 / frames;
+		
+		// Stage times and counters are measured separately, timing adds to the frame time
+		stats.setEnabled(true);
+		for(int f = 0; f < frames; f++)
+		{
+			scene.step();
+			scene.draw();
+		}
+		
+		RenderStats.Snapshot s = stats.snapshot();
+		long references = 3 * (s.get(RenderStats.Counter.TRIANGLES_SUBMITTED) + s.get(RenderStats.Counter.BACKFACES_CULLED)) / s.frames;
+		long transformed = s.get(RenderStats.Counter.VERTICES_TRANSFORMED) / s.frames;
+		System.out.printf("frame: %.2f ms, transform stage: %.1f us, vertices transformed: %,d per frame, face vertices: %,d per frame (%.2fx)%n",
+				ms, s.mean(RenderStats.Stage.TRANSFORM), transformed, references, (double) references / transformed);
+	}
+	
+	// Renders many small bodies in clusters by walking the hierarchy and from the compiled render list, the frames must match
+	public static void scenegraph(int count, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "body", 2, 4);
+		
+		PrintStream out = quiet();
+		Model mesh = new Model(folder, "body.obj");
+		Environment env = new Environment();
+		Structure[] clusters = addClusters(env, () -> new ModelInstance(mesh), new Structure[count]);
+		Camera camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, 640, 400);
+		env.addCamera(camera);
+		env.finalizeRender();
+		System.setOut(out);
+		
+		System.out.println("--- RENDER LIST (" + count + " bodies in " + clusters.length + " clusters, " + mesh.getNumFaces() + " triangles each) ---");
+		long[][] hashes = new long[2][frames];
+		
+		for(int mode = 0; mode < 2; mode++)
+		{
+			env.setCompiled(mode == 1);
+			timeFrames(env, clusters, frames);
+			double ms = timeHashed(env, clusters, frames, hashes[mode]);
+			
+			// Stage times are measured separately, timing adds to the frame time
+			camera.getStats().setEnabled(true);
+			camera.getStats().reset();
+			timeFrames(env, clusters, 20);
+			RenderStats.Snapshot stats = camera.getStats().snapshot();
+			camera.getStats().setEnabled(false);
+			
+			System.out.printf("%-9s frame: %8.2f ms, transform stage: %8.1f us, triangles submitted: %,8d%n", mode == 1 ? "compiled" : "hierarchy",
+					ms, stats.mean(RenderStats.Stage.TRANSFORM), stats.get(RenderStats.Counter.TRIANGLES_SUBMITTED) / stats.frames);
+		}
+		
+		System.out.println(Arrays.equals(hashes[0], hashes[1]) ? "PASSED: frames are identical" : "FAILED: compiled frames differ");
+	}
+	
+	// Moves a percentage of the bodies each frame, with and without skipping the unchanged transformations in the render list and
+	// walking the hierarchy (which skips them too), the frames must match
+	public static void moving(int count, int percent, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "body", 2, 4);
+		
+		// Every body is its own model, so its transformed vertices are kept while it does not move
+		PrintStream out = quiet();
+		Environment env = new Environment();
+		Structure[] bodies = new Structure[count];
+		addClusters(env, () -> new Model(folder, "body.obj"), bodies);
+		Camera camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, 640, 400);
+		env.addCamera(camera);
+		env.finalizeRender();
+		System.setOut(out);
+		
+		int moved = Math.max(1, count * percent / 100);
+		float[][] start = new float[count][];
+		for(int i = 0; i < count; i++)
+			start[i] = bodies[i].transform.clone();
+		
+		System.out.println("--- CHANGE TRACKING (" + count + " bodies, " + moved + " moved per frame) ---");
+		long[][] hashes = new long[3][frames];
+		
+		for(int mode = 0; mode < 3; mode++)
+		{
+			env.getRenderList().setTracking(mode == 1);
+			env.setCompiled(mode < 2);
+			
+			// Warm up, timed and measured passes of the same animation from the same start
+			double ms = 0;
+			for(int pass = 0; pass < 3; pass++)
+			{
+				for(int i = 0; i < count; i++)
+					System.arraycopy(start[i], 0, bodies[i].transform, 0, start[i].length);
+				
+				Random random = new Random(3);
+				camera.getStats().setEnabled(pass == 2);
+				camera.getStats().reset();
+				long total = 0;
+				
+				for(int f = 0; f < frames; f++)
+				{
+					long begin = System.nanoTime();
+					for(int m = 0; m < moved; m++)
+						bodies[random.nextInt(count)].transform[Structure.ROT_Z] += 0.2f;
+					BufferedImage image = env.drawEnvironment(null);
+					total += System.nanoTime() - begin;
+					hashes[mode][f] = Arrays.hashCode(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+				}
+				
+				if(pass == 1)
+					ms = total / 1e6 / frames;
+				if(pass < 2)
+					continue;
+				
+				RenderStats.Snapshot stats = camera.getStats().snapshot();
+				System.out.printf("%-12s frame: %6.2f ms, transform stage: %7.1f us, transforms updated: %,7d, vertices transformed: %,8d%n",
+						mode == 0 ? "tracking off" : mode == 1 ? "tracking on" : "hierarchy",
+						ms, stats.mean(RenderStats.Stage.TRANSFORM), stats.get(RenderStats.Counter.TRANSFORMS_UPDATED) / stats.frames,
+						stats.get(RenderStats.Counter.VERTICES_TRANSFORMED) / stats.frames);
+			}
+		}
+		
+		camera.getStats().setEnabled(false);
+		env.setCompiled(true);
+		System.out.println(Arrays.equals(hashes[0], hashes[1]) && Arrays.equals(hashes[0], hashes[2]) ? "PASSED: frames are identical" : "FAILED: tracked frames differ");
+	}
+	
+	// Adds tiny bodies to clusters of 16 placed in a grid, returns the clusters
+	private static Structure[] addClusters(Environment env, Supplier<Structure> body, Structure[] bodies)
+	{
+		Structure[] clusters = new Structure[(bodies.length + 15) / 16];
+		Random random = new Random(5);
+		
+		for(int c = 0; c < clusters.length; c++)
+		{
+			clusters[c] = new BodyGroup("cluster " + c);
+			clusters[c].transform[Structure.SCA_X] = clusters[c].transform[Structure.SCA_Y] = clusters[c].transform[Structure.SCA_Z] = 0;
+			placeInGrid(clusters[c], c, clusters.length);
+			env.addStructure(clusters[c]);
+		}
+		
+		// Final scales add up, the body group of each body adds another 1
+		for(int i = 0; i < bodies.length; i++)
+		{
+			bodies[i] = body.get();
+			bodies[i].transform[Structure.POS_Y] = (random.nextFloat() - 0.5f) * 2;
+			bodies[i].transform[Structure.POS_Z] = (random.nextFloat() - 0.5f) * 2;
+			bodies[i].transform[Structure.SCA_X] = bodies[i].transform[Structure.SCA_Y] = bodies[i].transform[Structure.SCA_Z] = -1.9f;
+			clusters[i % clusters.length].addChild(bodies[i]);
+		}
+		
+		return clusters;
+	}
+	
+	// Compares the heap and triangle throughput of 6 spheres loaded as models (object graph) and as packed meshes
+	public static void packed(int rings, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "packed", rings, rings * 2);
+		
+		System.out.println("--- PACKED MESH (6 spheres, " + rings + " rings) ---");
+		long[][] hashes = new long[2][frames];
+		
+		for(int mode = 0; mode < 2; mode++)
+		{
+			PrintStream out = quiet();
+			long base = usedHeap();
+			Environment env = new Environment();
+			Structure[] meshes = new Structure[6];
+			
+			for(int i = 0; i < meshes.length; i++)
+			{
+				meshes[i] = mode == 0 ? new Model(folder, "packed.obj") : PackedMesh.load(folder, "packed.obj");
+				Scene.place(meshes[i], i, 0);
+				env.addStructure(meshes[i]);
+			}
+			
+			Camera camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, 640, 400);
+			env.addCamera(camera);
+			env.finalizeRender();
+			long heap = usedHeap() - base;
+			System.setOut(out);
+			
+			long triangles = 6L * (mode == 0 ? ((Model) meshes[0]).getNumFaces() : ((PackedMesh) meshes[0]).getNumTriangles());
+			double ms = timeHashed(env, meshes, frames, hashes[mode]);
+			
+			System.out.printf("%-6s heap: %,8d KB, %6.1f bytes per triangle, frame: %6.2f ms, %6.2f M triangles/s%n", mode == 0 ? "model" : "packed",
+					heap / 1024, (double) heap / triangles, ms, triangles / ms / 1000);
+		}
+		
+		System.out.println(Arrays.equals(hashes[0], hashes[1]) ? "PASSED: frames are identical" : "FAILED: packed frames differ");
+	}
+	
+	// Projects the vertices per triangle and once per vertex in batches (by the scalar and Vector API kernels when they are
+	// loaded), for models and packed meshes, the frames must match
+	public static void batch(int rings, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "batch", rings, rings * 2);
+		
+		System.out.println("--- BATCH PROJECTION (6 spheres, " + rings + " rings) ---");
+		long[][] hashes = new long[6][frames];
+		boolean vector = BatchKernels.isVectorAvailable();
+		
+		for(int mode = 0; mode < 6; mode++)
+		{
+			boolean packed = mode >= 3;
+			int path = mode % 3;		// Per triangle, batch or batch with the Vector API kernels
+			boolean batch = path > 0;
+			if(path == 2 && !vector)
+				continue;
+			
+			BatchKernels.setVector(path == 2);
+			PrintStream out = quiet();
+			Environment env = new Environment();
+			Structure[] meshes = new Structure[6];
+			
+			for(int i = 0; i < meshes.length; i++)
+			{
+				meshes[i] = packed ? PackedMesh.load(folder, "batch.obj") : new Model(folder, "batch.obj");
+				Scene.place(meshes[i], i, 0);
+				env.addStructure(meshes[i]);
+			}
+			
+			Camera camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, 640, 400);
+			camera.setBatch(batch);
+			env.addCamera(camera);
+			env.finalizeRender();
+			System.setOut(out);
+			
+			timeHashed(env, meshes, frames, hashes[mode]);
+			double ms = timeHashed(env, meshes, frames, hashes[mode]);
+			
+			// Stage times and counters are measured separately, timing adds to the frame time
+			camera.getStats().setEnabled(true);
+			timeHashed(env, meshes, frames, new long[frames]);
+			RenderStats.Snapshot s = camera.getStats().snapshot();
+			long projected = batch ? s.get(RenderStats.Counter.VERTICES_PROJECTED) : 3 * s.get(RenderStats.Counter.TRIANGLES_SUBMITTED);
+			
+			System.out.printf("%-6s %-9s frame: %6.2f ms, project stage: %8.1f us, vertices projected: %,8d per frame%n", packed ? "packed" : "model",
+					path == 2 ? "vector" : batch ? "batch" : "triangle", ms, s.mean(RenderStats.Stage.PROJECT), projected / s.frames);
+		}
+		
+		BatchKernels.setVector(true);
+		if(!vector)
+			System.out.println("Vector API kernels not loaded (build with JDK 16+ and run with --add-modules jdk.incubator.vector)");
+		
+		boolean passed = Arrays.equals(hashes[0], hashes[1]) && Arrays.equals(hashes[3], hashes[4]) &&
+				(!vector || Arrays.equals(hashes[0], hashes[2]) && Arrays.equals(hashes[3], hashes[5]));
+		System.out.println(passed ? "PASSED: frames are identical" : "FAILED: batched frames differ");
+	}
+	
+	// Reports the triangle setup and fill stages separately, rasterizing immediately and binned on 1 and 4 threads, the frames must match
+	public static void setup(int rings, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "setup", rings, rings * 2);
+		
+		PrintStream out = quiet();
+		Scene scene = new Scene(folder, "setup.obj", 6, 0, 1280, 720);
+		System.setOut(out);
+		
+		System.out.println("--- SETUP AND FILL (6 spheres, " + rings + " rings) ---");
+		int[] threads = {0, 1, 4};
+		long[][] hashes = new long[threads.length][frames];
+		
+		for(int mode = 0; mode < threads.length; mode++)
+		{
+			scene.camera.setRenderThreads(threads[mode]);
+			Structure[] models = scene.models;
+			timeHashed(scene.env, models, frames, hashes[mode]);
+			double ms = timeHashed(scene.env, models, frames, hashes[mode]);
+			
+			// Stage times are measured separately, timing adds to the frame time
+			RenderStats stats = scene.camera.getStats();
+			stats.setEnabled(true);
+			timeHashed(scene.env, models, frames, new long[frames]);
+			RenderStats.Snapshot s = stats.snapshot();
+			stats.setEnabled(false);
+			
+			long drawn = s.get(RenderStats.Counter.TRIANGLES_DRAWN) / s.frames;
+			long dropped = s.get(RenderStats.Counter.TRIANGLES_REJECTED) / s.frames;
+			System.out.printf("%-10s frame: %6.2f ms, setup stage: %7.1f us, fill stage: %7.1f us, triangles set up: %,7d, dropped: %,6d%n",
+					threads[mode] == 0 ? "immediate" : threads[mode] + " threads", ms, s.mean(RenderStats.Stage.SETUP), s.mean(RenderStats.Stage.RASTER), drawn, dropped);
+		}
+		
+		boolean passed = Arrays.equals(hashes[0], hashes[1]) && Arrays.equals(hashes[0], hashes[2]);
+		System.out.println(passed ? "PASSED: frames are identical" : "FAILED: binned frames differ");
+	}
+	
+	// Renders a dense sphere at increasing distances with and without the single sample path, the frames must match
+	public static void micro(int rings, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "micro", rings, rings * 2);
+		
+		PrintStream out = quiet();
+		PackedMesh sphere = PackedMesh.load(folder, "micro.obj");
+		Environment env = new Environment();
+		env.addStructure(sphere);
+		Camera camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, 1280, 720);
+		env.addCamera(camera);
+		env.finalizeRender();
+		System.setOut(out);
+		
+		System.out.println("--- MICRO TRIANGLES (" + sphere.getNumTriangles() + " triangles) ---");
+		Structure[] structures = {sphere};
+		boolean passed = true;
+		
+		for(RenderableTriangle.Rasterizer rasterizer : RenderableTriangle.Rasterizer.values())
+			for(int distance : new int[] {25, 50, 100, 200, 400})
+			{
+				camera.setRasterizer(rasterizer);
+				sphere.transform[Structure.POS_X] = distance;
+				long[][] hashes = new long[2][frames];
+				double[] ms = new double[2];
+				double[] us = new double[2];
+				RenderStats.Snapshot s = null;
+				
+				for(int mode = 0; mode < 2; mode++)
+				{
+					camera.setMicroTriangles(mode == 1);
+					timeHashed(env, structures, frames, hashes[mode]);
+					ms[mode] = timeHashed(env, structures, frames, hashes[mode]);
+					
+					// Stage times are measured separately, timing adds to the frame time
+					RenderStats stats = camera.getStats();
+					stats.setEnabled(true);
+					timeHashed(env, structures, frames, new long[frames]);
+					s = stats.snapshot();
+					stats.setEnabled(false);
+					us[mode] = s.mean(RenderStats.Stage.SETUP) + s.mean(RenderStats.Stage.RASTER);
+				}
+				
+				long drawn = s.get(RenderStats.Counter.TRIANGLES_DRAWN) / s.frames;
+				long single = s.get(RenderStats.Counter.TRIANGLES_MICRO) / s.frames;
+				System.out.printf("%-8s distance: %3d, triangles drawn: %,7d (%5.1f%% single sample), setup and fill: %8.1f -> %8.1f us (%4.2fx), frame: %6.2f -> %6.2f ms%n",
+						rasterizer.name().toLowerCase(), distance, drawn, 100.0 * single / Math.max(drawn, 1), us[0], us[1], us[0] / us[1], ms[0], ms[1]);
+				passed &= Arrays.equals(hashes[0], hashes[1]);
+			}
+		
+		System.out.println(passed ? "PASSED: frames are identical" : "FAILED: single sample frames differ");
+	}
+	
+	// Renders a row of spheres at 720p, 1080p and 4K with each clear strategy (and a full clear across 4 threads), the frames must match
+	public static void clear(int rings, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "clear", rings, rings * 2);
+		int[][] resolutions = {{1280, 720}, {1920, 1080}, {3840, 2160}};
+		RenderBuffer.Clear[] clears = {RenderBuffer.Clear.FULL, RenderBuffer.Clear.FULL, RenderBuffer.Clear.DIRTY, RenderBuffer.Clear.EPOCH};
+		int[] threads = {0, 4, 0, 0};
+		boolean passed = true;
+		
+		System.out.println("--- CLEAR (6 spheres, " + rings + " rings) ---");
+		
+		for(int[] res : resolutions)
+		{
+			PrintStream out = quiet();
+			Scene scene = new Scene(folder, "clear.obj", 6, 0, res[0], res[1]);
+			System.setOut(out);
+			long[][] hashes = new long[clears.length][frames];
+			
+			for(int mode = 0; mode < clears.length; mode++)
+			{
+				scene.camera.setClear(clears[mode]);
+				scene.camera.setRenderThreads(threads[mode]);
+				Structure[] models = scene.models;
+				timeHashed(scene.env, models, frames, hashes[mode]);
+				double ms = timeHashed(scene.env, models, frames, hashes[mode]);
+				
+				// Stage times are measured separately, timing adds to the frame time
+				RenderStats stats = scene.camera.getStats();
+				stats.setEnabled(true);
+				timeHashed(scene.env, models, frames, new long[frames]);
+				RenderStats.Snapshot s = stats.snapshot();
+				stats.setEnabled(false);
+				
+				System.out.printf("%4dx%-4d %-5s %-9s clear: %8.1f us, frame: %7.2f ms%n", res[0], res[1], clears[mode].name().toLowerCase(),
+						threads[mode] == 0 ? "" : threads[mode] + " threads", s.mean(RenderStats.Stage.CLEAR), ms);
+				passed &= Arrays.equals(hashes[0], hashes[mode]);
+			}
+		}
+		
+		System.out.println(passed ? "PASSED: frames are identical" : "FAILED: cleared frames differ");
+	}
+	
+	// Renders a row of spheres at 1080p into buffers of each colour and depth format, reports the fill rate, the bytes of the
+	// buffers and the pixels which differ from the ARGB and float depth frame (compact formats are not exact)
+	public static void formats(int rings, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "formats", rings, rings * 2);
+		
+		PrintStream out = quiet();
+		Scene scene = new Scene(folder, "formats.obj", 6, 0, 1920, 1080);
+		System.setOut(out);
+		
+		System.out.println("--- BUFFER FORMATS (6 spheres, " + rings + " rings, 1920x1080) ---");
+		int[] reference = null;
+		
+		for(RenderBuffer.ColorFormat color : RenderBuffer.ColorFormat.values())
+			for(RenderBuffer.DepthFormat depth : RenderBuffer.DepthFormat.values())
+			{
+				scene.camera.setBufferFormat(color, depth);
+				Structure[] models = scene.models;
+				long[] hashes = new long[frames];
+				timeHashed(scene.env, models, frames, hashes);
+				double ms = timeHashed(scene.env, models, frames, hashes);
+				int[] image = ((DataBufferInt) scene.camera.generateRender().getRaster().getDataBuffer()).getData().clone();
+				
+				if(reference == null)
+					reference = image;
+				
+				int differ = 0;
+				for(int i = 0; i < image.length; i++)
+					if(image[i] != reference[i])
+						differ++;
+				
+				// Stage times are measured separately, timing adds to the frame time
+				RenderStats stats = scene.camera.getStats();
+				stats.setEnabled(true);
+				timeHashed(scene.env, models, frames, new long[frames]);
+				RenderStats.Snapshot s = stats.snapshot();
+				stats.setEnabled(false);
+				
+				double raster = s.mean(RenderStats.Stage.RASTER);
+				System.out.printf("%-6s %-5s frame: %6.2f ms, clear: %6.1f us, fill: %7.1f us (%6.1f M pixels written/s), buffers: %5.1f MB, pixels differing: %,7d%n",
+						color.name().toLowerCase(), depth.name().toLowerCase(), ms, s.mean(RenderStats.Stage.CLEAR), raster,
+						s.get(RenderStats.Counter.PIXELS_WRITTEN) / s.frames / raster, scene.camera.getBuffer().getBytes() / 1048576.0, differ);
+			}
+	}
+	
+	// Renders a row of spheres at 1080p into linear and tiled buffers (immediately and across 4 threads), reports the frame, fill
+	// and resolve times, the frames must match
+	public static void layout(int rings, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "layout", rings, rings * 2);
+		RenderBuffer.Layout[] layouts = {RenderBuffer.Layout.LINEAR, RenderBuffer.Layout.TILED, RenderBuffer.Layout.LINEAR, RenderBuffer.Layout.TILED};
+		int[] threads = {0, 0, 4, 4};
+		long[][] hashes = new long[layouts.length][frames];
+		boolean passed = true;
+		
+		PrintStream out = quiet();
+		Scene scene = new Scene(folder, "layout.obj", 6, 0, 1920, 1080);
+		System.setOut(out);
+		
+		System.out.println("--- BUFFER LAYOUT (6 spheres, " + rings + " rings, 1920x1080) ---");
+		
+		for(int mode = 0; mode < layouts.length; mode++)
+		{
+			scene.camera.setBufferLayout(layouts[mode]);
+			scene.camera.setRenderThreads(threads[mode]);
+			Structure[] models = scene.models;
+			timeHashed(scene.env, models, frames, hashes[mode]);
+			double ms = timeHashed(scene.env, models, frames, hashes[mode]);
+			
+			// Stage times are measured separately, timing adds to the frame time
+			RenderStats stats = scene.camera.getStats();
+			stats.setEnabled(true);
+			timeHashed(scene.env, models, frames, new long[frames]);
+			RenderStats.Snapshot s = stats.snapshot();
+			stats.setEnabled(false);
+			
+			// The resolve runs when the image is presented, outside of the stages
+			long start = System.nanoTime();
+			for(int f = 0; f < frames; f++)
+				scene.camera.generateRender();
+			double resolve = (System.nanoTime() - start) / 1e3 / frames;
+			
+			double raster = s.mean(RenderStats.Stage.RASTER);
+			System.out.printf("%-6s %-9s frame: %6.2f ms, clear: %6.1f us, fill: %7.1f us (%6.1f M pixels written/s), resolve: %6.1f us%n",
+					layouts[mode].name().toLowerCase(), threads[mode] == 0 ? "" : threads[mode] + " threads", ms, s.mean(RenderStats.Stage.CLEAR),
+					raster, s.get(RenderStats.Counter.PIXELS_WRITTEN) / s.frames / raster, resolve);
+			passed &= Arrays.equals(hashes[0], hashes[mode]);
+		}
+		
+		System.out.println(passed ? "PASSED: frames are identical" : "FAILED: tiled frames differ");
+	}
+	
+	// Renders a grid of distant spheres sharing a large texture with and without mipmaps, reports the fill rate and the
+	// memory of the texture (mipmapped frames are filtered, so they differ)
+	public static void mipmaps(int texture, int count, int frames) throws IOException
+	{
+		final String folder = assetFolder();
+		writeSphere(folder, "mipmaps", 16, 32);
+		writeTexture(folder + "mipmaps.png", texture);
+		
+		System.out.println("--- MIPMAPS (" + count + " spheres, " + texture + "x" + texture + " texture, 640x400) ---");
+		
+		for(boolean mipmaps : new boolean[] {false, true})
+		{
+			PrintStream out = quiet();
+			Material.setDefaultMipmaps(mipmaps);
+			Model mesh = new Model(folder, "mipmaps.obj");
+			Material.setDefaultMipmaps(false);
+			System.setOut(out);
+			
+			Environment env = new Environment();
+			Structure[] placed = new Structure[count];
+			
+			for(int i = 0; i < count; i++)
+			{
+				placed[i] = new ModelInstance(mesh);
+				placeInGrid(placed[i], i, count);
+				env.addStructure(placed[i]);
+			}
+			
+			Camera camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, 640, 400);
+			env.addCamera(camera);
+			env.finalizeRender();
+			
+			long bytes = 0;
+			for(Material m : mesh.getMaterials())
+				bytes += m.getTextureBytes();
+			
+			double ms = timeFrames(env, placed, frames);
+			
+			// Stage times are measured separately, timing adds to the frame time
+			camera.getStats().setEnabled(true);
+			timeFrames(env, placed, frames);
+			RenderStats.Snapshot s = camera.getStats().snapshot();
+			
+			double raster = s.mean(RenderStats.Stage.RASTER);
+			System.out.printf("%-11s texture: %6.1f MB, frame: %6.2f ms, fill: %7.1f us (%6.1f M pixels written/s, %,7d pixels per frame)%n",
+					mipmaps ? "mipmaps" : "base level", bytes / 1048576.0, ms, raster, s.get(RenderStats.Counter.PIXELS_WRITTEN) / s.frames / raster,
+					s.get(RenderStats.Counter.PIXELS_WRITTEN) / s.frames);
+		}
+	}
+	
+	private static final int GRID_MARGIN = 8;	// Pixels between the mesh and the edge of the screen
+	
+	// Creates a grid of cells split into two triangles each, inner vertices are moved randomly by up to an eighth of a cell (the cells stay convex)
+	private static RenderableTriangle[] gridTriangles(int cells, int w, int h, Random random)
+	{
+		Material material = new Material("grid");
+		int[] texels = new int[64 * 64];
+		for(int i = 0; i < texels.length; i++)
+			texels[i] = 0xFF000000 | (random.nextInt(0xFFFFFF) + 1);
+		material.setImage(texels, 64, 64);
+		
+		float cw = (float)(w - 2 * GRID_MARGIN) / cells;
+		float ch = (float)(h - 2 * GRID_MARGIN) / cells;
+		float[][] points = new float[(cells + 1) * (cells + 1)][];
+		
+		for(int y = 0; y <= cells; y++)
+			for(int x = 0; x <= cells; x++)
+			{
+				boolean inner = x > 0 && y > 0 && x < cells && y < cells;
+				float px = GRID_MARGIN + x * cw + (inner ? (random.nextFloat() - 0.5f) * cw * 0.25f : 0);
+				float py = GRID_MARGIN + y * ch + (inner ? (random.nextFloat() - 0.5f) * ch * 0.25f : 0);
+				points[y * (cells + 1) + x] = new float[] {px, py, 10, px / 4, py / 4, 1};
+			}
+		
+		RenderableTriangle[] tris = new RenderableTriangle[cells * cells * 2];
+		
+		for(int y = 0, i = 0; y < cells; y++)
+			for(int x = 0; x < cells; x++)
+			{
+				float[] a = points[y * (cells + 1) + x];
+				float[] b = points[y * (cells + 1) + x + 1];
+				float[] c = points[(y + 1) * (cells + 1) + x];
+				float[] d = points[(y + 1) * (cells + 1) + x + 1];
+				tris[i++] = new RenderableTriangle(material, new Vertex[3], new float[][] {a, b, c});
+				tris[i++] = new RenderableTriangle(material, new Vertex[3], new float[][] {b, d, c});
+			}
+		
+		for(RenderableTriangle t : tris)
+			t.finalizeRender();
+		
+		return tris;
+	}
+	
+	// Places a structure in a square grid in front of the default camera
+	private static void placeInGrid(Structure s, int i, int count)
+	{
+		int side = (int) Math.ceil(Math.sqrt(count));
+		float spacing = 30.0f / side;
+		s.transform[Structure.POS_X] = 200 + (i % 7);
+		s.transform[Structure.POS_Y] = (i % side - side / 2) * spacing;
+		s.transform[Structure.POS_Z] = (i / side - side / 2) * spacing * 0.6f;
+	}
+	
+	// Renders animated frames after a warm up, returns the average frame time in milliseconds
+	private static double timeFrames(Environment env, Structure[] structures, int frames)
+	{
+		long total = 0;
+		
+		for(int f = -3; f < frames; f++)
+		{
+			if(f == 0)
+				System.gc();
+			
+			long start = System.nanoTime();
+			for(Structure s : structures)
+				s.transform[Structure.ROT_Z] += 0.03f;
+			env.drawEnvironment(null);
+			
+			if(f >= 0)
+				total += System.nanoTime() - start;
+		}
+		
+		return total / 1e6 / frames;
+	}
+	
+	// Returns the heap in use after a full collection
+	private static long usedHeap()
+	{
+		Runtime rt = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+	
+	// Silences console output (loaders print per model), returns the stream to restore
+	private static PrintStream quiet()
+	{
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(new OutputStream() { public void write(int b) {} }));
+		return out;
+	}
+	
+	// Returns the time in milliseconds to load the packed benchmark model
+	private static double timePack(String folder)
+	{
+		System.gc();
+		long start = System.nanoTime();
+		loadPack(folder);
+		return (System.nanoTime() - start) / 1e6;
+	}
+	
+	// Loads the packed benchmark model
+	private static Model loadPack(String folder)
+	{
+		try {
+			return AssetPack.load(folder, "packed" + AssetPack.EXTENSION);
+		}
+		catch (IOException e) { Application.throwError("ERROR - FAILED TO READ ASSET PACK", e); }
+		
+		return null;
+	}
+	
+	// Returns the time in milliseconds to load a model
+	private static double timeLoad(String folder, String file, boolean textParser)
+	{
+		System.gc();
+		long start = System.nanoTime();
+		new Model(folder, file, textParser);
+		return (System.nanoTime() - start) / 1e6;
+	}
+	
+	// Number of lines in a sphere written by writeSphere
+	static long sphereLines(int rings, int segments)
+	{
+		return 2L * (rings + 1) * (segments + 1) + 2L * rings * segments + 3;
+	}
+	
+	// Renders a number of animated frames and returns a copy of each
+	public static int[][] renderFrames(Scene scene, int frames)
+	{
+		int[][] result = new int[frames][];
+
+		for(int f = 0; f < frames; f++)
+		{
+			scene.step();
+			result[f] = scene.draw().clone();
+		}
+
+		return result;
+	}
+
+	// Writes a textured UV sphere (obj, mtl and png) to a folder
+	public static void writeSphere(String folder, String name, int rings, int segments) throws IOException
+	{
+		PrintWriter obj = new PrintWriter(new File(folder + name + ".obj"));
+		obj.println("mtllib " + name + ".mtl");
+
+		for(int i = 0; i <= rings; i++)
+			for(int j = 0; j <= segments; j++)
+			{
+				double theta = Math.PI * i / rings;
+				double phi = 2 * Math.PI * j / segments;
+				obj.println("v " + (float)(Math.sin(theta) * Math.cos(phi)) + " " + (float)(Math.sin(theta) * Math.sin(phi)) + " " + (float)Math.cos(theta));
+			}
+
+		for(int i = 0; i <= rings; i++)
+			for(int j = 0; j <= segments; j++)
+				obj.println("vt " + ((float) j / segments) + " " + ((float) i / rings));
+
+		obj.println("g body");
+		obj.println("usemtl skin");
+
+		for(int i = 0; i < rings; i++)
+			for(int j = 0; j < segments; j++)
+			{
+				int a = i * (segments + 1) + j + 1;
+				int b = a + segments + 1;
+				obj.println("f " + a + "/" + a + " " + b + "/" + b + " " + (b + 1) + "/" + (b + 1));
+				obj.println("f " + a + "/" + a + " " + (b + 1) + "/" + (b + 1) + " " + (a + 1) + "/" + (a + 1));
+			}
+
+		obj.close();
+
+		PrintWriter mtl = new PrintWriter(new File(folder + name + ".mtl"));
+		mtl.println("newmtl skin");
+		mtl.println("Ka 1 1 1");
+		mtl.println("Kd 1 1 1");
+		mtl.println("illum 2");
+		mtl.println("map_Kd " + name + ".png");
+		mtl.close();
+
+		writeTexture(folder + name + ".png", 64);
+	}
+
+	// Writes a square checker texture
+	public static void writeTexture(String file, int size) throws IOException
+	{
+		BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+
+		for(int x = 0; x < size; x++)
+			for(int y = 0; y < size; y++)
+				image.setRGB(x, y, 0xFF000000 | ((x * 255 / size) << 16) | ((y * 255 / size) << 8) | (((x ^ y) & 8) != 0 ? 0xFF : 0x40));
+
+		ImageIO.write(image, "png", new File(file));
+	}
+
+	// Returns a temporary folder for generated assets
+	public static String assetFolder() throws IOException
+	{
+		File dir = new File(System.getProperty("java.io.tmpdir"), "engine-benchmark");
+
+		if(!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Cannot create " + dir);
+
+		return dir.getPath() + File.separator;
+	}
+
+	// Returns an integer argument or its default value
+	private static int intArg(String[] arg, int index, int def)
+	{
+		return arg.length > index ? Integer.parseInt(arg[index]) : def;
+	}
+
+	// A camera looking at a row of models, arranged by a seed so each scene is different
+	public static class Scene
+	{
+		Environment env = new Environment();
+		Camera camera;
+		Model[] models;
+
+		public Scene(String folder, String file, int count, int seed, int w, int h)
+		{
+			this(() -> new Model(folder, file), count, seed, w, h);
+		}
+		
+		public Scene(Supplier<Model> loader, int count, int seed, int w, int h)
+		{
+			models = new Model[count];
+
+			for(int i = 0; i < count; i++)
+			{
+				models[i] = loader.get();
+				place(models[i], i, seed);
+				env.addStructure(models[i]);
+			}
+
+			camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, w, h);
+			env.addCamera(camera);
+			env.finalizeRender();
+		}
+
+		// Places the i-th structure of a scene
+		static void place(Structure s, int i, int seed)
+		{
+			s.transform[Structure.POS_X] = 100 + i * 20 + seed * 3;
+			s.transform[Structure.POS_Y] = (i % 3 - 1) * 8 + seed * 0.5f;
+			s.transform[Structure.POS_Z] = (i / 3 - 0.5f) * 6;
+			s.transform[Structure.ROT_Z] = seed * 0.25f;
+		}
+		
+		// Advances the animation by one frame
+		public void step()
+		{
+			for(Model m : models)
+			{
+				m.transform[Structure.ROT_X] += 0.05f;
+				m.transform[Structure.ROT_Z] += 0.03f;
+			}
+		}
+
+		// Renders the scene and returns the frame data
+		public int[] draw()
+		{
+			return ((DataBufferInt) env.drawEnvironment(null).getRaster().getDataBuffer()).getData();
+		}
+	}
+}
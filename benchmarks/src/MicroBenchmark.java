@@ -0,0 +1,724 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/*
+ * File: MicroBenchmark.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Microbenchmarks of the engine's hot paths (transform, projection, triangle setup,
+ * rasterization, single sample triangles, buffer clear and model loading). Each kernel
+ * is warmed up, then measured over several timed iterations and the median throughput
+ * is reported.
+ * Results are compared against a stored baseline so regressions show up: a kernel
+ * slower than its baseline by more than the tolerance (-Dbenchmark.tolerance, 0.15 by
+ * default) is reported, and with --fail the run exits with status 1 after the report.
+ * Usage: MicroBenchmark [filter] [--save] [--fail] [--baseline file] [--tolerance fraction]
+ */
+
+public class MicroBenchmark
+{
+	public static final String DEFAULT_BASELINE = System.getProperty("benchmark.baseline", "benchmarks" + File.separator + "baseline.txt");
+	public static final double DEFAULT_TOLERANCE = Double.parseDouble(System.getProperty("benchmark.tolerance", "0.15"));
+	private static final long WARMUP_NS = 500000000L;	// Warm up time of each kernel
+	private static final long VECTOR_WARMUP_NS = 3000000000L;	// Warm up time of the Vector API kernels (boxed until C2 compiles them)
+	private static final long ITERATION_NS = 200000000L;	// Time of each measured iteration
+	private static final int ITERATIONS = 5;			// Number of measured iterations
+	
+	static volatile long sink;							// Consumes results so work is not eliminated
+	
+	private TreeMap<String, Double> baseline = new TreeMap<String, Double>();	// Stored results
+	private TreeMap<String, Double> results = new TreeMap<String, Double>();	// Results of this run
+	private String filter;								// Only kernels containing this text are run
+	private double tolerance = DEFAULT_TOLERANCE;		// Slow down (fraction of the baseline) which is reported as a regression
+	private int regressions = 0;
+	
+	// A unit of work, returns the amount of work done (vertices, triangles, pixels...)
+	interface Kernel { long run(); }
+	
+	// A kernel with untimed preparation before each run
+	interface Prepared extends Kernel { void prepare(); }
+	
+	public static void main(String[] arg)
+	{
+		String filter = "";
+		String file = DEFAULT_BASELINE;
+		double tolerance = DEFAULT_TOLERANCE;
+		boolean save = false;
+		boolean fail = false;
+		
+		for(int i = 0; i < arg.length; i++)
+		{
+			if(arg[i].equals("--save")) save = true;
+			else if(arg[i].equals("--fail")) fail = true;
+			else if(arg[i].equals("--baseline")) file = arg[++i];
+			else if(arg[i].equals("--tolerance")) tolerance = Double.parseDouble(arg[++i]);
+			else filter = arg[i];
+		}
+		
+		MicroBenchmark bench = new MicroBenchmark(filter);
+		bench.setTolerance(tolerance);
+		
+		try {
+			bench.loadBaseline(file);
+			bench.runAll();
+			
+			if(save)
+				bench.saveBaseline(file);
+		}
+		catch (IOException e) { Application.throwError("ERROR - BENCHMARK BASELINE: " + file, e); }
+		
+		System.out.println(bench.regressions + " regressions (> " + Math.round(tolerance * 100) + "% slower than baseline)");
+		
+		// Fails the comparison step (mvn verify -Pcompare in benchmarks), the baseline is still saved first
+		if(fail && bench.regressions > 0)
+			System.exit(1);
+	}
+	
+	public MicroBenchmark(String filter)
+	{
+		this.filter = filter;
+	}
+	
+	// Sets the slow down (fraction of the baseline) which is reported as a regression
+	public void setTolerance(double tolerance) { this.tolerance = tolerance; }
+	public int getRegressions() { return regressions; }
+	
+	// Runs every kernel over its parameters
+	public void runAll() throws IOException
+	{
+		for(int count : new int[] {1000, 100000})
+			transform(count);
+		
+		for(int count : new int[] {1000, 100000})
+			transformBatch(count);
+		
+		for(boolean matrices : new boolean[] {false, true})
+			for(int depth : new int[] {1, 4, 16})
+				transformChain(depth, matrices);
+		
+		for(int count : new int[] {1000, 100000})
+			project(count);
+		
+		// The Vector API kernels are only measured when they can be loaded (see BatchKernels)
+		for(boolean vector : BatchKernels.isVectorAvailable() ? new boolean[] {false, true} : new boolean[] {false})
+			for(int count : new int[] {1000, 100000})
+			{
+				projectBatch(count, vector);
+				lightBatch(count, vector);
+			}
+		BatchKernels.setVector(true);
+		
+		for(int size : new int[] {4, 32, 256})
+			setup(size, 10000);
+		
+		for(RenderableTriangle.Rasterizer rasterizer : RenderableTriangle.Rasterizer.values())
+			for(int size : new int[] {4, 32, 256})
+				for(int texture : new int[] {64, 1024})
+					raster(rasterizer, size, size >= 256 ? 100 : 10000, texture, 1280, 720);
+		
+		for(RenderBuffer.Layout layout : RenderBuffer.Layout.values())
+			for(RenderableTriangle.Rasterizer rasterizer : RenderableTriangle.Rasterizer.values())
+				for(int[] shape : new int[][] {{32, 32}, {8, 256}, {256, 256}})
+					rasterLayout(layout, rasterizer, shape[0], shape[1], shape[1] >= 256 ? 200 : 10000);
+		
+		for(RenderBuffer.ColorFormat color : RenderBuffer.ColorFormat.values())
+			for(RenderBuffer.DepthFormat depth : RenderBuffer.DepthFormat.values())
+				rasterFormat(color, depth, 32, 10000);
+		
+		for(int texture : new int[] {512, 2048, 8192})
+			for(Material.TextureLayout layout : Material.TextureLayout.values())
+				for(boolean columns : new boolean[] {false, true})
+					texture(layout, texture, columns, 200);
+		
+		for(int size : new int[] {8, 32})
+			for(boolean mipmaps : new boolean[] {false, true})
+				mipmap(4096, size, mipmaps, 10000);
+		
+		for(RenderableTriangle.Rasterizer rasterizer : RenderableTriangle.Rasterizer.values())
+			for(boolean micro : new boolean[] {false, true})
+				micro(rasterizer, micro, 10000);
+		
+		for(RenderBuffer.Clear clear : RenderBuffer.Clear.values())
+		{
+			clear(clear, 1280, 720);
+			clear(clear, 1920, 1080);
+			clear(clear, 3840, 2160);
+		}
+		
+		load(100);
+	}
+	
+	// Transformation.propagatePosition of vertices by a rotated parent
+	public void transform(int count)
+	{
+		Structure parent = new Structure("bench") {};
+		Structure root = new Structure("root") {};
+		root.transformation.setReference(root.transform);
+		parent.transform[Structure.ROT_X] = 0.3f;
+		parent.transform[Structure.ROT_Z] = 1.2f;
+		parent.transformation.propagateTransformation(root.transformation);
+		
+		final Transformation prev = parent.transformation;
+		final Vertex[] vertices = randomVertices(count, new Random(1));
+		
+		measure("transform count=" + count, "vertices", () -> {
+			long s = 0;
+			for(Vertex v : vertices)
+				s += (long) v.transformation.propagatePosition(prev)[0];
+			sink += s;
+			return vertices.length;
+		});
+	}
+	
+	// Transformation.transformPoints of packed vertices by a rotated parent (the path of VertexCache)
+	public void transformBatch(int count)
+	{
+		Structure parent = new Structure("bench") {};
+		Structure root = new Structure("root") {};
+		root.transformation.setReference(root.transform);
+		parent.transform[Structure.ROT_X] = 0.3f;
+		parent.transform[Structure.ROT_Z] = 1.2f;
+		parent.transformation.propagateTransformation(root.transformation);
+		
+		final Transformation prev = parent.transformation;
+		final float[] in = new float[count * 3];
+		final float[] out = new float[count * 3];
+		Random random = new Random(1);
+		for(int i = 0; i < in.length; i++)
+			in[i] = random.nextFloat() * 10;
+		
+		measure("transform-batch count=" + count, "vertices", () -> {
+			prev.transformPoints(in, out, count);
+			sink += (long) out[out.length - 1];
+			return count;
+		});
+	}
+	
+	// Propagation down a chain of structures and a batch of vertices at every level, by the rotations or composed 3x4 matrices (the paths of RenderList)
+	public void transformChain(int depth, boolean matrices)
+	{
+		final int batch = 256;
+		final float[][] local = new float[depth + 1][];
+		final float[] world = new float[(depth + 1) * 9];
+		final float[] trig = new float[(depth + 1) * 6];
+		final float[] composed = new float[(depth + 1) * 12];
+		final Transformation t = new Structure("bench") {}.transformation;
+		Random random = new Random(3);
+		
+		Structure root = new Structure("root") {};
+		root.transformation.setReference(root.transform);
+		root.transformation.store(world, trig, composed, 0);
+		
+		// Scales add up, so the levels keep a scale of 0
+		for(int i = 1; i <= depth; i++)
+			local[i] = new float[] {random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat(), 0, 0, 0};
+		
+		final float[] in = new float[batch * 3];
+		final float[] out = new float[batch * 3];
+		for(int i = 0; i < in.length; i++)
+			in[i] = random.nextFloat() * 10;
+		
+		measure((matrices ? "transform-chain-matrix depth=" : "transform-chain depth=") + depth, "vertices", () -> {
+			for(int i = 1; i <= depth; i++)
+				if(matrices)
+				{
+					Transformation.propagateMatrix(local[i], world, trig, composed, i - 1, i);
+					Transformation.multiplyPoints(composed, i, in, out, batch);
+				}
+				else
+				{
+					Transformation.propagate(local[i], world, trig, i - 1, i);
+					t.load(world, trig, i);
+					t.transformPoints(in, out, batch);
+				}
+			
+			sink += (long) out[out.length - 1];
+			return depth * batch;
+		});
+	}
+	
+	// Plane.intersectionAlongPlane of triangles onto the camera's view plane
+	public void project(int count)
+	{
+		OrthographicCamera camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, 1280, 720);
+		camera.finalizeRender();
+		camera.render(camera.getBuffer().getPackage());
+		
+		final Plane plane = camera.getViewPlane();
+		final RenderableTriangle[] tris = new RenderableTriangle[count];
+		Random random = new Random(2);
+		
+		for(int i = 0; i < count; i++)
+		{
+			tris[i] = triangle(Material.DEFAULT_MAT);
+			tris[i].positions = new float[9];
+			tris[i].p2 = 3;
+			tris[i].p3 = 6;
+			for(int v = 0; v < 9; v += 3)
+			{
+				tris[i].positions[v] = 50 + random.nextFloat() * 50;
+				tris[i].positions[v + 1] = random.nextFloat() * 20 - 10;
+				tris[i].positions[v + 2] = random.nextFloat() * 12 - 6;
+			}
+		}
+		
+		measure("project count=" + count, "triangles", () -> {
+			long n = 0;
+			for(RenderableTriangle t : tris)
+				if(plane.intersectionAlongPlane(t))
+					n++;
+			sink += n;
+			return tris.length;
+		});
+	}
+	
+	// Plane.projectPoints of the packed vertices of as many triangles as project(count) (three vertices each), by the scalar or
+	// Vector API kernels
+	public void projectBatch(int count, boolean vector)
+	{
+		OrthographicCamera camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, 1280, 720);
+		camera.finalizeRender();
+		camera.render(camera.getBuffer().getPackage());
+		
+		final Plane plane = camera.getViewPlane();
+		final float[] positions = new float[count * 9];
+		final float[] projected = new float[count * 9];
+		Random random = new Random(2);
+		
+		for(int v = 0; v < positions.length; v += 3)
+		{
+			positions[v] = 50 + random.nextFloat() * 50;
+			positions[v + 1] = random.nextFloat() * 20 - 10;
+			positions[v + 2] = random.nextFloat() * 12 - 6;
+		}
+		
+		BatchKernels.setVector(vector);
+		measure((vector ? "project-batch-vector" : "project-batch") + " count=" + count, "vertices", vector ? VECTOR_WARMUP_NS : WARMUP_NS, () -> {
+			plane.projectPoints(positions, projected, count * 3);
+			sink += (long) projected[projected.length - 1];
+			return count * 3;
+		});
+	}
+	
+	// Lighting of the vertices of triangles sharing their vertices (a sphere has about twice as many triangles as vertices), by
+	// the scalar or Vector API kernels
+	public void lightBatch(int count, boolean vector)
+	{
+		final int vertices = count / 2;
+		final int[] indices = new int[count * 3];
+		final float[] normals = new float[count * 3];
+		final float[] directions = new float[vertices * 3];
+		final float[] light = new float[count * 3];
+		Random random = new Random(2);
+		
+		for(int i = 0; i < indices.length; i++)
+		{
+			indices[i] = random.nextInt(vertices);
+			normals[i] = random.nextFloat() * 2 - 1;
+		}
+		for(int v = 0; v < directions.length; v++)
+			directions[v] = random.nextFloat() * 2 - 1;
+		
+		BatchKernels.setVector(vector);
+		final BatchKernels kernels = BatchKernels.get();
+		measure((vector ? "light-batch-vector" : "light-batch") + " count=" + count, "triangles", vector ? VECTOR_WARMUP_NS : WARMUP_NS, () -> {
+			kernels.light(indices, normals, directions, 0, count, light, count);
+			sink += (long) light[light.length - 1];
+			return count;
+		});
+	}
+	
+	// RenderableTriangle.setup of screen space triangles
+	public void setup(int size, int count)
+	{
+		final RenderableTriangle[] tris = screenTriangles(count, size, 64, 1280, 720, new Random(3));
+		final float[] rec = new float[RenderableTriangle.REC_SIZE];
+		final int[] bounds = new int[RenderableTriangle.BOUNDS_SIZE];
+		
+		measure("setup size=" + size, "triangles", () -> {
+			long n = 0;
+			for(RenderableTriangle t : tris)
+				if(t.setup(rec, 0, bounds, 0, 1280, 720))
+					n++;
+			sink += n;
+			return tris.length;
+		});
+	}
+	
+	// Setup and fill of textured triangles, reports covered pixels (half the bounding square)
+	public void raster(RenderableTriangle.Rasterizer rasterizer, int size, int count, int texture, int w, int h)
+	{
+		final RenderableTriangle[] tris = screenTriangles(count, size, texture, w, h, new Random(4));
+		final RenderBuffer buffer = new RenderBuffer(w, h);
+		final RenderPackage pkg = buffer.getPackage();
+		final long pixels = (long) count * size * size / 2;
+		pkg.rasterizer = rasterizer;
+		
+		measure((rasterizer == RenderableTriangle.Rasterizer.SCANLINE ? "raster" : "raster-" + rasterizer.name().toLowerCase()) + " size=" + size + " texture=" + texture + " res=" + w + "x" + h, "pixels", new Prepared() {
+			public void prepare() { buffer.refresh(); }
+			public long run()
+			{
+				for(RenderableTriangle t : tris)
+					t.render(pkg);
+				sink += pkg.frame[pkg.width * (pkg.height / 2) + pkg.width / 2];
+				return pixels;
+			}
+		});
+	}
+	
+	// Setup and fill of textured triangles into buffers of a layout and the resolve of the frame, reports covered pixels
+	public void rasterLayout(RenderBuffer.Layout layout, RenderableTriangle.Rasterizer rasterizer, int w, int h, int count)
+	{
+		final RenderableTriangle[] tris = screenTriangles(count, w, h, 64, 1280, 720, new Random(4));
+		final RenderBuffer buffer = new RenderBuffer(1280, 720, RenderBuffer.ColorFormat.ARGB, RenderBuffer.DepthFormat.FLOAT, layout);
+		final RenderPackage pkg = buffer.getPackage();
+		final long pixels = (long) count * w * h / 2;
+		pkg.rasterizer = rasterizer;
+		
+		measure("raster-layout layout=" + layout.name().toLowerCase() + " rasterizer=" + rasterizer.name().toLowerCase() + " size=" + w + "x" + h, "pixels", new Prepared() {
+			public void prepare() { buffer.refresh(); }
+			public long run()
+			{
+				for(RenderableTriangle t : tris)
+					t.render(pkg);
+				sink += buffer.render().getRGB(pkg.width / 2, pkg.height / 2);
+				return pixels;
+			}
+		});
+	}
+	
+	// Setup and fill of overlapping triangles into buffers of a colour and depth format, reports covered pixels
+	public void rasterFormat(RenderBuffer.ColorFormat color, RenderBuffer.DepthFormat depth, int size, int count)
+	{
+		final RenderableTriangle[] tris = screenTriangles(count, size, 64, 1280, 720, new Random(4));
+		final RenderBuffer buffer = new RenderBuffer(1280, 720, color, depth, RenderBuffer.Layout.LINEAR);
+		final RenderPackage pkg = buffer.getPackage();
+		final long pixels = (long) count * size * size / 2;
+		
+		measure("raster-format color=" + color.name().toLowerCase() + " depth=" + depth.name().toLowerCase(), "pixels", new Prepared() {
+			public void prepare() { buffer.refresh(); }
+			public long run()
+			{
+				for(RenderableTriangle t : tris)
+					t.render(pkg);
+				sink += buffer.render().getRGB(pkg.width / 2, pkg.height / 2);
+				return pixels;
+			}
+		});
+	}
+	
+	// Fill of triangles sampling a texture of a layout one texel per pixel, the texture is walked along its rows or along its
+	// columns (rotated a quarter turn), reports covered pixels
+	public void texture(Material.TextureLayout layout, int texture, boolean columns, int count)
+	{
+		String name = "texture layout=" + layout.name().toLowerCase() + " size=" + texture + " walk=" + (columns ? "columns" : "rows");
+		
+		if(!name.contains(filter))
+			return;
+		
+		final int size = 128;
+		Random random = new Random(6);
+		Material material = new Material("bench");
+		int[] texels = new int[texture * texture];
+		for(int i = 0; i < texels.length; i++)
+			texels[i] = 0xFF000000 | random.nextInt(0x1000000);
+		material.setTextureLayout(layout);
+		material.setImage(texels, texture, texture);
+		
+		final RenderableTriangle[] tris = new RenderableTriangle[count];
+		
+		for(int i = 0; i < count; i++)
+		{
+			float x = random.nextFloat() * (1280 - size - 1);
+			float y = random.nextFloat() * (720 - size - 1);
+			float u = random.nextInt(texture - size);
+			float v = random.nextInt(texture - size);
+			float[][] data = {
+				{x, y, 1, u, v, 1},
+				{x + size, y, 1, columns ? u : u + size, columns ? v + size : v, 1},
+				{x, y + size, 1, columns ? u + size : u, columns ? v : v + size, 1}
+			};
+			
+			tris[i] = new RenderableTriangle(material, new Vertex[3], data);
+			tris[i].finalizeRender();
+		}
+		
+		final RenderBuffer buffer = new RenderBuffer(1280, 720);
+		final RenderPackage pkg = buffer.getPackage();
+		final long pixels = (long) count * size * size / 2;
+		
+		// Every triangle is at the same depth, so each frame draws all of them
+		measure(name, "pixels", new Prepared() {
+			public void prepare() { buffer.refresh(); }
+			public long run()
+			{
+				for(RenderableTriangle t : tris)
+					t.render(pkg);
+				sink += pkg.frame[pkg.width * (pkg.height / 2) + pkg.width / 2];
+				return pixels;
+			}
+		});
+	}
+	
+	// Setup and fill of small triangles each covering a whole large texture (distant objects) from a random offset, so the
+	// triangles sample different texels, with and without mipmaps, reports covered pixels
+	public void mipmap(int texture, int size, boolean mipmaps, int count)
+	{
+		String name = "mipmap texture=" + texture + " size=" + size + " mipmaps=" + mipmaps;
+		
+		if(!name.contains(filter))
+			return;
+		
+		Material.setDefaultMipmaps(mipmaps);
+		Random random = new Random(4);
+		final RenderableTriangle[] tris = screenTriangles(count, size, texture, 1280, 720, random);
+		Material.setDefaultMipmaps(false);
+		
+		// Vertex data is (x, y, depth, tx, ty, light)
+		for(RenderableTriangle t : tris)
+		{
+			float u = random.nextInt(texture);
+			float v = random.nextInt(texture);
+			for(float[] vertex : t.pixelData)
+			{
+				vertex[3] += u;
+				vertex[4] += v;
+			}
+		}
+		final RenderBuffer buffer = new RenderBuffer(1280, 720);
+		final RenderPackage pkg = buffer.getPackage();
+		final long pixels = (long) count * size * size / 2;
+		
+		measure(name, "pixels", new Prepared() {
+			public void prepare() { buffer.refresh(); }
+			public long run()
+			{
+				for(RenderableTriangle t : tris)
+					t.render(pkg);
+				sink += pkg.frame[pkg.width * (pkg.height / 2) + pkg.width / 2];
+				return pixels;
+			}
+		});
+	}
+	
+	// Setup and fill of triangles covering at most a single sample, with and without the single sample path
+	public void micro(RenderableTriangle.Rasterizer rasterizer, boolean micro, int count)
+	{
+		final RenderableTriangle[] tris = screenTriangles(count, 1, 64, 1280, 720, new Random(5));
+		final RenderBuffer buffer = new RenderBuffer(1280, 720);
+		final RenderPackage pkg = buffer.getPackage();
+		pkg.rasterizer = rasterizer;
+		pkg.micro = micro;
+		
+		measure("micro rasterizer=" + rasterizer.name().toLowerCase() + " single=" + micro, "triangles", new Prepared() {
+			public void prepare() { buffer.refresh(); }
+			public long run()
+			{
+				for(RenderableTriangle t : tris)
+					t.render(pkg);
+				sink += pkg.frame[pkg.width * (pkg.height / 2) + pkg.width / 2];
+				return tris.length;
+			}
+		});
+	}
+	
+	// RenderBuffer.refresh of a frame after drawing the middle half of its width and height, reports the pixels of the frame
+	public void clear(RenderBuffer.Clear clear, int w, int h)
+	{
+		final RenderBuffer buffer = new RenderBuffer(w, h);
+		final int[] drawn = {w / 4, h / 4, w - w / 4, h - h / 4};
+		buffer.setClear(clear);
+		
+		measure((clear == RenderBuffer.Clear.FULL ? "clear" : "clear-" + clear.name().toLowerCase()) + " res=" + w + "x" + h, "pixels", new Prepared() {
+			public void prepare() { buffer.getPackage().touch(drawn, 0); }
+			public long run()
+			{
+				buffer.refresh();
+				return (long) buffer.getWidth() * buffer.getHeight();
+			}
+		});
+	}
+	
+	// Model.readObjFile of a generated sphere
+	public void load(int rings) throws IOException
+	{
+		if(!("load rings=" + rings).contains(filter))
+			return;
+		
+		final String folder = Benchmark.assetFolder();
+		final long lines = Benchmark.sphereLines(rings, rings);
+		Benchmark.writeSphere(folder, "micro", rings, rings);
+		
+		measure("load rings=" + rings, "lines", () -> {
+			PrintStream out = System.out;
+			System.setOut(new PrintStream(new OutputStream() { public void write(int b) {} }));
+			sink += new Model(folder, "micro.obj").getNumFaces();
+			System.setOut(out);
+			return lines;
+		});
+	}
+	
+	// Measures a kernel after the default warm up
+	private void measure(String name, String unit, Kernel kernel)
+	{
+		measure(name, unit, WARMUP_NS, kernel);
+	}
+	
+	// Warms up and measures a kernel, prints its median throughput (preparation is not timed)
+	private void measure(String name, String unit, long warmup, Kernel kernel)
+	{
+		if(!name.contains(filter))
+			return;
+		
+		Prepared prepared = kernel instanceof Prepared ? (Prepared) kernel : null;
+		
+		// Warm up
+		for(long end = System.nanoTime() + warmup; System.nanoTime() < end;)
+		{
+			if(prepared != null)
+				prepared.prepare();
+			kernel.run();
+		}
+		
+		double[] rates = new double[ITERATIONS];
+		
+		for(int i = 0; i < ITERATIONS; i++)
+		{
+			long work = 0;
+			long timed = 0;
+			
+			for(long start = System.nanoTime(); System.nanoTime() - start < ITERATION_NS;)
+			{
+				if(prepared != null)
+					prepared.prepare();
+				
+				long begin = System.nanoTime();
+				work += kernel.run();
+				timed += System.nanoTime() - begin;
+			}
+			
+			rates[i] = work / (timed / 1e9);
+		}
+		
+		report(name, unit, rates);
+	}
+	
+	// Prints the median rate and compares it with the baseline
+	private void report(String name, String unit, double[] rates)
+	{
+		Arrays.sort(rates);
+		double median = rates[rates.length / 2];
+		String line = String.format("%-48s %12.3f M%s/s", name, median / 1e6, unit);
+		
+		results.put(name, median);
+		
+		if(baseline.containsKey(name))
+		{
+			double base = baseline.get(name);
+			double change = (median - base) / base;
+			line += String.format("  (baseline %.3f, %+.1f%%)", base / 1e6, change * 100);
+			
+			if(change < -tolerance)
+			{
+				line += " REGRESSION";
+				regressions++;
+			}
+		}
+		
+		System.out.println(line);
+	}
+	
+	// Reads a baseline file (one "name<tab>operations per second" line per kernel)
+	public void loadBaseline(String file) throws IOException
+	{
+		if(!new File(file).isFile())
+			return;
+		
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		
+		try {
+			for(String line = reader.readLine(); line != null; line = reader.readLine())
+				if(line.indexOf('\t') > 0 && !line.startsWith("#"))
+					baseline.put(line.substring(0, line.indexOf('\t')), Double.parseDouble(line.substring(line.indexOf('\t') + 1)));
+		}
+		finally { reader.close(); }
+	}
+	
+	// Stores the results of this run (merged into the existing baseline)
+	public void saveBaseline(String file) throws IOException
+	{
+		File f = new File(file);
+		if(f.getParentFile() != null)
+			f.getParentFile().mkdirs();
+		
+		baseline.putAll(results);
+		PrintWriter out = new PrintWriter(f);
+		out.println("# MicroBenchmark baseline (operations per second)");
+		
+		for(Map.Entry<String, Double> e : baseline.entrySet())
+			out.println(e.getKey() + "\t" + String.format("%.0f", e.getValue()));
+		
+		out.close();
+		System.out.println("SAVED BASELINE: " + file);
+	}
+	
+	// Creates vertices at random positions in front of the camera
+	private static Vertex[] randomVertices(int count, Random random)
+	{
+		Vertex[] vertices = new Vertex[count];
+		for(int i = 0; i < count; i++)
+			vertices[i] = new Vertex(random.nextFloat() * 10, random.nextFloat() * 10, random.nextFloat() * 10);
+		return vertices;
+	}
+	
+	// Creates a triangle with empty vertex data
+	private static RenderableTriangle triangle(Material material)
+	{
+		return new RenderableTriangle(material, new Vertex[3], new float[3][6]);
+	}
+	
+	// Creates right triangles of a given size at random positions on the screen with a square texture
+	private static RenderableTriangle[] screenTriangles(int count, int size, int texture, int w, int h, Random random)
+	{
+		return screenTriangles(count, size, size, texture, w, h, random);
+	}
+	
+	// Creates right triangles of a given width and height at random positions on the screen with a square texture
+	private static RenderableTriangle[] screenTriangles(int count, int sizeX, int sizeY, int texture, int w, int h, Random random)
+	{
+		Material material = new Material("bench");
+		int[] texels = new int[texture * texture];
+		for(int i = 0; i < texels.length; i++)
+			texels[i] = 0xFF000000 | random.nextInt(0x1000000);
+		material.setImage(texels, texture, texture);
+		
+		RenderableTriangle[] tris = new RenderableTriangle[count];
+		
+		for(int i = 0; i < count; i++)
+		{
+			float x = random.nextFloat() * (w - sizeX - 1);
+			float y = random.nextFloat() * (h - sizeY - 1);
+			float d = random.nextFloat() * 100;
+			float[][] data = {
+				{x, y, d, 0, 0, 1},
+				{x + sizeX, y, d, texture, 0, 1},
+				{x, y + sizeY, d, 0, texture, 1}
+			};
+			
+			tris[i] = new RenderableTriangle(material, new Vertex[3], data);
+			tris[i].finalizeRender();
+		}
+		
+		return tris;
+	}
+}
@@ -0,0 +1,178 @@
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * File: VectorKernels.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * The kernels of the batch path in lanes of the preferred vector shape (8 floats with
+ * AVX2, 16 with AVX-512). The packed x, y, z arrays are gathered into a lane per
+ * vertex or triangle and scattered back, the remainder is left to the scalar loops.
+ * Built by the vector profile (JDK 16+) and loaded by BatchKernels when the JVM runs
+ * with --add-modules jdk.incubator.vector.
+ */
+
+public class VectorKernels extends BatchKernels
+{
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+	private static final int LANES = FLOATS.length();
+	private static final int[] STRIDE = new int[LANES];	// Offset of each lane in a packed array of three floats per lane
+	
+	// Packed x, y, z of LANES vertices are three consecutive vectors. SPLIT[c][k] moves component c of the vertices held by
+	// vector k into their lanes (the lanes set in SPLIT_LANES[c][k]), JOIN[k][c] moves component c into the lanes of vector k.
+	// The lanes are shuffled in registers: gathering and scattering by STRIDE is slower, and several scatters in one loop
+	// crash the JDK 17 compiler on AVX-512. The shuffles are copied to locals before the loops, which C2 keeps in registers.
+	private static final VectorShuffle<Float>[][] SPLIT = shuffles();
+	private static final VectorShuffle<Float>[][] JOIN = shuffles();
+	private static final VectorMask<Float>[][] SPLIT_LANES = masks();
+	private static final VectorMask<Float>[][] JOIN_LANES = masks();
+	
+	static
+	{
+		for(int l = 0; l < LANES; l++)
+			STRIDE[l] = l * 3;
+		
+		for(int c = 0; c < 3; c++)
+			for(int k = 0; k < 3; k++)
+			{
+				int[] split = new int[LANES];
+				boolean[] splitLanes = new boolean[LANES];
+				int[] join = new int[LANES];
+				boolean[] joinLanes = new boolean[LANES];
+				
+				for(int l = 0; l < LANES; l++)
+				{
+					int packed = l * 3 + c;			// Component c of vertex l
+					if(packed / LANES == k)
+					{
+						split[l] = packed % LANES;
+						splitLanes[l] = true;
+					}
+					
+					packed = k * LANES + l;			// Lane l of vector k
+					if(packed % 3 == c)
+					{
+						join[l] = packed / 3;
+						joinLanes[l] = true;
+					}
+				}
+				
+				SPLIT[c][k] = VectorShuffle.fromArray(FLOATS, split, 0);
+				SPLIT_LANES[c][k] = VectorMask.fromArray(FLOATS, splitLanes, 0);
+				JOIN[k][c] = VectorShuffle.fromArray(FLOATS, join, 0);
+				JOIN_LANES[k][c] = VectorMask.fromArray(FLOATS, joinLanes, 0);
+			}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static VectorShuffle<Float>[][] shuffles() { return new VectorShuffle[3][3]; }
+	@SuppressWarnings("unchecked")
+	private static VectorMask<Float>[][] masks() { return new VectorMask[3][3]; }
+	
+	@Override
+	public void project(float[] c, float[] in, float[] out, int from, int to)
+	{
+		FloatVector n_x = FloatVector.broadcast(FLOATS, c[PROJ_NX]);
+		FloatVector n_y = FloatVector.broadcast(FLOATS, c[PROJ_NY]);
+		FloatVector n_z = FloatVector.broadcast(FLOATS, c[PROJ_NZ]);
+		FloatVector numerator = FloatVector.broadcast(FLOATS, c[PROJ_NUMERATOR]);
+		FloatVector offset = FloatVector.broadcast(FLOATS, c[PROJ_OFFSET]);
+		FloatVector behind = FloatVector.broadcast(FLOATS, -1);
+		float ratio = c[PROJ_RATIO];
+		float scale = c[PROJ_SCALE];
+		float anchor_z = c[PROJ_ANCHOR_Z];
+		float s_z = c[PROJ_S_Z];
+		float height = c[PROJ_HEIGHT];
+		float width = c[PROJ_WIDTH];
+		
+		VectorShuffle<Float> x0 = SPLIT[0][0], x1 = SPLIT[0][1], x2 = SPLIT[0][2];
+		VectorShuffle<Float> y0 = SPLIT[1][0], y1 = SPLIT[1][1], y2 = SPLIT[1][2];
+		VectorShuffle<Float> z0 = SPLIT[2][0], z1 = SPLIT[2][1], z2 = SPLIT[2][2];
+		VectorMask<Float> x1_lanes = SPLIT_LANES[0][1], x2_lanes = SPLIT_LANES[0][2];
+		VectorMask<Float> y1_lanes = SPLIT_LANES[1][1], y2_lanes = SPLIT_LANES[1][2];
+		VectorMask<Float> z1_lanes = SPLIT_LANES[2][1], z2_lanes = SPLIT_LANES[2][2];
+		VectorShuffle<Float> p0x = JOIN[0][0], p0y = JOIN[0][1], p0z = JOIN[0][2];
+		VectorShuffle<Float> p1x = JOIN[1][0], p1y = JOIN[1][1], p1z = JOIN[1][2];
+		VectorShuffle<Float> p2x = JOIN[2][0], p2y = JOIN[2][1], p2z = JOIN[2][2];
+		VectorMask<Float> p0y_lanes = JOIN_LANES[0][1], p0z_lanes = JOIN_LANES[0][2];
+		VectorMask<Float> p1y_lanes = JOIN_LANES[1][1], p1z_lanes = JOIN_LANES[1][2];
+		VectorMask<Float> p2y_lanes = JOIN_LANES[2][1], p2z_lanes = JOIN_LANES[2][2];
+		int v = from;
+		
+		for(; v <= to - LANES; v += LANES)
+		{
+			int o = v * 3;
+			FloatVector p0 = FloatVector.fromArray(FLOATS, in, o);
+			FloatVector p1 = FloatVector.fromArray(FLOATS, in, o + LANES);
+			FloatVector p2 = FloatVector.fromArray(FLOATS, in, o + LANES * 2);
+			FloatVector x = p0.rearrange(x0).blend(p1.rearrange(x1), x1_lanes).blend(p2.rearrange(x2), x2_lanes);
+			FloatVector y = p0.rearrange(y0).blend(p1.rearrange(y1), y1_lanes).blend(p2.rearrange(y2), y2_lanes);
+			FloatVector z = p0.rearrange(z0).blend(p1.rearrange(z1), z1_lanes).blend(p2.rearrange(z2), z2_lanes);
+			
+			FloatVector parallel = x.mul(n_x).add(y.mul(n_y)).add(z.mul(n_z));
+			FloatVector tValue = numerator.div(parallel);
+			FloatVector s = offset.sub(tValue.mul(z.mul(ratio).add(y))).mul(scale);
+			FloatVector screen_x = s.mul(width);
+			FloatVector screen_y = z.mul(tValue).sub(anchor_z).sub(s.mul(s_z)).mul(height);
+			FloatVector depth = behind.blend(x.mul(x).add(y.mul(y)).add(z.mul(z)), parallel.compare(VectorOperators.GT, 0));
+			
+			screen_x.rearrange(p0x).blend(screen_y.rearrange(p0y), p0y_lanes).blend(depth.rearrange(p0z), p0z_lanes).intoArray(out, o);
+			screen_x.rearrange(p1x).blend(screen_y.rearrange(p1y), p1y_lanes).blend(depth.rearrange(p1z), p1z_lanes).intoArray(out, o + LANES);
+			screen_x.rearrange(p2x).blend(screen_y.rearrange(p2y), p2y_lanes).blend(depth.rearrange(p2z), p2z_lanes).intoArray(out, o + LANES * 2);
+		}
+		
+		super.project(c, in, out, v, to);
+	}
+	
+	@Override
+	public void light(int[] indices, float[] normals, float[] dir, int from, int to, float[] light, int stride)
+	{
+		VectorShuffle<Float> x0 = SPLIT[0][0], x1 = SPLIT[0][1], x2 = SPLIT[0][2];
+		VectorShuffle<Float> y0 = SPLIT[1][0], y1 = SPLIT[1][1], y2 = SPLIT[1][2];
+		VectorShuffle<Float> z0 = SPLIT[2][0], z1 = SPLIT[2][1], z2 = SPLIT[2][2];
+		VectorMask<Float> x1_lanes = SPLIT_LANES[0][1], x2_lanes = SPLIT_LANES[0][2];
+		VectorMask<Float> y1_lanes = SPLIT_LANES[1][1], y2_lanes = SPLIT_LANES[1][2];
+		VectorMask<Float> z1_lanes = SPLIT_LANES[2][1], z2_lanes = SPLIT_LANES[2][2];
+		int[] o1 = new int[LANES];
+		int[] o2 = new int[LANES];
+		int[] o3 = new int[LANES];
+		int t = from;
+		
+		for(; t <= to - LANES; t += LANES)
+		{
+			int i = t * 3;
+			
+			// Offsets of the vertices of the lanes' triangles in the packed directions
+			IntVector.fromArray(INTS, indices, i, STRIDE, 0).mul(3).intoArray(o1, 0);
+			IntVector.fromArray(INTS, indices, i + 1, STRIDE, 0).mul(3).intoArray(o2, 0);
+			IntVector.fromArray(INTS, indices, i + 2, STRIDE, 0).mul(3).intoArray(o3, 0);
+			
+			FloatVector p0 = FloatVector.fromArray(FLOATS, normals, i);
+			FloatVector p1 = FloatVector.fromArray(FLOATS, normals, i + LANES);
+			FloatVector p2 = FloatVector.fromArray(FLOATS, normals, i + LANES * 2);
+			FloatVector n_x = p0.rearrange(x0).blend(p1.rearrange(x1), x1_lanes).blend(p2.rearrange(x2), x2_lanes);
+			FloatVector n_y = p0.rearrange(y0).blend(p1.rearrange(y1), y1_lanes).blend(p2.rearrange(y2), y2_lanes);
+			FloatVector n_z = p0.rearrange(z0).blend(p1.rearrange(z1), z1_lanes).blend(p2.rearrange(z2), z2_lanes);
+			light(dir, o1, n_x, n_y, n_z).intoArray(light, t);
+			light(dir, o2, n_x, n_y, n_z).intoArray(light, stride + t);
+			light(dir, o3, n_x, n_y, n_z).intoArray(light, stride * 2 + t);
+		}
+		
+		super.light(indices, normals, dir, t, to, light, stride);
+	}
+	
+	// Lights the vertex at an offset of each lane
+	private static FloatVector light(float[] dir, int[] offsets, FloatVector n_x, FloatVector n_y, FloatVector n_z)
+	{
+		FloatVector x = FloatVector.fromArray(FLOATS, dir, 0, offsets, 0);
+		FloatVector y = FloatVector.fromArray(FLOATS, dir, 1, offsets, 0);
+		FloatVector z = FloatVector.fromArray(FLOATS, dir, 2, offsets, 0);
+		return FloatVector.broadcast(FLOATS, 0.5f).sub(x.mul(n_x).add(y.mul(n_y)).add(z.mul(n_z)).mul(0.5f));
+	}
+}
@@ -69,11 +69,19 @@ public class Application
 		
 		// Manually adding model and camera
 		camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, internalWidth, internalHeight);
-		model = new Model("models\\Spinner\\", "spinner.obj");
+		camera.setRenderThreads(Runtime.getRuntime().availableProcessors());
+		
+		// Frame metrics (run with -Dengine.stats=true to collect them and export over JMX)
+		if(Boolean.getBoolean("engine.stats"))
+		{
+			camera.getStats().setEnabled(true);
+			camera.getStats().export(camera.name);
+		}
+		model = AssetPack.loadModel("models\\Spinner\\", "spinner.obj");
 
 		env.addStructure(model);
 		for(int i = 0; i < 10; i++)
-			env.addStructure(new Model("models\\Spinner\\", "spinner.obj"));
+			env.addStructure(new ModelInstance(model));
 		
 		env.addCamera(camera);
 		env.finalizeRender();
@@ -104,6 +112,8 @@ public class Application
 	// Refreshes the display
 	public void refresh()
 	{
+		long present = 0;
+		
 		do 
 		{
 			// Create Graphic Context
@@ -114,6 +124,7 @@ public class Application
         	graphics.fillRect(0, 0, externalWidth, externalHeight);
         	
         	buffer = env.drawEnvironment(graphics);
+        	long start = System.nanoTime();
         	graphics.drawImage(buffer, 0, 0, externalWidth, externalHeight, w);
         	
         	graphics.setColor(Color.WHITE);
@@ -121,11 +132,14 @@ public class Application
 
             // Graphics Disposal
             graphics.dispose();
+            present += System.nanoTime() - start;
              
         } while (strategy.contentsRestored());
 		
 		// Display
+		long start = System.nanoTime();
 		strategy.show();
+		camera.getStats().record(RenderStats.Stage.PRESENT, present + System.nanoTime() - start);
 	}
 	
 	// Used to respond to control inputs
@@ -0,0 +1,382 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/*
+ * File: AssetPack.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Compiles a model and its materials into a single binary file which can be
+ * memory mapped and loaded without parsing text or decoding images.
+ * Usage: AssetPack <folder> <obj file> [pack file]
+ *
+ * Layout (little endian):
+ *   header		magic, version, model name
+ *   sources	count, then path and modification time of the obj, mtl and texture files
+ *   materials	count, then name, texture file, type, Ka/Kd/Ks/Ke, Ns, Tr, width, height, ARGB texels
+ *   vertices	count, then packed positions (xyz), uvs (uv) and normals (xyz)
+ *   groups		count, then name, material index (-1 is default), face count
+ *   indices	count, then three vertex indices per face in group order
+ */
+
+public class AssetPack
+{
+	public static final int MAGIC = 0x4B415049;	// "IPAK"
+	public static final int VERSION = 2;
+	public static final String EXTENSION = ".pak";
+	
+	public static void main(String[] arg)
+	{
+		if(arg.length < 2)
+		{
+			System.out.println("Usage: AssetPack <folder> <obj file> [pack file]");
+			return;
+		}
+		
+		String out = arg.length > 2 ? arg[2] : arg[0] + packName(arg[1]);
+		
+		try {
+			compile(new Model(arg[0], arg[1]), out);
+			System.out.println("COMPILED: " + out);
+		}
+		catch (IOException e) { Application.throwError("ERROR - FAILED TO WRITE ASSET PACK: " + out, e); }
+	}
+	
+	// Loads a model from its pack if one has been compiled and none of its sources changed since, otherwise from the obj file
+	public static Model loadModel(String folder, String file)
+	{
+		File pack = new File(folder + packName(file));
+		
+		if(pack.isFile())
+		{
+			try {
+				if(isCurrent(pack))
+					return load(folder, packName(file));
+				
+				System.out.println("WARNING - ASSET PACK IS OUT OF DATE: " + pack);
+			}
+			catch (IOException e) { System.out.println("ERROR - FAILED TO READ ASSET PACK: " + pack); }
+		}
+		
+		return new Model(folder, file);
+	}
+	
+	// Returns whether a pack is of this version and every source file still has the modification time it was packed with
+	public static boolean isCurrent(File pack) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(pack, "r");
+		
+		try {
+			if(raf.length() < 8)
+				return false;
+			
+			ByteBuffer in = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()).order(ByteOrder.LITTLE_ENDIAN);
+			
+			if(in.getInt() != MAGIC || in.getInt() != VERSION)
+				return false;
+			
+			getString(in);
+			
+			for(int i = in.getInt(); i > 0; i--)
+				if(new File(getString(in)).lastModified() != in.getLong())
+					return false;
+			
+			return true;
+		}
+		finally { raf.close(); }
+	}
+	
+	// Returns the files a model was read from (obj, mtl and textures), empty for a model which was not read from files
+	private static List<String> sources(Model model)
+	{
+		List<String> files = new ArrayList<String>();
+		
+		if(model.folder == null)
+			return files;
+		
+		files.add(model.folder + model.name);
+		if(model.materialFile != null)
+			files.add(model.folder + model.materialFile);
+		for(Material m : model.getMaterials())
+			if(!m.getFile().equals("...") && !files.contains(m.getFile()))
+				files.add(m.getFile());
+		
+		return files;
+	}
+	
+	// Returns the pack file name of an obj file
+	public static String packName(String file)
+	{
+		int dot = file.lastIndexOf('.');
+		return (dot < 0 ? file : file.substring(0, dot)) + EXTENSION;
+	}
+	
+	// Writes a model and its materials to a pack file
+	public static void compile(Model model, String file) throws IOException
+	{
+		List<Material> materials = model.getMaterials();
+		List<BodyGroup> groups = new ArrayList<BodyGroup>();
+		IdentityHashMap<Vertex, Integer> indices = new IdentityHashMap<Vertex, Integer>();
+		List<Vertex> vertices = new ArrayList<Vertex>();
+		int numFaces = 0;
+		
+		// Collect the unique vertices of every face
+		for(Renderable r : model.children)
+		{
+			if(!(r instanceof BodyGroup))
+				Application.throwError("ERROR - ONLY BODY GROUPS CAN BE PACKED", r);
+			
+			BodyGroup group = (BodyGroup) r;
+			groups.add(group);
+			
+			for(Renderable c : group.children)
+			{
+				for(Vertex v : ((Face) c).getVertecies())
+					if(!indices.containsKey(v))
+					{
+						indices.put(v, vertices.size());
+						vertices.add(v);
+					}
+				
+				numFaces++;
+			}
+		}
+		
+		// Calculate size of the pack
+		List<String> sources = sources(model);
+		long size = 8 + stringSize(model.name) + 4 + 4 + vertices.size() * 32L + 4 + 4 + numFaces * 12L + 4;
+		
+		for(String source : sources)
+			size += stringSize(source) + 8;
+		
+		for(Material m : materials)
+			size += stringSize(m.name) + stringSize(m.getFile()) + 1 + 14 * 4 + 8 + m.getTexels().length * 4L;
+		
+		for(BodyGroup g : groups)
+			size += stringSize(g.name) + 8;
+		
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		
+		try {
+			raf.setLength(size);
+			ByteBuffer out = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+			
+			// Header
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			putString(out, model.name);
+			
+			// Sources
+			out.putInt(sources.size());
+			for(String source : sources)
+			{
+				putString(out, source);
+				out.putLong(new File(source).lastModified());
+			}
+			
+			// Materials
+			out.putInt(materials.size());
+			for(Material m : materials)
+			{
+				putString(out, m.name);
+				putString(out, m.getFile());
+				out.put((byte) m.type.ordinal());
+				putFloats(out, m.Ka);
+				putFloats(out, m.Kd);
+				putFloats(out, m.Ks);
+				putFloats(out, m.Ke);
+				out.putFloat(m.Ns);
+				out.putFloat(m.Tr);
+				out.putInt(m.getWidth());
+				out.putInt(m.getHeight());
+				out.asIntBuffer().put(m.getTexture());
+				out.position(out.position() + m.getTexels().length * 4);
+			}
+			
+			// Vertices
+			float[] positions = new float[vertices.size() * 3];
+			float[] uvs = new float[vertices.size() * 2];
+			float[] normals = new float[vertices.size() * 3];
+			
+			for(int i = 0; i < vertices.size(); i++)
+			{
+				Vertex v = vertices.get(i);
+				System.arraycopy(v.vertex, 0, positions, i * 3, 3);
+				System.arraycopy(v.texture, 0, uvs, i * 2, 2);
+				System.arraycopy(v.normal, 0, normals, i * 3, 3);
+			}
+			
+			out.putInt(vertices.size());
+			putFloats(out, positions);
+			putFloats(out, uvs);
+			putFloats(out, normals);
+			
+			// Body groups
+			out.putInt(groups.size());
+			for(BodyGroup g : groups)
+			{
+				putString(out, g.name);
+				out.putInt(materials.indexOf(g.material));
+				out.putInt(g.size());
+			}
+			
+			// Index buffer
+			int[] index = new int[numFaces * 3];
+			int i = 0;
+			
+			for(BodyGroup g : groups)
+				for(Renderable c : g.children)
+					for(Vertex v : ((Face) c).getVertecies())
+						index[i++] = indices.get(v);
+			
+			out.putInt(index.length);
+			out.asIntBuffer().put(index);
+		}
+		finally { raf.close(); }
+	}
+	
+	// Maps a pack file and builds the model it contains
+	public static Model load(String folder, String file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(folder + file, "r");
+		MappedByteBuffer map;
+		
+		try {
+			map = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		}
+		finally { raf.close(); }
+		
+		ByteBuffer in = map.order(ByteOrder.LITTLE_ENDIAN);
+		
+		if(in.getInt() != MAGIC || in.getInt() != VERSION)
+			throw new IOException("Not an asset pack: " + file);
+		
+		String name = getString(in);
+		
+		// Sources (checked by isCurrent)
+		for(int i = in.getInt(); i > 0; i--)
+		{
+			getString(in);
+			in.getLong();
+		}
+		
+		// Materials
+		Material[] materials = new Material[in.getInt()];
+		for(int m = 0; m < materials.length; m++)
+		{
+			Material mat = new Material(getString(in));
+			mat.setFile(getString(in));
+			mat.type = Material.MaterialType.values()[in.get()];
+			getFloats(in, mat.Ka);
+			getFloats(in, mat.Kd);
+			getFloats(in, mat.Ks);
+			getFloats(in, mat.Ke);
+			mat.Ns = in.getFloat();
+			mat.Tr = in.getFloat();
+			
+			int w = in.getInt();
+			int h = in.getInt();
+			int[] texels = new int[w * h];
+			in.asIntBuffer().get(texels);
+			in.position(in.position() + texels.length * 4);
+			mat.setImage(texels, w, h);
+			materials[m] = mat;
+		}
+		
+		// Vertices
+		int numVertices = in.getInt();
+		float[] positions = getFloats(in, new float[numVertices * 3]);
+		float[] uvs = getFloats(in, new float[numVertices * 2]);
+		float[] normals = getFloats(in, new float[numVertices * 3]);
+		Vertex[] vertices = new Vertex[numVertices];
+		
+		for(int v = 0; v < numVertices; v++)
+		{
+			vertices[v] = new Vertex(positions[v * 3], positions[v * 3 + 1], positions[v * 3 + 2]);
+			vertices[v].setTexture(new float[] {uvs[v * 2], uvs[v * 2 + 1]});
+			vertices[v].setNormal(new float[] {normals[v * 3], normals[v * 3 + 1], normals[v * 3 + 2]});
+		}
+		
+		// Body groups
+		int numGroups = in.getInt();
+		String[] groupNames = new String[numGroups];
+		int[] groupMaterials = new int[numGroups];
+		int[] groupSizes = new int[numGroups];
+		
+		for(int g = 0; g < numGroups; g++)
+		{
+			groupNames[g] = getString(in);
+			groupMaterials[g] = in.getInt();
+			groupSizes[g] = in.getInt();
+		}
+		
+		// Faces
+		int[] index = new int[in.getInt()];
+		in.asIntBuffer().get(index);
+		
+		List<Material> list = new ArrayList<Material>();
+		for(Material m : materials)
+			list.add(m);
+		
+		Model model = new Model(folder, name, list);
+		
+		for(int g = 0, i = 0; g < numGroups; g++)
+		{
+			BodyGroup group = new BodyGroup(groupNames[g]);
+			group.material = groupMaterials[g] < 0 ? Material.DEFAULT_MAT : materials[groupMaterials[g]];
+			
+			for(int f = 0; f < groupSizes[g]; f++, i += 3)
+			{
+				Face face = new Face(group, new int[] {index[i] + 1, 0, 0, index[i + 1] + 1, 0, 0, index[i + 2] + 1, 0, 0});
+				face.addVertex(vertices[index[i]], vertices[index[i + 1]], vertices[index[i + 2]]);
+				group.addChild(face);
+			}
+			
+			model.addBodyGroup(group);
+		}
+		
+		return model;
+	}
+	
+	// Size of a length prefixed UTF-8 string
+	private static int stringSize(String s)
+	{
+		return 2 + s.getBytes(StandardCharsets.UTF_8).length;
+	}
+	
+	private static void putString(ByteBuffer out, String s)
+	{
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.putShort((short) bytes.length);
+		out.put(bytes);
+	}
+	
+	private static String getString(ByteBuffer in)
+	{
+		byte[] bytes = new byte[in.getShort() & 0xFFFF];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private static void putFloats(ByteBuffer out, float[] values)
+	{
+		out.asFloatBuffer().put(values);
+		out.position(out.position() + values.length * 4);
+	}
+	
+	private static float[] getFloats(ByteBuffer in, float[] values)
+	{
+		in.asFloatBuffer().get(values);
+		in.position(in.position() + values.length * 4);
+		return values;
+	}
+}
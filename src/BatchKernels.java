@@ -0,0 +1,109 @@
+/*
+ * File: BatchKernels.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Loops of the batch path (see Camera.setBatch) over packed vertices and triangles:
+ * projecting the vertices onto the view plane and lighting the vertices of each
+ * triangle before it is set up. These are the scalar loops. VectorKernels (in
+ * src-vector, compiled by the vector profile on JDK 16+) runs the same loops in lanes
+ * of the jdk.incubator.vector API and is used instead when it can be loaded, which
+ * needs the JVM to run with --add-modules jdk.incubator.vector. Each lane performs
+ * the same float operations in the same order as the scalar loop (nothing is fused),
+ * so both produce bit identical frames.
+ */
+
+public class BatchKernels
+{
+	// Constants of a projection onto a view plane (see Plane.projectPoints)
+	public static final byte PROJ_NX = 0;
+	public static final byte PROJ_NY = 1;
+	public static final byte PROJ_NZ = 2;
+	public static final byte PROJ_NUMERATOR = 3;
+	public static final byte PROJ_RATIO = 4;
+	public static final byte PROJ_OFFSET = 5;
+	public static final byte PROJ_SCALE = 6;
+	public static final byte PROJ_ANCHOR_Z = 7;
+	public static final byte PROJ_S_Z = 8;
+	public static final byte PROJ_HEIGHT = 9;
+	public static final byte PROJ_WIDTH = 10;
+	public static final byte PROJ_SIZE = 11;
+	
+	private static final BatchKernels SCALAR = new BatchKernels();
+	private static final BatchKernels VECTOR = load();
+	private static boolean vector = true;		// Whether the Vector API kernels are used when available
+	
+	// Loads the Vector API kernels, null when they were not compiled or the module is not present
+	private static BatchKernels load()
+	{
+		try
+		{
+			return (BatchKernels) Class.forName("VectorKernels").getDeclaredConstructor().newInstance();
+		}
+		catch(Throwable e)		// ClassNotFoundException without the vector profile, a LinkageError without the module
+		{
+			return null;
+		}
+	}
+	
+	// Returns the kernels of the batch path
+	public static BatchKernels get()
+	{
+		return vector && VECTOR != null ? VECTOR : SCALAR;
+	}
+	
+	// Sets whether the Vector API kernels are used when they are available (on by default)
+	public static void setVector(boolean vector) { BatchKernels.vector = vector; }
+	public static boolean isVector() { return get() == VECTOR; }
+	public static boolean isVectorAvailable() { return VECTOR != null; }
+	
+	// Projects packed positions (x, y, z per vertex) of vertices [from, to) into packed screen x, y and depth, the same
+	// values as Plane.intersectionAlongPlane(tri) for each vertex. The depth is -1 when a vertex is not in front of the plane.
+	public void project(float[] c, float[] in, float[] out, int from, int to)
+	{
+		float n_x = c[PROJ_NX];
+		float n_y = c[PROJ_NY];
+		float n_z = c[PROJ_NZ];
+		float numerator = c[PROJ_NUMERATOR];
+		float ratio = c[PROJ_RATIO];
+		float offset = c[PROJ_OFFSET];
+		float scale = c[PROJ_SCALE];
+		float anchor_z = c[PROJ_ANCHOR_Z];
+		float s_z = c[PROJ_S_Z];
+		float height = c[PROJ_HEIGHT];
+		float width = c[PROJ_WIDTH];
+		
+		for(int o = from * 3, end = to * 3; o < end; o += 3)
+		{
+			float x = in[o];
+			float y = in[o + 1];
+			float z = in[o + 2];
+			float parallel = x*n_x + y*n_y + z*n_z;
+			float tValue = numerator / parallel;
+			float s = (offset - tValue*(ratio * z + y)) * scale;
+			out[o] = s * width;
+			out[o + 1] = (z * tValue - anchor_z - s_z * s) * height;
+			out[o + 2] = parallel > 0 ? x*x + y*y + z*z : -1;
+		}
+	}
+	
+	// Lights the vertices of triangles [from, to) of an index array by the triangle normals (x, y, z per triangle) and the
+	// directions from the camera to the vertices (the same as Face.render). The light of the first, second and third vertex
+	// of triangle t is at light[t], light[stride + t] and light[stride * 2 + t].
+	public void light(int[] indices, float[] normals, float[] dir, int from, int to, float[] light, int stride)
+	{
+		for(int t = from; t < to; t++)
+		{
+			int i = t * 3;
+			float n_x = normals[i];
+			float n_y = normals[i + 1];
+			float n_z = normals[i + 2];
+			int o1 = indices[i] * 3;
+			int o2 = indices[i + 1] * 3;
+			int o3 = indices[i + 2] * 3;
+			light[t] = 0.5f - (dir[o1]*n_x + dir[o1 + 1]*n_y + dir[o1 + 2]*n_z) * 0.5f;
+			light[stride + t] = 0.5f - (dir[o2]*n_x + dir[o2 + 1]*n_y + dir[o2 + 2]*n_z) * 0.5f;
+			light[stride * 2 + t] = 0.5f - (dir[o3]*n_x + dir[o3 + 1]*n_y + dir[o3 + 2]*n_z) * 0.5f;
+		}
+	}
+}
@@ -1,3 +1,4 @@
+import java.util.ArrayList;
 
 /*
  * File: BodyGroup.java
@@ -11,10 +12,74 @@
 public class BodyGroup extends Structure
 {
 	Material material = Material.DEFAULT_MAT;				// The assigned material to the body group
+	Material.CullMode cull = null;							// Overrides the culling of the material when set
+	private VertexCache vertices;							// Transformed vertices shared by the faces
 	
 	public BodyGroup(String name)
 	{
 		super(name);
 		System.out.println("CREATED BODYGROUP: " + name);
 	}
+	
+	// Creates the body group of a model instance, which draws the faces of a model's body group (with their material
+	// and culling) through its own transformation and vertex cache, so instances never write to the model
+	BodyGroup(BodyGroup shared)
+	{
+		super(shared.name);
+		transform = shared.transform;
+		transformation = new Transformation(transform, new float[] {0,0,0,0,0,0,1,1,1});
+		children = shared.children;
+		leaves = shared.leaves;
+		vertices = new VertexCache(shared.vertices);
+		
+		System.arraycopy(shared.boundCenter, 0, boundCenter, 0, 3);
+		boundFaces = shared.boundFaces;
+		boundScaled = shared.boundScaled;
+		boundFixed = shared.boundFixed;
+	}
+	
+	@Override
+	// Finalizes the faces and packs their vertices into the vertex cache
+	public void finalizeRender()
+	{
+		super.finalizeRender();
+		
+		ArrayList<Face> faces = new ArrayList<Face>();
+		for(Renderable r : children)
+			if(r instanceof Face)
+				faces.add((Face) r);
+		
+		vertices = new VertexCache(faces);
+	}
+	
+	@Override
+	// Transforms each vertex once (and projects it when batching), then renders the faces which read them from the cache
+	protected void draw(RenderPackage context, boolean compiled)
+	{
+		long start = context.stats.start();
+		context.stats.count(RenderStats.Counter.VERTICES_TRANSFORMED, vertices.update(transformation, context.matrices));
+		context.stats.stop(RenderStats.Stage.TRANSFORM, start);
+		
+		if(context.batch)
+		{
+			start = context.stats.start();
+			context.camera.projectVertices(vertices);
+			context.stats.count(RenderStats.Counter.VERTICES_PROJECTED, vertices.size());
+			context.stats.stop(RenderStats.Stage.PROJECT, start);
+		}
+		
+		VertexCache outer = context.vertices;
+		context.vertices = vertices;
+		super.draw(context, compiled);
+		context.vertices = outer;
+	}
+	
+	// Returns the faces which are culled by the body group
+	public Material.CullMode getCullMode()
+	{
+		return cull != null ? cull : material.cull;
+	}
+	
+	// Sets the faces which are culled (null uses the material's setting)
+	public void setCullMode(Material.CullMode mode) { cull = mode; }
 }
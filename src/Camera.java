@@ -1,5 +1,7 @@
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /*
@@ -22,6 +24,21 @@ public abstract class Camera extends Structure
 	protected int width;				// Width of display
 	protected int height;				// Height of display
 	protected int size;					// Size of the display array
+	protected int renderThreads = 0;	// Number of rasterizer threads (0 is immediate single-threaded rendering)
+	protected RenderStats stats = new RenderStats();	// Metrics of the frames rendered by the camera
+	protected boolean culling = true;	// Whether structures outside of the view are skipped
+	protected boolean occlusion = false;	// Whether structures and faces behind the last frame's depth are skipped
+	protected RenderableTriangle.Rasterizer rasterizer = RenderableTriangle.Rasterizer.SCANLINE;	// Algorithm filling the triangles
+	protected boolean matrices = false;	// Whether vertices are transformed by composed 3x4 matrices
+	protected boolean batch = false;	// Whether vertices are projected once in batches instead of per triangle
+	protected boolean micro = true;		// Whether triangles covering a single sample are drawn from that sample alone
+	protected RenderBuffer.Clear clear = RenderBuffer.Clear.DIRTY;	// Strategy clearing the display for a new frame
+	protected RenderBuffer.ColorFormat colorFormat = RenderBuffer.ColorFormat.ARGB;	// Format of the colours drawn
+	protected RenderBuffer.DepthFormat depthFormat = RenderBuffer.DepthFormat.FLOAT;	// Format of the depths drawn
+	protected RenderBuffer.Layout layout = RenderBuffer.Layout.LINEAR;	// Order of the pixels in the buffers
+	private DepthPyramid pyramid;		// Depth of the last rendered frame
+	private ArrayList<Structure> deferred = new ArrayList<Structure>();	// Structures hidden in the last frame
+	private int[] deferredRoots = new int[16];	// Roots of a render list hidden in the last frame
 	
 	public Graphics graphics;
 	
@@ -33,9 +50,33 @@ public abstract class Camera extends Structure
 		numCameras++;
 	}
 	
-	public abstract void render(RenderableTriangle tri);
+	public abstract void render(RenderableTriangle tri, RenderPackage context);
 	public abstract float[] getVertexPosition(Line pos);
 	
+	// Returns the nearest depth kept apart by integer depth formats, can be overwritten
+	public float getNearDepth()
+	{
+		return 1;
+	}
+	
+	// Returns false if a sphere (relative to the camera) is completely outside of the view, can be overwritten
+	public boolean isVisible(float[] center, float radius)
+	{
+		return true;
+	}
+	
+	// Tests a sphere (relative to the camera) against a depth pyramid of the camera's frame, can be overwritten
+	public int testOcclusion(float[] center, float radius, DepthPyramid pyramid)
+	{
+		return DepthPyramid.PARTIAL;
+	}
+	
+	// Projects the vertices of a cache for the triangles to gather when batching, can be overwritten
+	public void projectVertices(VertexCache vertices)
+	{
+		return;
+	}
+	
 	// Resizes the display resolution
 	public void setResolution(int width, int height)
 	{
@@ -44,17 +85,102 @@ public abstract class Camera extends Structure
 		this.size = width * height;
 	}
 	
+	// Sets the algorithm used to fill triangles
+	public void setRasterizer(RenderableTriangle.Rasterizer rasterizer)
+	{
+		this.rasterizer = rasterizer;
+		
+		if(packet != null)
+			packet.rasterizer = rasterizer;
+	}
+	
+	// Sets whether vertices are transformed by composed 3x4 matrices (close to the default path, but not bit identical)
+	public void setMatrices(boolean matrices)
+	{
+		this.matrices = matrices;
+		
+		if(packet != null)
+			packet.matrices = matrices;
+	}
+	
+	// Sets whether each vertex is projected once in batches instead of once per triangle it is part of (bit identical, see BatchKernels)
+	public void setBatch(boolean batch)
+	{
+		this.batch = batch;
+		
+		if(packet != null)
+			packet.batch = batch;
+	}
+	
+	// Sets whether triangles covering a single sample skip the full setup and fill (bit identical, on by default)
+	public void setMicroTriangles(boolean micro)
+	{
+		this.micro = micro;
+		
+		if(packet != null)
+			packet.micro = micro;
+	}
+	
+	// Sets the strategy clearing the display for a new frame (FULL and DIRTY are bit identical, EPOCH within its depth range)
+	public void setClear(RenderBuffer.Clear clear)
+	{
+		this.clear = clear;
+		
+		if(buffer != null)
+			buffer.setClear(clear);
+	}
+	
+	// Sets the formats of the colour and depth buffers, a finalized camera creates a new buffer (ARGB and FLOAT are exact, the others are not)
+	public void setBufferFormat(RenderBuffer.ColorFormat color, RenderBuffer.DepthFormat depth)
+	{
+		colorFormat = color;
+		depthFormat = depth;
+		
+		if(buffer != null)
+			finalizeRender();
+	}
+	
+	// Sets the order of the pixels in the buffers, a finalized camera creates a new buffer (both layouts are bit identical)
+	public void setBufferLayout(RenderBuffer.Layout layout)
+	{
+		this.layout = layout;
+		
+		if(buffer != null)
+			finalizeRender();
+	}
+	
+	// Sets the number of threads used to rasterize the display
+	public void setRenderThreads(int threads)
+	{
+		renderThreads = threads;
+		
+		if(buffer != null)
+			buffer.setRenderThreads(threads);
+	}
+	
 	@Override
 	public void finalizeRender()
 	{
-		buffer = new RenderBuffer(width, height);
+		// The worker pool of a replaced buffer is shut down
+		if(buffer != null)
+			buffer.setRenderThreads(0);
+		
+		buffer = new RenderBuffer(width, height, colorFormat, depthFormat, layout);
+		buffer.setRenderThreads(renderThreads);
+		buffer.setClear(clear);
+		buffer.setDepthNear(getNearDepth());
 		packet = buffer.getPackage();
 		packet.camera = this;
+		packet.stats = stats;
+		packet.rasterizer = rasterizer;
+		packet.matrices = matrices;
+		packet.batch = batch;
+		packet.micro = micro;
 	}
 	
 	@Override
 	// Nullifies rendering process
-	public void render() 
+	public void render(RenderPackage context) 
 	{
 		return;
 	}
@@ -62,17 +188,116 @@ public abstract class Camera extends Structure
 	// Projects the vertices present in the environment to the camera and renders the structures
 	public void project(List<Structure> list)
 	{
-		buffer.refresh();
-		
-		binded = packet; // bind package
+		beginFrame();
 		
 		// Note: transformation is treated as negative
-		for(Renderable r : list)
+		for(Structure r : list)
 		{
+			if(culling || occlusion)
+				r.refitBounds();
+			
 			transformation.setReference(transform);
-			binded.transform = transformation;
-			r.render();
+			packet.transform = transformation;
+			
+			// Structures hidden by the last frame are deferred until this frame's depth can be tested
+			if(occlusion && r.visible && pyramid.isValid() && r.propagateAndTest(packet, pyramid) == DepthPyramid.OCCLUDED)
+				deferred.add(r);
+			else
+				r.render(packet);
+		}
+		
+		// Conservative re-test of the deferred structures (and their faces) against the depth of this frame
+		if(!deferred.isEmpty())
+		{
+			beginDeferred();
+			for(Structure r : deferred)
+			{
+				transformation.setReference(transform);
+				packet.transform = transformation;
+				r.render(packet);
+			}
+			
+			packet.occlusion = null;
+			deferred.clear();
+		}
+		
+		endFrame();
+	}
+	
+	// Renders the structures of a compiled render list, the same frame as project(list) without walking the hierarchy
+	public void project(RenderList list)
+	{
+		beginFrame();
+		list.update();
+		
+		if(culling || occlusion)
+			list.refitBounds();
+		
+		transformation.setReference(transform);
+		list.setReference(transformation, packet.matrices);
+		int numDeferred = 0;
+		
+		for(int r = RenderList.FIRST; r < list.size(); r = list.next(r))
+		{
+			// Roots hidden by the last frame are deferred until this frame's depth can be tested
+			if(occlusion && list.get(r).visible && pyramid.isValid() && list.propagateAndTest(packet, r, pyramid) == DepthPyramid.OCCLUDED)
+			{
+				if(numDeferred == deferredRoots.length)
+					deferredRoots = Arrays.copyOf(deferredRoots, numDeferred * 2);
+				deferredRoots[numDeferred++] = r;
+			}
+			else
+				list.render(packet, r, list.next(r));
+		}
+		
+		if(numDeferred > 0)
+		{
+			beginDeferred();
+			for(int i = 0; i < numDeferred; i++)
+				list.render(packet, deferredRoots[i], list.next(deferredRoots[i]));
+			
+			packet.occlusion = null;
+		}
+		
+		endFrame();
+	}
+	
+	// Clears the display for a new frame
+	private void beginFrame()
+	{
+		long start = stats.start();
+		buffer.refresh();
+		stats.stop(RenderStats.Stage.CLEAR, start);
+		
+		if(occlusion && pyramid == null)
+			pyramid = new DepthPyramid(width, height);
+	}
+	
+	// Draws the structures rendered so far and tests the deferred structures against their depth (the tiles time their own stages)
+	private void beginDeferred()
+	{
+		buffer.flush();
+		
+		long start = stats.start();
+		pyramid.build(packet);
+		stats.stop(RenderStats.Stage.OCCLUSION, start);
+		
+		packet.occlusion = pyramid;
+	}
+	
+	// Draws the remaining triangles and keeps the depth of the frame for the next one
+	private void endFrame()
+	{
+		buffer.flush();
+		
+		if(occlusion)
+		{
+			long start = stats.start();
+			pyramid.build(packet);
+			stats.stop(RenderStats.Stage.OCCLUSION, start);
 		}
+		
+		stats.endFrame();
 	}
 	
 	// Renders the final image
@@ -82,4 +307,26 @@ public abstract class Camera extends Structure
 	}
 	
 	public RenderBuffer getBuffer() { return buffer; }
+	public int getRenderThreads() { return renderThreads; }
+	public RenderableTriangle.Rasterizer getRasterizer() { return rasterizer; }
+	public boolean isMatrices() { return matrices; }
+	public boolean isBatch() { return batch; }
+	public boolean isMicroTriangles() { return micro; }
+	public RenderBuffer.Clear getClear() { return clear; }
+	public RenderBuffer.ColorFormat getColorFormat() { return colorFormat; }
+	public RenderBuffer.DepthFormat getDepthFormat() { return depthFormat; }
+	public RenderBuffer.Layout getBufferLayout() { return layout; }
+	public RenderStats getStats() { return stats; }
+	public boolean isCulling() { return culling; }
+	public void setCulling(boolean culling) { this.culling = culling; }
+	public boolean isOcclusion() { return occlusion; }
+	
+	// Sets whether structures and faces hidden behind the depth of earlier frames are skipped
+	public void setOcclusion(boolean occlusion)
+	{
+		this.occlusion = occlusion;
+		
+		if(pyramid != null)
+			pyramid.invalidate();
+	}
 }
@@ -0,0 +1,182 @@
+/*
+ * File: DepthPyramid.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Hierarchical depth buffer used for occlusion culling. The first level stores the
+ * farthest and nearest depth of each 8x8 block of pixels, every following level
+ * halves the resolution until a single block covers the frame.
+ */
+
+public class DepthPyramid
+{
+	public static final int BLOCK_BITS = 3;		// 8x8 pixels per block of the first level
+	private static final int MAX_BLOCKS = 16;	// Largest number of blocks read by a query
+	
+	// Results of a test
+	public static final int PARTIAL = 0;		// Some pixels may be visible
+	public static final int OCCLUDED = 1;		// Every pixel is behind the stored depth
+	public static final int IN_FRONT = 2;		// Every pixel is in front of the stored depth
+	
+	private final int width;
+	private final int height;
+	private final float[][] far;				// Farthest depth of each block per level
+	private final float[][] near;				// Nearest depth of each block per level
+	private final int[] levelWidth;
+	private final int[] levelHeight;
+	private boolean valid = false;				// Whether the pyramid has been built
+	private float[] decoded;					// Linear float depths of an integer or tiled depth buffer
+	
+	public DepthPyramid(int w, int h)
+	{
+		width = w;
+		height = h;
+		
+		int levels = 1;
+		for(int bw = blocks(w), bh = blocks(h); bw > 1 || bh > 1; bw = (bw + 1) / 2, bh = (bh + 1) / 2)
+			levels++;
+		
+		far = new float[levels][];
+		near = new float[levels][];
+		levelWidth = new int[levels];
+		levelHeight = new int[levels];
+		
+		for(int l = 0; l < levels; l++)
+		{
+			levelWidth[l] = l == 0 ? blocks(w) : (levelWidth[l - 1] + 1) / 2;
+			levelHeight[l] = l == 0 ? blocks(h) : (levelHeight[l - 1] + 1) / 2;
+			far[l] = new float[levelWidth[l] * levelHeight[l]];
+			near[l] = new float[levelWidth[l] * levelHeight[l]];
+		}
+	}
+	
+	// Builds every level from the depth buffer of a package in any format and layout
+	public void build(RenderPackage pkg)
+	{
+		if(pkg.depth != null && !pkg.tiled)
+		{
+			build(pkg.depth, 1 / pkg.depthScale);
+			return;
+		}
+		
+		if(decoded == null)
+			decoded = new float[width * height];
+		
+		pkg.linearDepth(decoded);
+		build(decoded, 1 / pkg.depthScale);
+	}
+	
+	// Builds every level from a depth buffer
+	public void build(float[] depth)
+	{
+		build(depth, 1);
+	}
+	
+	// Builds every level from a depth buffer whose depths are multiplied by a scale first (see RenderBuffer)
+	public void build(float[] depth, float scale)
+	{
+		int bw = levelWidth[0];
+		float[] f0 = far[0];
+		float[] n0 = near[0];
+		
+		for(int by = 0; by < levelHeight[0]; by++)
+		{
+			int y0 = by << BLOCK_BITS;
+			int y1 = Math.min(y0 + (1 << BLOCK_BITS), height);
+			
+			for(int bx = 0; bx < bw; bx++)
+			{
+				int x0 = bx << BLOCK_BITS;
+				int x1 = Math.min(x0 + (1 << BLOCK_BITS), width);
+				float max = 0;
+				float min = Float.POSITIVE_INFINITY;
+				
+				for(int y = y0; y < y1; y++)
+					for(int i = y * width + x0, end = y * width + x1; i < end; i++)
+					{
+						float d = depth[i];
+						if(d > max) max = d;
+						if(d < min) min = d;
+					}
+				
+				f0[by * bw + bx] = max * scale;
+				n0[by * bw + bx] = min * scale;
+			}
+		}
+		
+		for(int l = 1; l < far.length; l++)
+		{
+			int pw = levelWidth[l - 1];
+			int ph = levelHeight[l - 1];
+			
+			for(int by = 0; by < levelHeight[l]; by++)
+				for(int bx = 0; bx < levelWidth[l]; bx++)
+				{
+					float max = 0;
+					float min = Float.POSITIVE_INFINITY;
+					
+					for(int y = by * 2; y < by * 2 + 2 && y < ph; y++)
+						for(int x = bx * 2; x < bx * 2 + 2 && x < pw; x++)
+						{
+							max = Math.max(max, far[l - 1][y * pw + x]);
+							min = Math.min(min, near[l - 1][y * pw + x]);
+						}
+					
+					far[l][by * levelWidth[l] + bx] = max;
+					near[l][by * levelWidth[l] + bx] = min;
+				}
+		}
+		
+		valid = true;
+	}
+	
+	// Tests a pixel rectangle [x0, x1) x [y0, y1) whose depth lies between nearest and farthest
+	public int test(int x0, int y0, int x1, int y1, float nearest, float farthest)
+	{
+		if(!valid)
+			return PARTIAL;
+		
+		x0 = Math.max(x0, 0);
+		y0 = Math.max(y0, 0);
+		x1 = Math.min(x1, width);
+		y1 = Math.min(y1, height);
+		
+		if(x0 >= x1 || y0 >= y1)
+			return PARTIAL;
+		
+		// Coarsest level where the rectangle spans few enough blocks
+		int l = 0;
+		int shift = BLOCK_BITS;
+		while(l < far.length - 1 && (((x1 - 1) >> shift) - (x0 >> shift) + 1) * (((y1 - 1) >> shift) - (y0 >> shift) + 1) > MAX_BLOCKS)
+		{
+			l++;
+			shift++;
+		}
+		
+		int lw = levelWidth[l];
+		boolean occluded = true;
+		boolean inFront = true;
+		
+		for(int by = y0 >> shift; by <= (y1 - 1) >> shift; by++)
+			for(int bx = x0 >> shift; bx <= (x1 - 1) >> shift; bx++)
+			{
+				// A pixel is drawn if its stored depth is greater
+				occluded &= far[l][by * lw + bx] <= nearest;
+				inFront &= near[l][by * lw + bx] > farthest;
+				
+				if(!occluded && !inFront)
+					return PARTIAL;
+			}
+		
+		return occluded ? OCCLUDED : IN_FRONT;
+	}
+	
+	// Forgets the stored depth (nothing is occluded until the next build)
+	public void invalidate() { valid = false; }
+	public boolean isValid() { return valid; }
+	
+	private static int blocks(int pixels)
+	{
+		return (pixels + (1 << BLOCK_BITS) - 1) >> BLOCK_BITS;
+	}
+}
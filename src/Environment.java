@@ -16,9 +16,28 @@ public class Environment
 	private LinkedList<Camera> cameras = new LinkedList<Camera>();			// List of available cameras
 	private Camera mainCamera;						// The main camera used for rendering
 	private boolean finalized = false;				// Whether the environment has been finalized
+	private RenderList renderList = new RenderList();	// The structures flattened for rendering
+	private boolean compiled = true;				// Whether frames are rendered from the render list (false walks the hierarchy)
 	
 	// Adds a structure to the environment
-	public void addStructure(Structure m) {structures.add(m);}
+	public void addStructure(Structure m)
+	{
+		structures.add(m);
+		
+		// Added after finalization, it is finalized and compiled on its own
+		if(finalized)
+		{
+			m.finalizeRender();
+			renderList.add(m);
+		}
+	}
+	
+	// Removes a structure from the environment
+	public void removeStructure(Structure m)
+	{
+		structures.remove(m);
+		renderList.remove(m);
+	}
 	
 	// Adds a camera (viewport) to the system
 	public void addCamera(Camera cam)
@@ -33,6 +52,8 @@ public class Environment
 		for(Structure s : structures)
 			s.finalizeRender();
 		
+		renderList.compile(structures);
+		
 		// Select rendering source
 		mainCamera = cameras.getFirst();
 		finalized = true;
@@ -45,8 +66,17 @@ public class Environment
 			finalizeRender();
 		
 		mainCamera.graphics = g;
-		mainCamera.project(structures);
+		if(compiled)
+			mainCamera.project(renderList);
+		else
+			mainCamera.project(structures);
 		
 		return mainCamera.generateRender();
 	}
+	
+	// Returns the main camera (null until the environment is finalized)
+	public Camera getCamera() { return mainCamera; }
+	public RenderList getRenderList() { return renderList; }
+	public boolean isCompiled() { return compiled; }
+	public void setCompiled(boolean compiled) { this.compiled = compiled; }
 }
@@ -10,14 +10,13 @@ public class Face extends Renderable
 {
 	private static int numFace = 0;				// The total number of faces created
 	
-	private RenderableTriangle render_tri;
-	private float[][] pixelData;				// Intermediate pixel data (do not set)
-	private float[][] unit_proj;
+	private RenderableTriangle render_tri;		// Fills the pixels with the material (not changed while rendering)
+	private float[][] pixelData;				// Texture coordinates of the vertices (the rest is drawn in the render package)
 	
 	private BodyGroup root;						// The body group this face is part of
 	private Vertex[] vertices;					// The three vertices that make up the face
 	private float[] normal;						// The normal of the face
-	private float[] unit_nrm;					// The unit vector of the normal
+	private float[] unit_nrm;					// The unit vector of the normal (used for lighting)
 	private int[] face;							// The parameters of the face
 	private int id;								// The face's id
 	private byte numVertex = 0;					// The number of vertices added to the face
@@ -34,7 +33,6 @@ public class Face extends Renderable
 		face = f;
 		numFace++;
 		vertices = new Vertex[3];
-		unit_proj = new float[3][3];
 		pixelData = new float[3][6];
 		render_tri = new RenderableTriangle(root.material, vertices, pixelData);
 	}
@@ -57,29 +55,84 @@ public class Face extends Renderable
 			numVertex++;
 		}
 	}
-
+	
+	// Binds the face to the transformed vertices of its body group (offsets of its three vertices in the cache)
+	void bind(int o1, int o2, int o3)
+	{
+		render_tri.p1 = o1;
+		render_tri.p2 = o2;
+		render_tri.p3 = o3;
+	}
+	
 	@Override
-	// Renders the face to the display
-	public void render() 
+	// Renders the face to the display, the vertices are transformed into the cache of the body group being drawn
+	// Faces are shared by the instances of a model, so the face is drawn through the triangle of the render package
+	public void render(RenderPackage context) 
 	{
-		// Updates vertices
-		render_tri.projections[0] = vertices[0].transformation.propagatePosition(binded.transform);
-		render_tri.projections[1] = vertices[1].transformation.propagatePosition(binded.transform);
-		render_tri.projections[2] = vertices[2].transformation.propagatePosition(binded.transform);
+		VertexCache cache = context.vertices;
 		
-		Plane.setNormal(unit_nrm, vertices[0].vertex, vertices[1].vertex, vertices[2].vertex);
-		Line.unit(unit_nrm, normal);
-		Line.unit(unit_proj[0], render_tri.projections[0]);
-		Line.unit(unit_proj[1], render_tri.projections[1]);
-		Line.unit(unit_proj[2], render_tri.projections[2]);
+		if(isCulled(context, cache.positions))
+			return;
 		
-		pixelData[0][5] = 0.5f - Line.dot(unit_proj[0], unit_nrm) * 0.5f;
-		pixelData[1][5] = 0.5f - Line.dot(unit_proj[1], unit_nrm) * 0.5f;
-		pixelData[2][5] = 0.5f - Line.dot(unit_proj[2], unit_nrm) * 0.5f;
+		long start = context.stats.start();
+		RenderableTriangle tri = context.triangle;
+		float[] dir = cache.directions;
+		int o1 = render_tri.p1;
+		int o2 = render_tri.p2;
+		int o3 = render_tri.p3;
 		
-		// Update material
-		render_tri.material = root.material;
-		binded.camera.render(render_tri);
+		tri.source = render_tri;
+		tri.positions = cache.positions;
+		tri.projected = cache.projected;
+		tri.p1 = o1;
+		tri.p2 = o2;
+		tri.p3 = o3;
+		
+		tri.v1[3] = pixelData[0][3];
+		tri.v1[4] = pixelData[0][4];
+		tri.v2[3] = pixelData[1][3];
+		tri.v2[4] = pixelData[1][4];
+		tri.v3[3] = pixelData[2][3];
+		tri.v3[4] = pixelData[2][4];
+		
+		tri.v1[5] = 0.5f - (dir[o1]*unit_nrm[0] + dir[o1 + 1]*unit_nrm[1] + dir[o1 + 2]*unit_nrm[2]) * 0.5f;
+		tri.v2[5] = 0.5f - (dir[o2]*unit_nrm[0] + dir[o2 + 1]*unit_nrm[1] + dir[o2 + 2]*unit_nrm[2]) * 0.5f;
+		tri.v3[5] = 0.5f - (dir[o3]*unit_nrm[0] + dir[o3 + 1]*unit_nrm[1] + dir[o3 + 2]*unit_nrm[2]) * 0.5f;
+		
+		context.stats.stop(RenderStats.Stage.PROJECT, start);
+		context.camera.render(tri, context);
+	}
+	
+	// Tests the winding of the projected vertices against the culling of the body group, the camera is the origin
+	private boolean isCulled(RenderPackage context, float[] positions)
+	{
+		if(!isCulled(root.getCullMode(), positions, render_tri.p1, render_tri.p2, render_tri.p3))
+			return false;
+		
+		context.stats.count(RenderStats.Counter.BACKFACES_CULLED, 1);
+		return true;
+	}
+	
+	// Tests the winding of a triangle of packed positions (offsets o0, o1, o2) against a culling mode
+	// The normal is the cross product of the transformed positions, not the normal cached by finalizeRender. The scale
+	// of a structure is per axis and can be negative, so the cached normal would need the inverse transpose of every
+	// body group's transformation, which costs as much as the cross product and is not exact.
+	static boolean isCulled(Material.CullMode mode, float[] p, int o0, int o1, int o2)
+	{
+		if(mode == Material.CullMode.NONE)
+			return false;
+		
+		float v1_x = p[o1] - p[o0];
+		float v1_y = p[o1 + 1] - p[o0 + 1];
+		float v1_z = p[o1 + 2] - p[o0 + 2];
+		float v2_x = p[o2] - p[o0];
+		float v2_y = p[o2 + 1] - p[o0 + 1];
+		float v2_z = p[o2 + 2] - p[o0 + 2];
+		
+		// Normal of the projected face dotted with the direction to the face (positive when facing away)
+		float facing = (v1_y*v2_z - v1_z*v2_y) * p[o0] + (v1_z*v2_x - v1_x*v2_z) * p[o0 + 1] + (v1_x*v2_y - v1_y*v2_x) * p[o0 + 2];
+		
+		return !(mode == Material.CullMode.BACK ? facing < 0 : facing > 0);
 	}
 	
 	@Override
@@ -91,6 +144,7 @@ public class Face extends Renderable
 		
 		normal = Plane.getNormal(vertices[0].vertex, vertices[1].vertex, vertices[2].vertex);
 		unit_nrm = new float[3];
+		Line.unit(unit_nrm, normal);
 		
 		// Set texture data
 		for(int i = 0; i < 3; i++)
@@ -111,6 +165,7 @@ public class Face extends Renderable
 		pixelData[2][3] = textureData[4];
 		pixelData[2][4] = textureData[5];
 		
+		render_tri.material = root.material;
 		render_tri.finalizeRender();
 	}
 	
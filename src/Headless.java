@@ -0,0 +1,138 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/*
+ * File: Headless.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Offscreen entry point which renders an environment into the camera's buffer
+ * without creating any windows, used on servers and for automated runs.
+ * Usage: Headless <folder> <obj file> [width] [height] [frames] [capture frames] [output folder] [threads]
+ *   capture frames is a comma separated list of frame numbers written as png
+ *   run with -Dengine.stats=true to print the per stage frame times and counters
+ *   run with -Dengine.rasterizer=edge to fill triangles with the fixed point edge rasterizer
+ *   run with -Dengine.matrices=true to transform vertices by composed 3x4 matrices
+ *   run with -Dengine.batch=true to project each vertex once in batches instead of per triangle
+ *     (in lanes of the Vector API with --add-modules jdk.incubator.vector, -Dengine.vector=false keeps the scalar loops)
+ *   run with -Dengine.micro=false to draw triangles covering a single sample through the full setup
+ *   run with -Dengine.clear=full|dirty|epoch to pick how the buffer is cleared for each frame
+ *   run with -Dengine.color=rgb565 and -Dengine.depth=int16|int24 to draw into compact buffers
+ *   run with -Dengine.layout=tiled to store the buffers in 8x8 Morton ordered tiles
+ *   run with -Dengine.texture=tiled4|tiled8 to store the textures in 4x4 or 8x8 tiles of texels
+ *   run with -Dengine.mipmaps=true to generate mip chains and sample minified triangles from their mip level
+ *   run with -Dengine.cull=back|front to skip the faces of every material facing away from (or towards) the camera
+ *   run with -Dengine.packed=true to load the model as a PackedMesh (flat arrays instead of faces and vertices)
+ */
+
+public class Headless
+{
+	private Environment env = new Environment();	// Engine environment
+	private Camera camera;							// Camera rendering the frames
+	private boolean started = false;				// Whether the camera has been added and finalized
+	private int frame = 0;							// Number of rendered frames
+	
+	public Headless(int width, int height)
+	{
+		camera = new OrthographicCamera(1.5f, 1.0f, 10.0f, width, height);
+	}
+	
+	public static void main(String[] arg)
+	{
+		System.setProperty("java.awt.headless", "true");
+		
+		if(arg.length < 2)
+		{
+			System.out.println("Usage: Headless <folder> <obj file> [width] [height] [frames] [capture frames] [output folder] [threads]");
+			return;
+		}
+		
+		int width = arg.length > 2 ? Integer.parseInt(arg[2]) : 1280;
+		int height = arg.length > 3 ? Integer.parseInt(arg[3]) : 720;
+		int frames = arg.length > 4 ? Integer.parseInt(arg[4]) : 100;
+		String captures = "," + (arg.length > 5 ? arg[5] : "") + ",";
+		String output = arg.length > 6 ? arg[6] : ".";
+		int threads = arg.length > 7 ? Integer.parseInt(arg[7]) : 0;
+		
+		Headless headless = new Headless(width, height);
+		headless.getCamera().setRenderThreads(threads);
+		headless.getCamera().getStats().setEnabled(Boolean.getBoolean("engine.stats"));
+		headless.getCamera().setRasterizer(RenderableTriangle.Rasterizer.valueOf(System.getProperty("engine.rasterizer", "scanline").toUpperCase()));
+		headless.getCamera().setMatrices(Boolean.getBoolean("engine.matrices"));
+		headless.getCamera().setBatch(Boolean.getBoolean("engine.batch"));
+		BatchKernels.setVector(Boolean.parseBoolean(System.getProperty("engine.vector", "true")));
+		headless.getCamera().setMicroTriangles(Boolean.parseBoolean(System.getProperty("engine.micro", "true")));
+		headless.getCamera().setClear(RenderBuffer.Clear.valueOf(System.getProperty("engine.clear", "dirty").toUpperCase()));
+		headless.getCamera().setBufferFormat(RenderBuffer.ColorFormat.valueOf(System.getProperty("engine.color", "argb").toUpperCase()),
+				RenderBuffer.DepthFormat.valueOf(System.getProperty("engine.depth", "float").toUpperCase()));
+		headless.getCamera().setBufferLayout(RenderBuffer.Layout.valueOf(System.getProperty("engine.layout", "linear").toUpperCase()));
+		Material.setDefaultTextureLayout(Material.TextureLayout.valueOf(System.getProperty("engine.texture", "linear").toUpperCase()));
+		Material.setDefaultMipmaps(Boolean.getBoolean("engine.mipmaps"));
+		Material.setDefaultCullMode(Material.CullMode.valueOf(System.getProperty("engine.cull", "none").toUpperCase()));
+		
+		Structure model = Boolean.getBoolean("engine.packed") ? PackedMesh.load(arg[0], arg[1]) : AssetPack.loadModel(arg[0], arg[1]);
+		model.transform[Structure.POS_X] = 100;
+		headless.addStructure(model);
+		
+		long start = System.nanoTime();
+		
+		for(int f = 0; f < frames; f++)
+		{
+			model.transform[Structure.ROT_Z] += 0.05f;
+			headless.renderFrame();
+			
+			if(captures.contains("," + f + ","))
+			{
+				String file = output + File.separator + "frame_" + f + ".png";
+				
+				try {
+					headless.writeFrame(file);
+					System.out.println("CAPTURED: " + file);
+				}
+				catch (IOException e) { Application.throwError("ERROR - FAILED TO WRITE FRAME: " + file, e); }
+			}
+		}
+		
+		double ms = (System.nanoTime() - start) / 1e6;
+		System.out.printf("%d frames at %dx%d in %.1f ms (%.2f ms per frame)%n", frames, width, height, ms, ms / frames);
+		
+		if(headless.getCamera().getStats().isEnabled())
+			System.out.print(headless.getCamera().getStats().snapshot());
+	}
+	
+	// Adds a structure to the environment (must be done before the first frame)
+	public void addStructure(Structure s)
+	{
+		if(started)
+			Application.throwError("ERROR - STRUCTURES MUST BE ADDED BEFORE RENDERING", s);
+		
+		env.addStructure(s);
+	}
+	
+	// Renders the next frame into the camera's buffer
+	public BufferedImage renderFrame()
+	{
+		if(!started)
+		{
+			env.addCamera(camera);
+			env.finalizeRender();
+			started = true;
+		}
+		
+		frame++;
+		return env.drawEnvironment(null);
+	}
+	
+	// Writes the last rendered frame to a png file
+	public void writeFrame(String file) throws IOException
+	{
+		ImageIO.write(camera.generateRender(), "png", new File(file));
+	}
+	
+	public Environment getEnvironment() { return env; }
+	public Camera getCamera() { return camera; }
+	public int getFrameCount() { return frame; }
+}
@@ -0,0 +1,111 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * File: LatencyHistogram.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Lock-free log-linear histogram of durations in nanoseconds (in the style of an HDR histogram).
+ * Values below 64 are exact, larger values fall in buckets of 32 steps per power of two,
+ * which keeps every recorded value within ~3% of its bucket.
+ */
+
+public class LatencyHistogram
+{
+	private static final int SUB_BITS = 5;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT + SUB_COUNT;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	
+	// Records a duration
+	public void record(long value)
+	{
+		counts.incrementAndGet(index(value < 0 ? 0 : value));
+	}
+	
+	// Copies the current counts (can be taken while other threads record)
+	public long[] snapshot()
+	{
+		long[] copy = new long[BUCKETS];
+		for(int i = 0; i < BUCKETS; i++)
+			copy[i] = counts.get(i);
+		return copy;
+	}
+	
+	// Resets all counts
+	public void reset()
+	{
+		for(int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+	}
+	
+	// Returns the value at a percentile (0 - 100) of a snapshot
+	public static long percentile(long[] snapshot, double percentile)
+	{
+		long total = 0;
+		for(long c : snapshot)
+			total += c;
+		
+		if(total == 0)
+			return 0;
+		
+		long target = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		
+		for(int i = 0; i < snapshot.length; i++)
+		{
+			seen += snapshot[i];
+			if(seen >= target && snapshot[i] > 0)
+				return highestValue(i);
+		}
+		
+		return highestValue(snapshot.length - 1);
+	}
+	
+	// Returns the mean of a snapshot (using the middle of each bucket)
+	public static double mean(long[] snapshot)
+	{
+		long total = 0;
+		double sum = 0;
+		
+		for(int i = 0; i < snapshot.length; i++)
+			if(snapshot[i] > 0)
+			{
+				total += snapshot[i];
+				sum += snapshot[i] * (lowestValue(i) + highestValue(i)) / 2.0;
+			}
+		
+		return total == 0 ? 0 : sum / total;
+	}
+	
+	// Bucket of a value
+	static int index(long value)
+	{
+		if(value < SUB_COUNT * 2)
+			return (int) value;
+		
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		return (shift << SUB_BITS) + (int)(value >>> shift);
+	}
+	
+	// Lowest value which falls in a bucket
+	static long lowestValue(int index)
+	{
+		if(index < SUB_COUNT * 2)
+			return index;
+		
+		int shift = (index >> SUB_BITS) - 1;
+		return (long)(index - (shift << SUB_BITS)) << shift;
+	}
+	
+	// Highest value which falls in a bucket
+	static long highestValue(int index)
+	{
+		if(index < SUB_COUNT * 2)
+			return index;
+		
+		int shift = (index >> SUB_BITS) - 1;
+		return lowestValue(index) + (1L << shift) - 1;
+	}
+}
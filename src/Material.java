@@ -2,31 +2,60 @@ import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import javax.imageio.ImageIO;
 
 /*
  * File: Material.java
  * Author: Sean Rannie
- * Last Edited: September/12/2019
+ * Last Edited: October/18/2026
  * 
  * Material object which paints faces of a model
+ * Textures are stored as one ARGB int per texel (the sampler unpacks the channels),
+ * optionally in 4x4 or 8x8 tiles of texels so that the texels sampled by nearby
+ * pixels share cache lines whichever way the texture is walked. Texel (u, v) of a
+ * tiled texture is at ((v >> k) * (width >> k) + (u >> k)) * T * T + (v & m) * T + (u & m)
+ * for tiles of T = 2^k texels (m = T - 1).
+ * With mipmaps each level halves the level above (a 2x2 box filter, rows of a level
+ * are filtered in parallel) down to a single texel, which adds a third to the texels.
+ * Triangles pick the level whose texels are nearest to one per pixel (see
+ * RenderableTriangle.REC_RHO).
  */
 
 public class Material 
 {
+	private static final int MIP_CHUNK = 16384;	// Texels of a mip level filtered by each task
+	
+	private static TextureLayout defaultLayout = TextureLayout.LINEAR;	// Layout of the textures set from now on (before DEFAULT_MAT)
+	private static boolean defaultMipmaps = false;	// Whether the textures set from now on have mipmaps
+	private static CullMode defaultCull = CullMode.NONE;	// Faces culled by the materials created from now on
 	public static final Material DEFAULT_MAT = new Material("default");
 	
 	public enum MtlCommand { NONE, Kd, Ka, Ks, Ke, Ns, Ni, Tr, TYPE, FILE }; // Commands that can be read in MTL file
 	public enum MaterialType { NONE, ILLUM2 };						 // Material types that can be read
+	public enum CullMode { BACK, FRONT, NONE };						 // Faces which are skipped (NONE for double-sided geometry)
+	
+	// Order of the texels of a texture, tiled layouts are tiles of 2^bits by 2^bits texels
+	public enum TextureLayout
+	{
+		LINEAR(0), TILED4(2), TILED8(3);
+		
+		final int bits;
+		
+		private TextureLayout(int bits) { this.bits = bits; }
+	}
 	
-	private short[] r_image;
-	private short[] g_image;
-	private short[] b_image;
-	private int[] image;					// Image data of texture
+	private int[] image;					// ARGB texels of texture (in tiles unless levelTiles[0] is 0)
+	private int[][] levels;					// Texels of each mip level, the first is the image (the only one without mipmaps)
+	private TextureLayout layout = defaultLayout;	// Requested layout of the texels
+	private boolean mipmaps = defaultMipmaps;	// Whether a mip chain is generated
+	int[] levelTiles;						// Bits of the width of the texel tiles of each level (0 when the texels are linear)
 	private String file = "...";			// File name
 	
 	MaterialType type = MaterialType.NONE;	// Material type
+	CullMode cull = defaultCull;			// Faces which are culled
 	float[] Kd = new float[3];				// Ambient texture vector
 	float[] Ka = new float[3];				// Diffuse texture vector
 	float[] Ks = new float[3];				// Specular color texture vector
@@ -47,11 +76,9 @@ public class Material
 		bin_width = BinarySize.x1;
 		bin_height = BinarySize.x1;
 		image = new int[width * height];
-		r_image = new short[width * height];
-		g_image = new short[width * height];
-		b_image = new short[width * height];
 		image[0] = 0x0000FF;
-		r_image[0] = 0xFF;
+		levels = new int[][] {image};
+		levelTiles = new int[1];
 	}
 	
 	public Material(BufferedReader reader, String folder, String nm) throws IOException
@@ -62,40 +89,202 @@ public class Material
 		readMTLFile(reader, folder);
 	}
 	
-	public short[] getRedChannel(){return r_image;}
-	public short[] getGreenChannel(){return g_image;}
-	public short[] getBlueChannel(){return b_image;}
-	public int[] getTexture(){return image;}
+	public int[] getTexels(){return image;}
+	public int[][] getLevels(){return levels;}
 	public int getWidth() {return width;}
 	public int getHeight() {return height;}
+	public TextureLayout getTextureLayout() { return layout; }
+	public boolean isMipmaps() { return mipmaps; }
+	
+	// Returns the bytes held by the texels of every level
+	public long getTextureBytes()
+	{
+		long bytes = 0;
+		for(int[] level : levels)
+			bytes += level.length * 4L;
+		return bytes;
+	}
+	
+	// Returns the texels in rows (a copy when the texels are tiled)
+	public int[] getTexture()
+	{
+		if(levelTiles[0] == 0)
+			return image;
+		
+		int[] texels = new int[image.length];
+		for(int v = 0, i = 0; v < height; v++)
+			for(int u = 0; u < width; u++, i++)
+				texels[i] = image[texelIndex(u, v)];
+		return texels;
+	}
+	
+	// Sets the layout of the textures set from now on (the texels of existing materials are not moved)
+	public static void setDefaultTextureLayout(TextureLayout layout) { defaultLayout = layout; }
+	
+	// Moves the texels into a layout, triangles finalized before keep sampling the old texels
+	public void setTextureLayout(TextureLayout layout)
+	{
+		int[] texels = getTexture();
+		this.layout = layout;
+		setImage(texels, width, height);
+	}
+	
+	// Sets the faces culled by the materials created from now on (NONE by default, existing materials are not changed)
+	public static void setDefaultCullMode(CullMode mode) { defaultCull = mode; }
+	
+	// Sets whether the textures set from now on have mipmaps (existing materials are not changed)
+	public static void setDefaultMipmaps(boolean mipmaps) { defaultMipmaps = mipmaps; }
+	
+	// Generates or drops the mip chain, triangles finalized before keep sampling the old levels
+	public void setMipmaps(boolean mipmaps)
+	{
+		int[] texels = getTexture();
+		this.mipmaps = mipmaps;
+		setImage(texels, width, height);
+	}
+	
+	// Returns the mip level of a triangle from its squared texels per pixel, the level nearest to one texel per pixel
+	// (log2 of the texels per pixel, rounded) within the levels of the texture
+	static int mipLevel(float rho2, int levels)
+	{
+		int level = Math.getExponent(rho2 * 2) >> 1;
+		return level < 0 ? 0 : level < levels ? level : levels - 1;
+	}
+	
+	// Returns the index of texel (u, v) within the texture (u and v are within the texture)
+	int texelIndex(int u, int v)
+	{
+		return texelIndex(u, v, levelTiles[0], bin_width.bits);
+	}
+	
+	// Returns the index of texel (u, v) within tiles of 2^k texels of a texture 2^w texels wide (rows when k is 0)
+	static int texelIndex(int u, int v, int k, int w)
+	{
+		int m = (1 << k) - 1;
+		return ((v >> k) << (w + k)) | ((u >> k) << (k << 1)) | ((v & m) << k) | (u & m);
+	}
+	
+	// Loads the texture image of the material
+	void loadTexture(String file)
+	{
+		this.file = file;
+		readImage(file);
+	}
+	
+	// Sets the material to a single opaque color (used when no texture is given)
+	void setColor(float[] color)
+	{
+		int r = (int)(color[0] * 0xFF) & 0xFF;
+		int g = (int)(color[1] * 0xFF) & 0xFF;
+		int b = (int)(color[2] * 0xFF) & 0xFF;
+		
+		width = 1;
+		height = 1;
+		bin_width = BinarySize.x1;
+		bin_height = BinarySize.x1;
+		image = new int[] {0xFF000000 | (r << 16) | (g << 8) | b};
+		levels = new int[][] {image};
+		levelTiles = new int[1];
+	}
 	
 	// Reads image from filename and returns it as an array
 	private void readImage(String file)
 	{
 		try {
 			BufferedImage src_image = ImageIO.read(new File(file));
-			image = new int[src_image.getWidth() *  src_image.getHeight()];
-			r_image = new short[src_image.getWidth() *  src_image.getHeight()];
-			g_image = new short[src_image.getWidth() *  src_image.getHeight()];
-			b_image = new short[src_image.getWidth() *  src_image.getHeight()];
+			int w = src_image.getWidth();
+			int h = src_image.getHeight();
+			setImage(src_image.getRGB(0, 0, w, h, null, 0, w), w, h);
+		} catch (IOException e) { Application.throwError("ERROR - FAILED TO LOAD TEXTURE: " + file, this);}
+	}
+	
+	// Sets the decoded ARGB texels of the texture (in rows) and generates the mip chain, the levels are moved into tiles
+	// when the layout is tiled and the level holds at least one tile
+	void setImage(int[] texels, int w, int h)
+	{
+		width = w;
+		height = h;
+		bin_width = BinarySize.match(width);
+		bin_height = BinarySize.match(height);
+		
+		int count = mipmaps ? Math.max(bin_width.bits, bin_height.bits) + 1 : 1;
+		levels = new int[count][];
+		levelTiles = new int[count];
+		int[] level = texels;
+		
+		for(int l = 0; l < count; l++)
+		{
+			int wBits = Math.max(bin_width.bits - l, 0);
+			int hBits = Math.max(bin_height.bits - l, 0);
 			
-			for(int x = 0; x <  src_image.getWidth(); x++)
-				for(int y = 0; y <  src_image.getHeight(); y++)
-				{
-					int index = x + y *  src_image.getWidth();
-					image[index] =  src_image.getRGB(x, y);
-					r_image[index] = (short) ((0xFF0000 & src_image.getRGB(x, y)) >> 16);
-					g_image[index] = (short) ((0xFF00 & src_image.getRGB(x, y)) >> 8);
-					b_image[index] = (short) (0xFF & src_image.getRGB(x, y));
-				}
+			if(l > 0)
+				level = downsample(level, Math.max(bin_width.bits - l + 1, 0), Math.max(bin_height.bits - l + 1, 0));
 			
-			width =  src_image.getWidth();
-			height =  src_image.getHeight();
-			bin_width = BinarySize.match(width);
-			bin_height = BinarySize.match(height);
-		} catch (IOException e) { Application.throwError("ERROR - FAILED TO LOAD TEXTURE: " + file, this);}
+			levelTiles[l] = Math.min(wBits, hBits) >= layout.bits ? layout.bits : 0;
+			levels[l] = tile(level, wBits, hBits, levelTiles[l]);
+		}
+		
+		image = levels[0];
 	}
 	
+	// Moves texels in rows into tiles of 2^k texels (returns the texels when k is 0)
+	private static int[] tile(int[] texels, int wBits, int hBits, int k)
+	{
+		if(k == 0)
+			return texels;
+		
+		int[] tiled = new int[texels.length];
+		for(int v = 0, i = 0; v < 1 << hBits; v++)
+			for(int u = 0; u < 1 << wBits; u++, i++)
+				tiled[texelIndex(u, v, k, wBits)] = texels[i];
+		return tiled;
+	}
+	
+	// Returns the next mip level of a level in rows (2^wBits by 2^hBits texels), large levels are filtered in parallel
+	private static int[] downsample(int[] texels, int wBits, int hBits)
+	{
+		int w = Math.max(1 << wBits >> 1, 1);
+		int h = Math.max(1 << hBits >> 1, 1);
+		int[] next = new int[w * h];
+		
+		if(next.length <= MIP_CHUNK)
+			downsample(texels, wBits, hBits, next, 0, h);
+		else
+			ForkJoinPool.commonPool().invoke(new MipTask(texels, wBits, hBits, next, 0, h));
+		
+		return next;
+	}
+	
+	// Writes the rows [from, to) of the next mip level, each texel averages the channels of a 2x2 block (a 2x1 or 1x2
+	// block once a side is a single texel)
+	private static void downsample(int[] texels, int wBits, int hBits, int[] next, int from, int to)
+	{
+		int w = 1 << wBits;
+		int nw = Math.max(w >> 1, 1);
+		int dx = w > 1 ? 1 : 0;
+		int dy = hBits > 0 ? w : 0;
+		
+		for(int v = from; v < to; v++)
+			for(int u = 0, i = v * nw; u < nw; u++, i++)
+			{
+				int t = (v * w + u) << 1;
+				int a = texels[t], b = texels[t + dx], c = texels[t + dy], d = texels[t + dy + dx];
+				next[i] = average(a, b, c, d, 24) | average(a, b, c, d, 16) | average(a, b, c, d, 8) | average(a, b, c, d, 0);
+			}
+	}
+	
+	// Rounded average of the 8 bit channel at a shift of four texels
+	private static int average(int a, int b, int c, int d, int shift)
+	{
+		int sum = ((a >>> shift) & 0xFF) + ((b >>> shift) & 0xFF) + ((c >>> shift) & 0xFF) + ((d >>> shift) & 0xFF);
+		return ((sum + 2) >> 2) << shift;
+	}
+	
+	public String getFile() { return file; }
+	public CullMode getCullMode() { return cull; }
+	public void setCullMode(CullMode mode) { cull = mode; }
+	void setFile(String file) { this.file = file; }
+	
 	// Reads an exert from a .mtl file (TODO: reader must already be opened in instance)
 	private void readMTLFile(BufferedReader reader, String folder) throws IOException
 	{
@@ -182,6 +371,42 @@ public class Material
 		}
 	}
 	
+	// Splits the rows of a mip level across the common pool
+	private static class MipTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] texels;
+		private final int wBits;
+		private final int hBits;
+		private final int[] next;
+		private final int start;
+		private final int end;
+		
+		MipTask(int[] texels, int wBits, int hBits, int[] next, int start, int end)
+		{
+			this.texels = texels;
+			this.wBits = wBits;
+			this.hBits = hBits;
+			this.next = next;
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if((long)(end - start) * Math.max(1 << wBits >> 1, 1) <= MIP_CHUNK || end - start == 1)
+			{
+				downsample(texels, wBits, hBits, next, start, end);
+				return;
+			}
+			
+			int mid = (start + end) >>> 1;
+			invokeAll(new MipTask(texels, wBits, hBits, next, start, mid), new MipTask(texels, wBits, hBits, next, mid, end));
+		}
+	}
+	
 	// Print function
 	public void print()
 	{
@@ -3,8 +3,10 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 
 /*
  * File: Model.java
@@ -18,6 +20,27 @@ public class Model extends Structure
 {
 	public enum ObjCommand { NONE, VERTEX_COORDINATE, TEXTURE_COORDINATE, NORMAL, FACE, MTLLIB, USEMTL, BODYGROUP, G, COMMENT}
 	
+	// Keywords matched by the byte parser
+	private static final byte[] KEY_V = {'v'};
+	private static final byte[] KEY_VT = {'v', 't'};
+	private static final byte[] KEY_VN = {'v', 'n'};
+	private static final byte[] KEY_F = {'f'};
+	private static final byte[] KEY_G = {'g'};
+	private static final byte[] KEY_MTLLIB = {'m', 't', 'l', 'l', 'i', 'b'};
+	private static final byte[] KEY_USEMTL = {'u', 's', 'e', 'm', 't', 'l'};
+	private static final byte[] KEY_COMMENT = {'#'};
+	private static final byte[] KEY_NEWMTL = {'n', 'e', 'w', 'm', 't', 'l'};
+	private static final byte[] KEY_KA = {'K', 'a'};
+	private static final byte[] KEY_KD = {'K', 'd'};
+	private static final byte[] KEY_KS = {'K', 's'};
+	private static final byte[] KEY_KE = {'K', 'e'};
+	private static final byte[] KEY_NS = {'N', 's'};
+	private static final byte[] KEY_NI = {'N', 'i'};
+	private static final byte[] KEY_D = {'d'};
+	private static final byte[] KEY_TR = {'T', 'r'};
+	private static final byte[] KEY_ILLUM = {'i', 'l', 'l', 'u', 'm'};
+	private static final byte[] KEY_MAP_KD = {'m', 'a', 'p', '_', 'K', 'd'};
+	
 	String filename;			// Filename of model object
 	String folder;				// Directory the model object is located in
 	String materialFile;		// Material file (MTL) associated with model
@@ -25,8 +48,24 @@ public class Model extends Structure
 	private LinkedList<Material> materials = new LinkedList<Material>();	// List of materials in model
 	private boolean hasTextures;	// Whether the model is using a texture (in obj)
 	private boolean hasNormals;		// Whether the model is using normals (in obj)
+	private boolean finalized = false;	// Whether the faces have been finalized
 	
 	public Model(String folder, String file)
+	{
+		this(folder, file, false);
+	}
+	
+	// Creates an empty model which is filled in by a loader (see AssetPack)
+	Model(String folder, String file, List<Material> mats)
+	{
+		super(file);
+		this.folder = folder;
+		filename = file;
+		materials.addAll(mats);
+	}
+	
+	// Loads a model, optionally with the original String based parser (kept for comparison)
+	public Model(String folder, String file, boolean textParser)
 	{
 		super(file);
 		this.folder = folder;
@@ -34,15 +73,221 @@ public class Model extends Structure
 		hasTextures = false;
 		hasNormals = false;
 		
-		readObjFile(name);
+		if(textParser)
+			readObjText(name);
+		else
+			readObjFile(name);
 	}
 	
-	// Loads an .obj model file
+	// Loads an .obj model file by parsing the mapped bytes of the file
 	private void readObjFile(String filein)
 	{
 		try {
 			System.out.println("OPENING: " + filein);
 			
+			ObjScanner in = new ObjScanner(folder + filein);
+			float[] positions = new float[3 * 1024];
+			float[] textures = new float[2 * 1024];
+			float[] normals = new float[3 * 1024];
+			Vertex[] vertices = new Vertex[1024];		// Vertices are created when a face first uses them
+			float[][] textureRefs = new float[1024][];
+			float[][] normalRefs = new float[1024][];
+			int[] corners = new int[3 * 4];				// v, vt, vn index of each corner in the current polygon
+			int numVertices = 0;
+			int numTextures = 0;
+			int numNormals = 0;
+			BodyGroup group = null;
+			filename = filein;
+			
+			while(in.hasNext())
+			{
+				switch(objReturnLineHead(in))
+				{
+				case VERTEX_COORDINATE:
+					if(numVertices == vertices.length)
+					{
+						positions = Arrays.copyOf(positions, positions.length * 2);
+						vertices = Arrays.copyOf(vertices, vertices.length * 2);
+					}
+					
+					positions[numVertices * 3] = in.nextFloat();
+					positions[numVertices * 3 + 1] = in.nextFloat();
+					positions[numVertices * 3 + 2] = in.nextFloat();
+					numVertices++;
+					break;
+					
+				case TEXTURE_COORDINATE:
+					if(numTextures == textureRefs.length)
+					{
+						textures = Arrays.copyOf(textures, textures.length * 2);
+						textureRefs = Arrays.copyOf(textureRefs, textureRefs.length * 2);
+					}
+					
+					textures[numTextures * 2] = in.nextFloat();
+					textures[numTextures * 2 + 1] = in.nextFloat();
+					numTextures++;
+					hasTextures = true;
+					break;
+					
+				case NORMAL:
+					if(numNormals == normalRefs.length)
+					{
+						normals = Arrays.copyOf(normals, normals.length * 2);
+						normalRefs = Arrays.copyOf(normalRefs, normalRefs.length * 2);
+					}
+					
+					normals[numNormals * 3] = in.nextFloat();
+					normals[numNormals * 3 + 1] = in.nextFloat();
+					normals[numNormals * 3 + 2] = in.nextFloat();
+					numNormals++;
+					hasNormals = true;
+					break;
+					
+				case BODYGROUP:
+					if(group != null)
+						children.add(group);
+					
+					group = new BodyGroup(in.readLine());
+					break;
+					
+				case FACE:
+					int n = 0;
+					
+					// Read every corner (v, v/vt, v//vn or v/vt/vn), indices are resolved to zero based
+					while(!in.atLineEnd())
+					{
+						if(n * 3 == corners.length)
+							corners = Arrays.copyOf(corners, corners.length * 2);
+						
+						int c = n * 3;
+						corners[c] = resolveIndex(in.nextInt(), numVertices, in);
+						corners[c + 1] = -1;
+						corners[c + 2] = -1;
+						
+						if(in.slash())
+						{
+							if(!in.slash())
+							{
+								corners[c + 1] = resolveIndex(in.nextInt(), numTextures, in);
+								
+								if(in.slash())
+									corners[c + 2] = resolveIndex(in.nextInt(), numNormals, in);
+							}
+							else
+								corners[c + 2] = resolveIndex(in.nextInt(), numNormals, in);
+						}
+						
+						n++;
+					}
+					
+					if(group == null)
+						group = new BodyGroup("default");
+					
+					// Fan triangulation of quads and n-gons
+					for(int k = 1; k < n - 1; k++)
+					{
+						int[] face = new int[9];
+						Face f = new Face(group, face);
+						
+						for(int v = 0; v < 3; v++)
+						{
+							int c = (v == 0 ? 0 : k + v - 1) * 3;
+							int vi = corners[c];
+							int ti = corners[c + 1];
+							int ni = corners[c + 2];
+							
+							if(vertices[vi] == null)
+								vertices[vi] = new Vertex(positions[vi * 3], positions[vi * 3 + 1], positions[vi * 3 + 2]);
+							
+							f.addVertex(vertices[vi]);
+							face[v * 3] = vi + 1;
+							
+							if(ti >= 0)
+							{
+								if(textureRefs[ti] == null)
+									textureRefs[ti] = new float[] {textures[ti * 2], textures[ti * 2 + 1]};
+								
+								f.getVertex(v).setTexture(textureRefs[ti]);
+								face[v * 3 + 1] = ti + 1;
+							}
+							
+							if(ni >= 0)
+							{
+								if(normalRefs[ni] == null)
+									normalRefs[ni] = new float[] {normals[ni * 3], normals[ni * 3 + 1], normals[ni * 3 + 2]};
+								
+								f.getVertex(v).setNormal(normalRefs[ni]);
+								face[v * 3 + 2] = ni + 1;
+							}
+						}
+						
+						group.addChild(f);
+						numFaces++;
+					}
+					break;
+					
+				case MTLLIB: 
+					materialFile = in.readLine();
+					readMTLFile(materialFile);
+					break;
+					
+				case USEMTL: 
+					Material mat = searchForMaterial(in.readLine());
+					
+					if(group == null)
+						group = new BodyGroup(mat.name);
+					else if(group.material != Material.DEFAULT_MAT)
+					{
+						children.add(group);
+						group = new BodyGroup(mat.name);
+					}
+					
+					group.material = mat;
+					break;
+					
+				case COMMENT:
+					System.out.println("# " + in.readLine());
+					break;
+					
+				default: break;
+				}
+				
+				in.skipLine();
+			}
+			
+			System.out.println("EXITING: " + filein);
+			
+			if(group != null)
+				children.add(group);
+			
+			System.out.println(numVertices + " vertices");
+			System.out.println(numTextures + " textures");
+			System.out.println(numNormals + " normals");
+			System.out.println(numFaces + " faces");
+			System.out.println(children.size() + " bodygroups");
+			System.out.println(materials.size() + " materials");
+		} 
+		catch (FileNotFoundException e) {System.out.println("ERROR - FAILED TO LOAD OBJ FILE: " + filein);} 
+		catch (IOException e) {System.out.println("ERROR - FAILED TO READ OBJ FILE: " + filein);}
+	}
+	
+	// Converts a one based (or negative relative) obj index to a zero based index
+	static int resolveIndex(int index, int count, ObjScanner in)
+	{
+		int resolved = index > 0 ? index - 1 : count + index;
+		
+		if(index == 0 || resolved < 0 || resolved >= count)
+			Application.throwError("ERROR - INVALID FACE INDEX " + index + " ON LINE " + in.getLine(), in);
+		
+		return resolved;
+	}
+	
+	// Loads an .obj model file with the original String based parser
+	private void readObjText(String filein)
+	{
+		try {
+			System.out.println("OPENING: " + filein);
+			
 			BufferedReader reader = new BufferedReader(new FileReader(new File(folder + filein)));
 			LinkedList<Vertex> vertices = new LinkedList<Vertex>();
 			LinkedList<float[]> textures = new LinkedList<float[]>();
@@ -109,7 +354,7 @@ public class Model extends Structure
 						
 					case MTLLIB: 
 						materialFile = line;
-						readMTLFile(materialFile);
+						readMTLText(materialFile);
 						break;
 						
 					case USEMTL: 
@@ -162,12 +407,63 @@ public class Model extends Structure
 		catch (IOException e) {System.out.println("ERROR - FAILED TO READ OBJ FILE: " + filein);}
 	}
 	
-	// Reads a .mtl file from the .obj file
+	// Reads a .mtl file from the .obj file by parsing the mapped bytes of the file
 	public void readMTLFile(String filein)
 	{
 		try {
 			System.out.println("OPENING: " + filein);
 			
+			ObjScanner in = new ObjScanner(folder + filein);
+			Material mat = null;
+			boolean textured = false;
+			
+			while(in.hasNext())
+			{
+				if(in.word(KEY_NEWMTL))
+				{
+					if(mat != null && !textured)
+						mat.setColor(mat.Kd);
+					
+					mat = new Material(in.readLine());
+					textured = false;
+					materials.add(mat);
+					System.out.println("CREATED MATERIAL: " + mat.name);
+				}
+				else if(mat != null)
+				{
+					if(in.word(KEY_KA)) readValues(in, mat.Ka);
+					else if(in.word(KEY_KD)) readValues(in, mat.Kd);
+					else if(in.word(KEY_KS)) readValues(in, mat.Ks);
+					else if(in.word(KEY_KE)) readValues(in, mat.Ke);
+					else if(in.word(KEY_NS)) mat.Ns = in.nextFloat();
+					else if(in.word(KEY_D) || in.word(KEY_TR)) mat.Tr = in.nextFloat();
+					else if(in.word(KEY_ILLUM)) mat.type = in.nextInt() == 2 ? Material.MaterialType.ILLUM2 : Material.MaterialType.NONE;
+					else if(in.word(KEY_NI)) System.out.println("Warning - Ni material parameter detected, this program does not support Ni");
+					else if(in.word(KEY_MAP_KD))
+					{
+						mat.loadTexture(folder + in.readLine());
+						textured = true;
+					}
+				}
+				
+				in.skipLine();
+			}
+			
+			if(mat != null && !textured)
+				mat.setColor(mat.Kd);
+			
+			System.out.println("EXITING: " + filein);
+		}
+		catch (FileNotFoundException e) {System.out.println("ERROR - FAILED TO LOAD MTL FILE: " + filein);} 
+		catch (IOException e) {System.out.println("ERROR - FAILED TO READ MTL FILE: " + filein);}
+	}
+	
+	// Reads a .mtl file from the .obj file with the original String based parser
+	public void readMTLText(String filein)
+	{
+		try {
+			System.out.println("OPENING: " + filein);
+			
 			BufferedReader reader = new BufferedReader(new FileReader(new File(folder + filein)));
 			String line;
 			int nullCount = 0;
@@ -197,6 +493,31 @@ public class Model extends Structure
 		catch (IOException e) {System.out.println("ERROR - FAILED TO READ MTL FILE: " + filein);}
 	}
 	
+	@Override
+	// Finalizes the body groups and faces of the model
+	public void finalizeRender()
+	{
+		super.finalizeRender();
+		finalized = true;
+	}
+	
+	// Finalizes the model if it has not been already (used when shared by instances)
+	void finalizeShared()
+	{
+		if(!finalized)
+			finalizeRender();
+	}
+	
+	// Adds a body group loaded outside of the obj parser
+	void addBodyGroup(BodyGroup group)
+	{
+		children.add(group);
+		numFaces += group.size();
+	}
+	
+	public List<Material> getMaterials() { return materials; }
+	public int getNumFaces() { return numFaces; }
+	
 	// Searches for a material with a given name in the model's material list
 	public Material searchForMaterial(String name)
 	{
@@ -220,6 +541,20 @@ public class Model extends Structure
 		return line.substring(0, line.indexOf(' ')).equals("newmtl");
 	}
 	
+	// Returns the OBJ command at the start of the scanner's current line
+	public static ObjCommand objReturnLineHead(ObjScanner in)
+	{
+		if(in.word(KEY_V)) return ObjCommand.VERTEX_COORDINATE;
+		if(in.word(KEY_VT)) return ObjCommand.TEXTURE_COORDINATE;
+		if(in.word(KEY_VN)) return ObjCommand.NORMAL;
+		if(in.word(KEY_F)) return ObjCommand.FACE;
+		if(in.word(KEY_G)) return in.atLineEnd() ? ObjCommand.G : ObjCommand.BODYGROUP;
+		if(in.word(KEY_USEMTL)) return ObjCommand.USEMTL;
+		if(in.word(KEY_MTLLIB)) return ObjCommand.MTLLIB;
+		if(in.word(KEY_COMMENT)) return ObjCommand.COMMENT;
+		return ObjCommand.NONE;
+	}
+	
 	// Returns the OBJ command from the file line
 	public static ObjCommand objReturnLineHead(String line)
 	{
@@ -278,6 +613,13 @@ public class Model extends Structure
 		return values;
 	}
 	
+	// Reads sequential float parameters from the scanner into an array
+	public static void readValues(ObjScanner in, float[] values)
+	{
+		for(int i = 0; i < values.length; i++)
+			values[i] = in.nextFloat();
+	}
+	
 	// Reads the format for faces from a file line in the .obj file (TODO: support faces with more than 3 vertices)
 	public int[] readFaces(String line)
 	{
@@ -0,0 +1,67 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * File: ModelInstance.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * A lightweight placement of a shared model. The faces, vertices and materials
+ * belong to the model and are shared by every instance of it, they are only read
+ * while rendering. Each instance has a body group per body group of the model with
+ * its own transformation and transformed vertices, and the faces are projected and
+ * lit in the render package of the camera, so instances of one model can be drawn
+ * by several cameras on separate threads.
+ */
+
+public class ModelInstance extends Structure
+{
+	private final Model mesh;	// The shared model that is drawn
+	private final ArrayList<Renderable> groups = new ArrayList<Renderable>();	// Body groups of the instance (other children of the model are shared)
+	
+	public ModelInstance(Model mesh)
+	{
+		super(mesh.name);
+		this.mesh = mesh;
+	}
+	
+	@Override
+	// Finalizes the shared model the first time any instance of it is finalized, then creates the body groups of the instance
+	public void finalizeRender()
+	{
+		mesh.finalizeShared();
+		groups.clear();
+		
+		for(Renderable r : mesh.children)
+			groups.add(r instanceof BodyGroup ? new BodyGroup((BodyGroup) r) : r);
+		
+		recompile();
+		refitBounds();
+	}
+	
+	@Override
+	// Takes the bounds of the shared model
+	protected void refitNode()
+	{
+		mesh.refitBounds();
+		System.arraycopy(mesh.boundCenter, 0, boundCenter, 0, 3);
+		boundScaled = mesh.boundScaled;
+		boundFixed = mesh.boundFixed;
+	}
+	
+	@Override
+	// Renders the body groups of the instance with its transformation (a render list compiles them below the instance)
+	protected void draw(RenderPackage context, boolean compiled)
+	{
+		if(!compiled)
+			renderChildren(context, groups);
+	}
+	
+	@Override
+	protected boolean isShown() { return visible && mesh.visible; }
+	
+	@Override
+	protected List<Renderable> getCompiledChildren() { return groups; }
+	
+	public Model getMesh() { return mesh; }
+}
@@ -0,0 +1,232 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/*
+ * File: ObjScanner.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Tokenizer used to read .obj and .mtl files directly from a memory mapped file.
+ * Numbers are parsed in place from the raw bytes so no strings are created per token.
+ */
+
+public class ObjScanner
+{
+	private static final int MAX_DIGITS = 18;			// Digits which cannot overflow the long mantissa
+	private static final long MAX_MANTISSA = 1 << 24;	// Mantissas which are exact in a float
+	private static final float[] POWERS = generatePowers();
+	
+	private final MappedByteBuffer data;	// Mapped file contents
+	private final int limit;				// Size of the file in bytes
+	private int pos = 0;					// Current read position
+	private int line = 1;					// Current line number (used in errors)
+	
+	public ObjScanner(String file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		
+		try {
+			FileChannel channel = raf.getChannel();
+			
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException("File is too large to map: " + file);
+			
+			limit = (int) channel.size();
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, limit);
+		}
+		finally { raf.close(); }
+	}
+	
+	// Skips to the next line which is not empty, returns false at the end of the file
+	public boolean hasNext()
+	{
+		while(pos < limit)
+		{
+			byte c = data.get(pos);
+			
+			if(c == '\n')
+				line++;
+			else if(c > ' ')
+				return true;
+			
+			pos++;
+		}
+		
+		return false;
+	}
+	
+	// Consumes the word if it is the next token on the line
+	public boolean word(byte[] word)
+	{
+		int end = pos + word.length;
+		
+		if(end > limit)
+			return false;
+		
+		for(int i = 0; i < word.length; i++)
+			if(data.get(pos + i) != word[i])
+				return false;
+		
+		if(end < limit && data.get(end) > ' ')
+			return false;
+		
+		pos = end;
+		return true;
+	}
+	
+	// Skips the rest of the current line
+	public void skipLine()
+	{
+		while(pos < limit && data.get(pos) != '\n')
+			pos++;
+	}
+	
+	// Whether there are no more tokens on the current line
+	public boolean atLineEnd()
+	{
+		skipSpaces();
+		return pos >= limit || data.get(pos) == '\n' || data.get(pos) == '\r' || data.get(pos) == '#';
+	}
+	
+	// Consumes a '/' separator if it is the next character
+	public boolean slash()
+	{
+		if(pos < limit && data.get(pos) == '/')
+		{
+			pos++;
+			return true;
+		}
+		
+		return false;
+	}
+	
+	// Reads the rest of the current line as a trimmed string (used for names)
+	public String readLine()
+	{
+		skipSpaces();
+		
+		int start = pos;
+		skipLine();
+		
+		int end = pos;
+		while(end > start && data.get(end - 1) <= ' ')
+			end--;
+		
+		byte[] bytes = new byte[end - start];
+		for(int i = 0; i < bytes.length; i++)
+			bytes[i] = data.get(start + i);
+		
+		return new String(bytes);
+	}
+	
+	// Parses a signed integer in place
+	public int nextInt()
+	{
+		skipSpaces();
+		
+		boolean negative = false;
+		int value = 0;
+		int start;
+		
+		if(pos < limit && (data.get(pos) == '-' || data.get(pos) == '+'))
+			negative = data.get(pos++) == '-';
+		
+		start = pos;
+		
+		for(byte c; pos < limit && (c = data.get(pos)) >= '0' && c <= '9'; pos++)
+			value = value * 10 + (c - '0');
+		
+		if(pos == start)
+			throw new NumberFormatException("Expected integer on line " + line);
+		
+		return negative ? -value : value;
+	}
+	
+	// Parses a float in place, long or unusual numbers fall back to Float.parseFloat
+	public float nextFloat()
+	{
+		skipSpaces();
+		
+		int start = pos;
+		boolean negative = false;
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		byte c;
+		
+		if(pos < limit && ((c = data.get(pos)) == '-' || c == '+'))
+		{
+			negative = c == '-';
+			pos++;
+		}
+		
+		// Integer part
+		for(; pos < limit && (c = data.get(pos)) >= '0' && c <= '9'; pos++, digits++)
+			mantissa = mantissa * 10 + (c - '0');
+		
+		// Fraction part
+		if(pos < limit && data.get(pos) == '.')
+			for(pos++; pos < limit && (c = data.get(pos)) >= '0' && c <= '9'; pos++, digits++, exponent--)
+				mantissa = mantissa * 10 + (c - '0');
+		
+		// Exponent part
+		if(pos < limit && ((c = data.get(pos)) == 'e' || c == 'E'))
+		{
+			pos++;
+			exponent += nextInt();
+		}
+		
+		if(pos == start || (pos < limit && data.get(pos) > ' ' && data.get(pos) != '#'))
+		{
+			skipToken();
+			return Float.parseFloat(token(start));
+		}
+		
+		// The fast path divides or multiplies two exact floats, which rounds once like Float.parseFloat
+		if(digits > MAX_DIGITS || mantissa > MAX_MANTISSA || exponent < -POWERS.length + 1 || exponent > POWERS.length - 1)
+			return Float.parseFloat(token(start));
+		
+		float value = exponent < 0 ? mantissa / POWERS[-exponent] : mantissa * POWERS[exponent];
+		return negative ? -value : value;
+	}
+	
+	public int getLine() { return line; }
+	
+	// Skips spaces and tabs on the current line
+	private void skipSpaces()
+	{
+		byte c;
+		while(pos < limit && (c = data.get(pos)) <= ' ' && c != '\n' && c != '\r')
+			pos++;
+	}
+	
+	// Skips the remaining characters of a token
+	private void skipToken()
+	{
+		while(pos < limit && data.get(pos) > ' ')
+			pos++;
+	}
+	
+	// Returns the characters from start to the current position
+	private String token(int start)
+	{
+		byte[] bytes = new byte[pos - start];
+		for(int i = 0; i < bytes.length; i++)
+			bytes[i] = data.get(start + i);
+		return new String(bytes);
+	}
+	
+	// Powers of ten which are exact in a float
+	private static float[] generatePowers()
+	{
+		float[] powers = new float[11];
+		powers[0] = 1;
+		
+		for(int i = 1; i < powers.length; i++)
+			powers[i] = powers[i - 1] * 10;
+		
+		return powers;
+	}
+}
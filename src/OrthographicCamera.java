@@ -13,6 +13,13 @@ public class OrthographicCamera extends Camera
 	private float viewHeight;		// Height of view plane
 	private float viewDepth;		// Depth of view plane from source
 	
+	// View volume, a point is on screen if |y| <= slopeY * x and |z| <= slopeZ * x (slopes include a few pixels of margin)
+	private float slopeY = -1;		// Negative until the view plane has been updated
+	private float slopeZ;
+	private float normY;			// Length of the side plane normals
+	private float normZ;
+	private float distance;			// Projection distance of the view plane (negative when mirrored)
+	
 	public OrthographicCamera(float vW, float vH, float vD, int w, int h)
 	{
 		super(w, h);
@@ -22,10 +29,80 @@ public class OrthographicCamera extends Camera
 	}
 	
 	@Override
-	public void render(RenderableTriangle tri)
+	public void render(RenderableTriangle tri, RenderPackage context)
+	{
+		long start = context.stats.start();
+		boolean projected = context.batch ? tri.gather() : viewPlane.intersectionAlongPlane(tri);
+		context.stats.stop(RenderStats.Stage.PROJECT, start);
+		context.stats.count(RenderStats.Counter.TRIANGLES_SUBMITTED, 1);
+		
+		if(projected)
+			tri.render(context);
+		else
+			context.stats.count(RenderStats.Counter.TRIANGLES_REJECTED, 1);
+	}
+	
+	@Override
+	// Depths are squared distances from the camera, the view plane is the nearest depth kept apart
+	public float getNearDepth()
+	{
+		return viewDepth * viewDepth;
+	}
+	
+	@Override
+	// Projects every vertex of the cache onto the view plane in one batch
+	public void projectVertices(VertexCache vertices)
+	{
+		viewPlane.projectPoints(vertices.positions, vertices.projected, vertices.size());
+	}
+	
+	@Override
+	// Tests a sphere against the planes through the camera and the edges of the screen
+	public boolean isVisible(float[] center, float radius)
+	{
+		if(!culling || slopeY < 0)
+			return true;
+		
+		// Padded for the rounding of the vertex transformations
+		float pad = radius * 1.001f + (Math.abs(center[0]) + Math.abs(center[1]) + Math.abs(center[2])) * 1e-5f;
+		
+		return center[0] + pad > 0 &&
+				Math.abs(center[1]) - slopeY * center[0] <= pad * normY &&
+				Math.abs(center[2]) - slopeZ * center[0] <= pad * normZ;
+	}
+	
+	@Override
+	// Projects the bounds of a sphere onto the screen and tests them against a depth pyramid
+	public int testOcclusion(float[] center, float radius, DepthPyramid pyramid)
 	{
-		if(viewPlane.intersectionAlongPlane(tri))
-			tri.render();
+		float pad = radius * 1.001f + (Math.abs(center[0]) + Math.abs(center[1]) + Math.abs(center[2])) * 1e-5f;
+		float near_x = center[0] - pad;
+		float far_x = center[0] + pad;
+		
+		if(slopeY < 0 || near_x <= 0)
+			return DepthPyramid.PARTIAL;
+		
+		// Range of y/x and z/x within the sphere's bounding box
+		float y0 = Math.min((center[1] - pad) / near_x, (center[1] - pad) / far_x);
+		float y1 = Math.max((center[1] + pad) / near_x, (center[1] + pad) / far_x);
+		float z0 = Math.min((center[2] - pad) / near_x, (center[2] - pad) / far_x);
+		float z1 = Math.max((center[2] + pad) / near_x, (center[2] + pad) / far_x);
+		
+		// Pixel bounds, as mapped by the view plane
+		float sx = distance / viewWidth * width;
+		float sy = distance / viewHeight * height;
+		float px0 = width / 2.0f - y0 * sx;
+		float px1 = width / 2.0f - y1 * sx;
+		float py0 = height / 2.0f + z0 * sy;
+		float py1 = height / 2.0f + z1 * sy;
+		
+		// Squared distance is the depth of a vertex
+		float length = (float) Math.sqrt(center[0]*center[0] + center[1]*center[1] + center[2]*center[2]);
+		float nearest = length > pad ? (length - pad) * (length - pad) * 0.9999f : 0;
+		float farthest = (length + pad) * (length + pad) * 1.0001f;
+		
+		return pyramid.test((int) Math.min(px0, px1) - 2, (int) Math.min(py0, py1) - 2,
+				(int) Math.max(px0, px1) + 3, (int) Math.max(py0, py1) + 3, nearest, farthest);
 	}
 	
 	@Override
@@ -47,9 +124,25 @@ public class OrthographicCamera extends Camera
 	
 	@Override
 	// Updates the transformations of the view plane before rendering
-	public void render() 
+	public void render(RenderPackage context) 
 	{
+		long start = context.stats.start();
 		viewPlane.update(this);
+		
+		// Projection distance of the view plane (zero before the first update)
+		distance = viewPlane.intersectionNumerator / viewPlane.normal[0];
+		
+		if(Math.abs(distance) > 0)
+		{
+			slopeY = viewWidth / 2 * (1 + 4.0f / width) / Math.abs(distance);
+			slopeZ = viewHeight / 2 * (1 + 4.0f / height) / Math.abs(distance);
+			normY = (float) Math.sqrt(1 + slopeY * slopeY);
+			normZ = (float) Math.sqrt(1 + slopeZ * slopeZ);
+		}
+		else
+			slopeY = -1;
+		
+		context.stats.stop(RenderStats.Stage.PLANE, start);
 	}
 	
 	public Plane getViewPlane() { return viewPlane; }
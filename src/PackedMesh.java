@@ -0,0 +1,409 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*
+ * File: PackedMesh.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * A model stored as flat arrays instead of an object graph of faces and vertices.
+ * Vertices are unique by position, texture coordinate and normal, every triangle is
+ * three indices into them and each body group is a range of triangles with one
+ * material. The mesh renders straight from the arrays with one reusable triangle
+ * per body group.
+ * Note: body groups keep the default transformation of a BodyGroup, so frames
+ * match the same obj loaded as a Model.
+ */
+
+public class PackedMesh extends Structure
+{
+	private static final int KEY_BITS = 21;	// Bits of each index in the key of a unique vertex (position, texture + 1, normal + 1)
+	
+	final float[] positions;			// x, y, z per vertex
+	final float[] uvs;					// u, v per vertex
+	final float[] normals;				// x, y, z per vertex (zero when the obj has none)
+	final int[] indices;				// Three vertex indices per triangle
+	final float[] faceNormals;			// Unit normal per triangle (used for lighting)
+	final String[] groupNames;			// Names of the body groups
+	final Material[] groupMaterials;	// Material of each body group
+	final int[] groupStart;				// First triangle of each body group (followed by the number of triangles)
+	
+	private Material.CullMode cull = null;	// Overrides the culling of the materials when set
+	private Transformation groupTransformation = new Transformation(new float[] {0,0,0,0,0,0,1,1,1}, new float[9]);
+	private VertexCache vertices;			// Transformed vertices
+	private RenderableTriangle[] triangles;	// Reusable triangle of each body group
+	
+	public PackedMesh(String name, float[] positions, float[] uvs, float[] normals, int[] indices, String[] groupNames, Material[] groupMaterials, int[] groupStart)
+	{
+		super(name);
+		this.positions = positions;
+		this.uvs = uvs;
+		this.normals = normals;
+		this.indices = indices;
+		this.groupNames = groupNames;
+		this.groupMaterials = groupMaterials;
+		this.groupStart = groupStart;
+		
+		// Same normal as Face (cross product of the first and second edge)
+		faceNormals = new float[indices.length];
+		for(int i = 0; i < indices.length; i += 3)
+		{
+			int a = indices[i] * 3;
+			int b = indices[i + 1] * 3;
+			int c = indices[i + 2] * 3;
+			float v1_x = positions[b] - positions[a];
+			float v1_y = positions[b + 1] - positions[a + 1];
+			float v1_z = positions[b + 2] - positions[a + 2];
+			float v2_x = positions[c] - positions[b];
+			float v2_y = positions[c + 1] - positions[b + 1];
+			float v2_z = positions[c + 2] - positions[b + 2];
+			float n_x = v1_y*v2_z - v1_z*v2_y;
+			float n_y = v1_z*v2_x - v1_x*v2_z;
+			float n_z = v1_x*v2_y - v1_y*v2_x;
+			float mag = (float) Math.sqrt(n_x*n_x + n_y*n_y + n_z*n_z);
+			
+			faceNormals[i] = n_x / mag;
+			faceNormals[i + 1] = n_y / mag;
+			faceNormals[i + 2] = n_z / mag;
+		}
+	}
+	
+	// Loads an .obj model file, corners with the same position, texture and normal index share a vertex
+	public static PackedMesh load(String folder, String file)
+	{
+		Model materials = new Model(folder, file, new ArrayList<Material>());	// Reads and holds the materials
+		float[] positions = new float[3 * 1024];
+		float[] textures = new float[2 * 1024];
+		float[] normals = new float[3 * 1024];
+		int[] vertexRefs = new int[3 * 1024];		// Position, texture and normal index of each unique vertex
+		int[] indices = new int[3 * 1024];
+		int[] corners = new int[3 * 4];				// v, vt, vn index of each corner in the current polygon
+		HashMap<Long, Integer> unique = new HashMap<Long, Integer>();
+		ArrayList<String> groupNames = new ArrayList<String>();
+		ArrayList<Material> groupMaterials = new ArrayList<Material>();
+		ArrayList<Integer> groupStart = new ArrayList<Integer>();
+		int numPositions = 0;
+		int numTextures = 0;
+		int numNormals = 0;
+		int numIndices = 0;
+		
+		try {
+			System.out.println("OPENING: " + file);
+			ObjScanner in = new ObjScanner(folder + file);
+			
+			while(in.hasNext())
+			{
+				switch(Model.objReturnLineHead(in))
+				{
+				case VERTEX_COORDINATE:
+					if(numPositions * 3 == positions.length)
+						positions = Arrays.copyOf(positions, positions.length * 2);
+					
+					positions[numPositions * 3] = in.nextFloat();
+					positions[numPositions * 3 + 1] = in.nextFloat();
+					positions[numPositions * 3 + 2] = in.nextFloat();
+					numPositions++;
+					break;
+				
+				case TEXTURE_COORDINATE:
+					if(numTextures * 2 == textures.length)
+						textures = Arrays.copyOf(textures, textures.length * 2);
+					
+					textures[numTextures * 2] = in.nextFloat();
+					textures[numTextures * 2 + 1] = in.nextFloat();
+					numTextures++;
+					break;
+				
+				case NORMAL:
+					if(numNormals * 3 == normals.length)
+						normals = Arrays.copyOf(normals, normals.length * 2);
+					
+					normals[numNormals * 3] = in.nextFloat();
+					normals[numNormals * 3 + 1] = in.nextFloat();
+					normals[numNormals * 3 + 2] = in.nextFloat();
+					numNormals++;
+					break;
+				
+				case BODYGROUP:
+					groupNames.add(in.readLine());
+					groupMaterials.add(Material.DEFAULT_MAT);
+					groupStart.add(numIndices / 3);
+					break;
+				
+				case FACE:
+					int n = 0;
+					
+					// Larger indices would overflow their field of the vertex key and merge unrelated corners
+					if(Math.max(numPositions, Math.max(numTextures, numNormals)) >= 1 << KEY_BITS)
+						Application.throwError("ERROR - MORE THAN " + ((1 << KEY_BITS) - 1) + " POSITIONS, TEXTURES OR NORMALS TO PACK ON LINE " + in.getLine(), in);
+					
+					// Read every corner (v, v/vt, v//vn or v/vt/vn), indices are resolved to zero based
+					while(!in.atLineEnd())
+					{
+						if(n * 3 == corners.length)
+							corners = Arrays.copyOf(corners, corners.length * 2);
+						
+						int c = n * 3;
+						corners[c] = Model.resolveIndex(in.nextInt(), numPositions, in);
+						corners[c + 1] = -1;
+						corners[c + 2] = -1;
+						
+						if(in.slash())
+						{
+							if(!in.slash())
+							{
+								corners[c + 1] = Model.resolveIndex(in.nextInt(), numTextures, in);
+								
+								if(in.slash())
+									corners[c + 2] = Model.resolveIndex(in.nextInt(), numNormals, in);
+							}
+							else
+								corners[c + 2] = Model.resolveIndex(in.nextInt(), numNormals, in);
+						}
+						
+						n++;
+					}
+					
+					if(groupNames.isEmpty())
+					{
+						groupNames.add("default");
+						groupMaterials.add(Material.DEFAULT_MAT);
+						groupStart.add(numIndices / 3);
+					}
+					
+					// Fan triangulation of quads and n-gons
+					for(int k = 1; k < n - 1; k++)
+					{
+						if(numIndices + 3 > indices.length)
+							indices = Arrays.copyOf(indices, indices.length * 2);
+						
+						for(int v = 0; v < 3; v++)
+						{
+							int c = (v == 0 ? 0 : k + v - 1) * 3;
+							long key = ((long) corners[c] << (KEY_BITS * 2)) | ((long)(corners[c + 1] + 1) << KEY_BITS) | (corners[c + 2] + 1);
+							Integer index = unique.get(key);
+							
+							if(index == null)
+							{
+								index = unique.size();
+								unique.put(key, index);
+								
+								if(index * 3 == vertexRefs.length)
+									vertexRefs = Arrays.copyOf(vertexRefs, vertexRefs.length * 2);
+								
+								System.arraycopy(corners, c, vertexRefs, index * 3, 3);
+							}
+							
+							indices[numIndices++] = index;
+						}
+					}
+					break;
+				
+				case MTLLIB:
+					materials.readMTLFile(in.readLine());
+					break;
+				
+				case USEMTL:
+					Material mat = materials.searchForMaterial(in.readLine());
+					int last = groupNames.size() - 1;
+					
+					// A body group which already has a material is followed by a new one (as Model does)
+					if(last < 0 || groupMaterials.get(last) != Material.DEFAULT_MAT)
+					{
+						groupNames.add(mat.name);
+						groupMaterials.add(mat);
+						groupStart.add(numIndices / 3);
+					}
+					else
+						groupMaterials.set(last, mat);
+					break;
+				
+				case COMMENT:
+					System.out.println("# " + in.readLine());
+					break;
+				
+				default: break;
+				}
+				
+				in.skipLine();
+			}
+			
+			System.out.println("EXITING: " + file);
+		}
+		catch (FileNotFoundException e) {System.out.println("ERROR - FAILED TO LOAD OBJ FILE: " + file);}
+		catch (IOException e) {System.out.println("ERROR - FAILED TO READ OBJ FILE: " + file);}
+		
+		// Vertex data of the unique corners
+		int numVertices = unique.size();
+		float[] vertexPositions = new float[numVertices * 3];
+		float[] vertexTextures = new float[numVertices * 2];
+		float[] vertexNormals = new float[numVertices * 3];
+		
+		for(int v = 0; v < numVertices; v++)
+		{
+			System.arraycopy(positions, vertexRefs[v * 3] * 3, vertexPositions, v * 3, 3);
+			if(vertexRefs[v * 3 + 1] >= 0)
+				System.arraycopy(textures, vertexRefs[v * 3 + 1] * 2, vertexTextures, v * 2, 2);
+			if(vertexRefs[v * 3 + 2] >= 0)
+				System.arraycopy(normals, vertexRefs[v * 3 + 2] * 3, vertexNormals, v * 3, 3);
+		}
+		
+		int[] start = new int[groupStart.size() + 1];
+		for(int g = 0; g < groupStart.size(); g++)
+			start[g] = groupStart.get(g);
+		start[groupStart.size()] = numIndices / 3;
+		
+		System.out.println(numVertices + " unique vertices");
+		System.out.println(numIndices / 3 + " triangles");
+		System.out.println(groupNames.size() + " bodygroups");
+		
+		return new PackedMesh(file, vertexPositions, vertexTextures, vertexNormals, Arrays.copyOf(indices, numIndices),
+				groupNames.toArray(new String[0]), groupMaterials.toArray(new Material[0]), start);
+	}
+	
+	@Override
+	// Creates the vertex cache and the triangle of each body group
+	public void finalizeRender()
+	{
+		vertices = new VertexCache(positions);
+		triangles = new RenderableTriangle[groupMaterials.length];
+		
+		for(int g = 0; g < triangles.length; g++)
+		{
+			triangles[g] = new RenderableTriangle(groupMaterials[g], new Vertex[3], new float[3][6]);
+			triangles[g].positions = vertices.positions;
+			triangles[g].projected = vertices.projected;
+			triangles[g].finalizeRender();
+		}
+		
+		fitBounds();
+	}
+	
+	@Override
+	// Fits a sphere around the origin, body groups add one to the final scale of the mesh
+	protected void fitBounds()
+	{
+		Arrays.fill(boundCenter, 0);
+		boundFaces = 0;
+		
+		for(int i = 0; i < positions.length; i += 3)
+			boundFaces = Math.max(boundFaces, (float) Math.sqrt(positions[i]*positions[i] + positions[i + 1]*positions[i + 1] + positions[i + 2]*positions[i + 2]));
+		
+		refitBounds();
+	}
+	
+	@Override
+	protected void refitNode()
+	{
+		boundScaled = boundFaces;
+		boundFixed = boundFaces;
+	}
+	
+	@Override
+	// Transforms the vertices once, then lights and draws the triangles of each body group
+	protected void draw(RenderPackage context, boolean compiled)
+	{
+		long start = context.stats.start();
+		groupTransformation.propagateTransformation(transformation);
+		context.stats.count(RenderStats.Counter.VERTICES_TRANSFORMED, vertices.update(groupTransformation, context.matrices));
+		context.stats.stop(RenderStats.Stage.TRANSFORM, start);
+		
+		if(context.batch)
+		{
+			start = context.stats.start();
+			context.camera.projectVertices(vertices);
+			context.stats.count(RenderStats.Counter.VERTICES_PROJECTED, vertices.size());
+			context.stats.stop(RenderStats.Stage.PROJECT, start);
+		}
+		
+		// Nothing is in front of the mesh, so its triangles do not need to be tested
+		DepthPyramid occlusion = context.occlusion;
+		if(occlusionResult == DepthPyramid.IN_FRONT)
+			context.occlusion = null;
+		
+		float[] p = vertices.positions;
+		float[] dir = vertices.directions;
+		
+		for(int g = 0; g < triangles.length; g++)
+		{
+			RenderableTriangle tri = triangles[g];
+			Material.CullMode mode = cull != null ? cull : groupMaterials[g].cull;
+			int width = groupMaterials[g].getWidth();
+			int height = groupMaterials[g].getHeight();
+			float[] v1 = tri.v1;
+			float[] v2 = tri.v2;
+			float[] v3 = tri.v3;
+			float[] light = null;
+			
+			int stride = indices.length / 3;
+			
+			// Batching lights every triangle of the body group in one pass before they are set up
+			if(context.batch)
+			{
+				start = context.stats.start();
+				if(context.lights.length < indices.length)
+					context.lights = new float[indices.length];
+				light = context.lights;
+				BatchKernels.get().light(indices, faceNormals, dir, groupStart[g], groupStart[g + 1], light, stride);
+				context.stats.stop(RenderStats.Stage.PROJECT, start);
+			}
+			
+			for(int i = groupStart[g] * 3, end = groupStart[g + 1] * 3, t = groupStart[g]; i < end; i += 3, t++)
+			{
+				int o1 = indices[i] * 3;
+				int o2 = indices[i + 1] * 3;
+				int o3 = indices[i + 2] * 3;
+				
+				if(Face.isCulled(mode, p, o1, o2, o3))
+				{
+					context.stats.count(RenderStats.Counter.BACKFACES_CULLED, 1);
+					continue;
+				}
+				
+				start = context.stats.start();
+				tri.p1 = o1;
+				tri.p2 = o2;
+				tri.p3 = o3;
+				
+				if(light != null)
+				{
+					v1[5] = light[t];
+					v2[5] = light[stride + t];
+					v3[5] = light[stride * 2 + t];
+				}
+				else
+				{
+					float n_x = faceNormals[i];
+					float n_y = faceNormals[i + 1];
+					float n_z = faceNormals[i + 2];
+					v1[5] = 0.5f - (dir[o1]*n_x + dir[o1 + 1]*n_y + dir[o1 + 2]*n_z) * 0.5f;
+					v2[5] = 0.5f - (dir[o2]*n_x + dir[o2 + 1]*n_y + dir[o2 + 2]*n_z) * 0.5f;
+					v3[5] = 0.5f - (dir[o3]*n_x + dir[o3 + 1]*n_y + dir[o3 + 2]*n_z) * 0.5f;
+				}
+				
+				// Texture coordinates in texels
+				v1[3] = (int)(uvs[indices[i] * 2] * width);
+				v1[4] = (int)(uvs[indices[i] * 2 + 1] * height);
+				v2[3] = (int)(uvs[indices[i + 1] * 2] * width);
+				v2[4] = (int)(uvs[indices[i + 1] * 2 + 1] * height);
+				v3[3] = (int)(uvs[indices[i + 2] * 2] * width);
+				v3[4] = (int)(uvs[indices[i + 2] * 2 + 1] * height);
+				
+				context.stats.stop(RenderStats.Stage.PROJECT, start);
+				context.camera.render(tri, context);
+			}
+		}
+		
+		context.occlusion = occlusion;
+	}
+	
+	// Sets the triangles which are culled (null uses the setting of each material)
+	public void setCullMode(Material.CullMode mode) { cull = mode; }
+	
+	public int getNumTriangles() { return indices.length / 3; }
+	public int getNumVertices() { return positions.length / 3; }
+	public int getNumBodyGroups() { return groupMaterials.length; }
+}
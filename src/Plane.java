@@ -27,6 +27,7 @@ public class Plane
 	
 	//Other
 	float intersectionNumerator;	// Intermediate calculation
+	private final float[] projection = new float[BatchKernels.PROJ_SIZE];	// Constants of the batch projection (see BatchKernels)
 	
 	public Plane(Vertex p1, Vertex p2, Vertex p3, int width, int height)
 	{
@@ -89,7 +90,7 @@ public class Plane
 			
 			return true;
 		}
-
+		
 		return false;
 	}
 	
@@ -97,41 +98,62 @@ public class Plane
 	public boolean intersectionAlongPlane(RenderableTriangle tri)
 	{
 		//Parameters for the t value
-		float parallel0 = Line.dot(tri.projections[0], normal);
-		float parallel1 = Line.dot(tri.projections[1], normal);
-		float parallel2 = Line.dot(tri.projections[2], normal);
+		float[] p = tri.positions;
+		int o0 = tri.p1;
+		int o1 = tri.p2;
+		int o2 = tri.p3;
+		float parallel0 = p[o0]*normal[0] + p[o0 + 1]*normal[1] + p[o0 + 2]*normal[2];
+		float parallel1 = p[o1]*normal[0] + p[o1 + 1]*normal[1] + p[o1 + 2]*normal[2];
+		float parallel2 = p[o2]*normal[0] + p[o2 + 1]*normal[1] + p[o2 + 2]*normal[2];
 		
 		if(parallel0 > 0 && parallel1 > 0 && parallel2 > 0) //If parallel -> line does not intersect
 		{
 			// 1st Vertex
 			float[] p2D = tri.pixelData[0];
-			float[] line = tri.projections[0];
 			float tValue = intersectionNumerator / parallel0;
-			p2D[0] = (int_vector_anchor - tValue*(int_vector_t * line[2] + line[1])) * int_vector_numerator;
-			p2D[1] = (line[2] * tValue - anchor[2] - vectorS[2] * p2D[0]) * int_vector_inv_t_height;
+			p2D[0] = (int_vector_anchor - tValue*(int_vector_t * p[o0 + 2] + p[o0 + 1])) * int_vector_numerator;
+			p2D[1] = (p[o0 + 2] * tValue - anchor[2] - vectorS[2] * p2D[0]) * int_vector_inv_t_height;
 			p2D[0] *= virtualWidth;
-			p2D[2] = line[0]*line[0] + line[1]*line[1] + line[2]*line[2];
+			p2D[2] = p[o0]*p[o0] + p[o0 + 1]*p[o0 + 1] + p[o0 + 2]*p[o0 + 2];
 			// 2nd Vertex
 			p2D = tri.pixelData[1];
-			line = tri.projections[1];
 			tValue = intersectionNumerator / parallel1;
-			p2D[0] = (int_vector_anchor - tValue*(int_vector_t * line[2] + line[1])) * int_vector_numerator;
-			p2D[1] = (line[2] * tValue - anchor[2] - vectorS[2] * p2D[0]) * int_vector_inv_t_height;
+			p2D[0] = (int_vector_anchor - tValue*(int_vector_t * p[o1 + 2] + p[o1 + 1])) * int_vector_numerator;
+			p2D[1] = (p[o1 + 2] * tValue - anchor[2] - vectorS[2] * p2D[0]) * int_vector_inv_t_height;
 			p2D[0] *= virtualWidth;
-			p2D[2] = line[0]*line[0] + line[1]*line[1] + line[2]*line[2];
+			p2D[2] = p[o1]*p[o1] + p[o1 + 1]*p[o1 + 1] + p[o1 + 2]*p[o1 + 2];
 			// 3rd Vertex
 			p2D = tri.pixelData[2];
-			line = tri.projections[2];
 			tValue = intersectionNumerator / parallel2;
-			p2D[0] = (int_vector_anchor - tValue*(int_vector_t * line[2] + line[1])) * int_vector_numerator;
-			p2D[1] = (line[2] * tValue - anchor[2] - vectorS[2] * p2D[0]) * int_vector_inv_t_height;
+			p2D[0] = (int_vector_anchor - tValue*(int_vector_t * p[o2 + 2] + p[o2 + 1])) * int_vector_numerator;
+			p2D[1] = (p[o2 + 2] * tValue - anchor[2] - vectorS[2] * p2D[0]) * int_vector_inv_t_height;
 			p2D[0] *= virtualWidth;
-			p2D[2] = line[0]*line[0] + line[1]*line[1] + line[2]*line[2];
+			p2D[2] = p[o2]*p[o2] + p[o2 + 1]*p[o2 + 1] + p[o2 + 2]*p[o2 + 2];
 			return true;
 		}
 		return false;
 	}
 	
+	// Projects packed positions (x, y, z per vertex) into packed screen x, y and depth, the same values as
+	// intersectionAlongPlane(tri) for each vertex. The depth is -1 when a vertex is not in front of the plane.
+	// The loop is run by the kernels of the batch path (Vector API lanes when they are available, see BatchKernels)
+	public void projectPoints(float[] in, float[] out, int count)
+	{
+		float[] c = projection;
+		c[BatchKernels.PROJ_NX] = normal[0];
+		c[BatchKernels.PROJ_NY] = normal[1];
+		c[BatchKernels.PROJ_NZ] = normal[2];
+		c[BatchKernels.PROJ_NUMERATOR] = intersectionNumerator;
+		c[BatchKernels.PROJ_RATIO] = int_vector_t;
+		c[BatchKernels.PROJ_OFFSET] = int_vector_anchor;
+		c[BatchKernels.PROJ_SCALE] = int_vector_numerator;
+		c[BatchKernels.PROJ_ANCHOR_Z] = anchor[2];
+		c[BatchKernels.PROJ_S_Z] = vectorS[2];
+		c[BatchKernels.PROJ_HEIGHT] = int_vector_inv_t_height;
+		c[BatchKernels.PROJ_WIDTH] = virtualWidth;
+		BatchKernels.get().project(c, in, out, 0, count);
+	}
+	
 	// Solve for s and t from intersection point
 	public void solveForST(float[] intersect, float[] p2D, int w, int h)
 	{
@@ -5,17 +5,41 @@ import java.awt.image.DirectColorModel;
 import java.awt.image.Raster;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
+import java.util.Arrays;
 
 /*
  * File: RenderBuffer.java
  * Author: Sean Rannie
- * Last Edited: September/12/2019
+ * Last Edited: October/18/2026
  * 
  * This is the buffer for the display
+ * Only the rectangle drawn in the last frame is cleared (the rest of the buffer is
+ * still clear). With depth epochs, the depths of each frame are scaled by 2^-32 from
+ * the frame before, so older depths are always farther and the depth buffer is only
+ * cleared every DEPTH_EPOCHS frames. Scaling by a power of two is exact, so frames
+ * are identical as long as the depths of two frames are within 2^32 of each other
+ * (and not smaller than 2^-30). Clears are split across the tile workers.
+ * Colours can be drawn in RGB565 (resolved to the ARGB image when it is presented)
+ * and depths as 16 or 24 bit reverse mapped integers (see RenderPackage), which
+ * halves the bytes written per pixel. Integer depths are cleared every frame.
+ * In the tiled layout the buffers are 8x8 Morton ordered tiles (see RenderPackage), so
+ * the rows of a triangle stay within a few cache lines, and the colours are resolved
+ * into the linear image when it is presented (split across the tile workers).
  */
 
 public class RenderBuffer 
 {
+	// Strategies clearing the buffer for a new frame
+	public enum Clear { FULL, DIRTY, EPOCH }
+	
+	// Formats of the colour and depth buffers
+	public enum ColorFormat { ARGB, RGB565 }
+	public enum DepthFormat { FLOAT, INT16, INT24 }
+	public enum Layout { LINEAR, TILED }
+	
+	public static final int DEPTH_EPOCHS = 4;	// Frames between depth clears with Clear.EPOCH
+	private static final int EPOCH_SHIFT = 32;	// Power of two between the depth scale of two frames
+	
 	private RenderPackage packet;
 	private BufferedImage render;	// Buffered image of rendering frame
 	private WritableRaster raster;	// Writable raster
@@ -23,41 +47,229 @@ public class RenderBuffer
 	private ColorModel cm;			// Color model of data buffer
 	private SampleModel sm;			// Sample model of data buffer
 	private int[] frame;			// Data array of the frame
+	private int[] image;			// Data array of the presented image (the frame unless it is resolved)
 	private float[] depth;			// Depth buffer of the frame		
+	private char[] frame565;		// RGB565 colours of the frame (null unless the colour format)
+	private char[] depth16;			// 16 bit depths of the frame (null unless the depth format)
+	private int[] depth24;			// 24 bit depths of the frame (null unless the depth format)
+	private final ColorFormat colorFormat;
+	private final DepthFormat depthFormat;
+	private final Layout layout;
 	private int width;				// Width of frame in pixels
 	private int height;				// Height of frame in pixels
 	private int size;				// Total size of frame
-
+	private Clear clear = Clear.DIRTY;	// Strategy clearing the buffer
+	private int epoch = 0;			// Frames since the depth buffer was cleared (Clear.EPOCH)
+	private final int[] depthDirty = new int[4];	// Rectangle drawn since the depth buffer was cleared (Clear.EPOCH)
+	
 	public RenderBuffer(int w, int h)
+	{
+		this(w, h, ColorFormat.ARGB, DepthFormat.FLOAT, Layout.LINEAR);
+	}
+	
+	public RenderBuffer(int w, int h, ColorFormat color, DepthFormat depthFormat, Layout layout)
 	{
 		width = w;
 		height = h;
-		size = w * h;
-		frame = new int[size];
-		depth = new float[size];
+		size = layout == Layout.TILED ? RenderPackage.tilesX(w) * RenderPackage.tilesX(h) * 64 : w * h;
+		colorFormat = color;
+		this.depthFormat = depthFormat;
+		this.layout = layout;
+		image = new int[w * h];
+		frame = color == ColorFormat.ARGB ? (layout == Layout.TILED ? new int[size] : image) : null;
+		frame565 = color == ColorFormat.RGB565 ? new char[size] : null;
+		depth = depthFormat == DepthFormat.FLOAT ? new float[size] : null;
+		depth16 = depthFormat == DepthFormat.INT16 ? new char[size] : null;
+		depth24 = depthFormat == DepthFormat.INT24 ? new int[size] : null;
 		
-		buffer = new DataBufferInt(frame, frame.length);
+		buffer = new DataBufferInt(image, image.length);
 		cm = new DirectColorModel(24, 0xFF0000, 0x00FF00, 0x0000FF);
 		sm = cm.createCompatibleSampleModel(w,h);
 		raster = Raster.createWritableRaster(sm, buffer, null);
 		render = new BufferedImage(cm, raster, false, null);
-		packet = new RenderPackage(frame, depth, width, height);
-		refresh();
+		packet = new RenderPackage(frame, frame565, depth, depth16, depth24, width, height, layout == Layout.TILED);
+		setDepthNear(1);
+		setClear(clear);
+	}
+	
+	// Sets the nearest depth kept apart by integer depths, nearer depths are drawn as if at this depth
+	public void setDepthNear(float near)
+	{
+		packet.depthRange = near * packet.depthMax;
+	}
+	
+	// Sets the strategy clearing the buffer, the whole buffer is cleared
+	public void setClear(Clear clear)
+	{
+		this.clear = clear;
+		epoch = 0;
+		packet.depthScale = 1;
+		clear(0, 0, width, height, true, true);
+		RenderPackage.resetRectangle(packet.dirty);
+		RenderPackage.resetRectangle(depthDirty);
+	}
+	
+	// Sets the number of threads rasterizing the frame (0 renders triangles immediately on the calling thread)
+	public void setRenderThreads(int threads)
+	{
+		if(threads <= 0)
+		{
+			if(packet.tiles != null)
+				packet.tiles.setThreads(1);
+			packet.tiles = null;
+		}
+		else if(packet.tiles == null)
+			packet.tiles = new TileRenderer(width, height, TileRenderer.DEFAULT_TILE_SIZE, threads);
+		else
+			packet.tiles.setThreads(threads);
+	}
+	
+	// Rasterizes any triangles binned during the frame
+	public void flush()
+	{
+		if(packet.tiles != null)
+			packet.tiles.flush(packet);
 	}
 	
 	// Resets the buffer
 	public void refresh()
 	{
-		for(int i = 0; i < size; i++) 
+		int[] dirty = packet.dirty;
+		
+		switch(clear)
+		{
+			case FULL:
+				clear(0, 0, width, height, true, true);
+				break;
+			case DIRTY:
+				clear(dirty[0], dirty[1], dirty[2], dirty[3], true, true);
+				break;
+			case EPOCH:
+				// Integer depths can not be scaled exactly
+				if(depth == null)
+				{
+					clear(dirty[0], dirty[1], dirty[2], dirty[3], true, true);
+					break;
+				}
+				
+				clear(dirty[0], dirty[1], dirty[2], dirty[3], true, false);
+				RenderPackage.growRectangle(depthDirty, dirty, 0);
+				epoch = (epoch + 1) % DEPTH_EPOCHS;
+				
+				if(epoch == 0)
+				{
+					clear(depthDirty[0], depthDirty[1], depthDirty[2], depthDirty[3], false, true);
+					RenderPackage.resetRectangle(depthDirty);
+				}
+				
+				packet.depthScale = Math.scalb(1.0f, -EPOCH_SHIFT * epoch);
+				break;
+		}
+		
+		RenderPackage.resetRectangle(dirty);
+	}
+	
+	// Clears the frame and/or depth of a rectangle clipped to the buffer
+	private void clear(int x0, int y0, int x1, int y1, boolean frame, boolean depth)
+	{
+		x0 = Math.max(x0, 0);
+		y0 = Math.max(y0, 0);
+		x1 = Math.min(x1, width);
+		y1 = Math.min(y1, height);
+		
+		if(x0 >= x1 || y0 >= y1)
+			return;
+		
+		final int cx0 = x0, cx1 = x1;
+		
+		if(packet.tiles != null)
+			packet.tiles.forRows(y0, y1, (from, to) -> clearRows(frame, depth, cx0, from, cx1, to));
+		else
+			clearRows(frame, depth, x0, y0, x1, y1);
+	}
+	
+	// Clears the rows [y0, y1) between x0 and x1 of the frame and/or depth, full rows (and whole tiles when tiled) are filled at once
+	private void clearRows(boolean frame, boolean depth, int x0, int y0, int x1, int y1)
+	{
+		if(layout == Layout.TILED)
+		{
+			int tiles = RenderPackage.tilesX(width);
+			
+			for(int ty = y0 >> 3; ty <= (y1 - 1) >> 3; ty++)
+				clearSpan(packet, frame, depth, (ty * tiles + (x0 >> 3)) << 6, (ty * tiles + ((x1 - 1) >> 3) + 1) << 6);
+			return;
+		}
+		
+		if(x0 == 0 && x1 == width)
+		{
+			clearSpan(packet, frame, depth, y0 * width, y1 * width);
+			return;
+		}
+		
+		for(int y = y0; y < y1; y++)
+			clearSpan(packet, frame, depth, y * width + x0, y * width + x1);
+	}
+	
+	// Clears the pixels [from, to) of the buffers in their formats
+	private static void clearSpan(RenderPackage pkg, boolean frame, boolean depth, int from, int to)
+	{
+		if(frame && pkg.frame565 != null) Arrays.fill(pkg.frame565, from, to, (char) 0);
+		else if(frame) Arrays.fill(pkg.frame, from, to, 0x000000);
+		
+		if(depth && pkg.depth16 != null) Arrays.fill(pkg.depth16, from, to, (char) 0);
+		else if(depth && pkg.depth24 != null) Arrays.fill(pkg.depth24, from, to, 0);
+		else if(depth) Arrays.fill(pkg.depth, from, to, Float.POSITIVE_INFINITY);
+	}
+	
+	// Copies the rows [y0, y1) of the frame into the linear image, RGB565 colours are expanded (the low bits repeat the
+	// high bits, so white stays white)
+	private void resolve(int y0, int y1)
+	{
+		int[] rows = packet.rows;
+		int[] columns = packet.columns;
+		
+		for(int y = y0; y < y1; y++)
+			for(int x = 0, row = rows[y], i = y * width; x < width; x++, i++)
+			{
+				if(frame565 == null)
+				{
+					image[i] = frame[row + columns[x]];
+					continue;
+				}
+				
+				int c = frame565[row + columns[x]];
+				int r = (c >> 11) & 0x1F;
+				int g = (c >> 5) & 0x3F;
+				int b = c & 0x1F;
+				image[i] = (((r << 3) | (r >> 2)) << 16) | (((g << 2) | (g >> 4)) << 8) | ((b << 3) | (b >> 2));
+			}
+	}
+	
+	// Returns the bytes held by the colour, depth and image arrays
+	public long getBytes()
+	{
+		return (long) image.length * 4 + (long) size * ((frame != null && frame != image ? 4 : 0) + (frame565 != null ? 2 : 0) + (depth16 != null ? 2 : 4));
+	}
+	
+	// Returns the render image, the frame is resolved first unless it is the image
+	public BufferedImage render()
+	{
+		if(frame != image)
 		{
-			frame[i] = 0x000000;
-			depth[i] = Float.POSITIVE_INFINITY;
+			if(packet.tiles != null)
+				packet.tiles.forRows(0, height, this::resolve);
+			else
+				resolve(0, height);
 		}
+		
+		return render;
 	}
 	
-	// Returns the render image
-	public BufferedImage render() { return render; }
 	public int getWidth() {return width;}
 	public int getHeight() {return height;}
+	public Clear getClear() { return clear; }
+	public ColorFormat getColorFormat() { return colorFormat; }
+	public DepthFormat getDepthFormat() { return depthFormat; }
+	public Layout getLayout() { return layout; }
 	public RenderPackage getPackage() { return packet; }
 }
@@ -0,0 +1,332 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/*
+ * File: RenderList.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * The structures of an environment flattened into arrays in topological order, every
+ * structure follows its parent and is followed by its descendants. A frame propagates
+ * the transformations from the parent indices into packed world transformations and a
+ * hidden or culled structure skips its whole range, so the hierarchy is not walked.
+ * A world transformation is only propagated when the structure's transform differs
+ * from the one last propagated or its parent's slot changed version, so static
+ * subtrees keep their transformations (and the vertices stamped with them). With
+ * matrices, positions are propagated through the parent's 3x4 matrix and each moved
+ * structure composes its own for the batch vertex transformation.
+ * Each root is compiled on its own, adding or removing a child structure recompiles
+ * only the root which contains it before the next frame. Cameras keep their place in
+ * the list but render themselves (they update their view before the next frame).
+ */
+
+public class RenderList
+{
+	public static final int FIRST = 1;		// Index of the first structure (slot 0 is the camera)
+	
+	private final ArrayList<Structure> roots = new ArrayList<Structure>();	// Structures of the environment in the order they are drawn
+	private HashMap<Structure, Integer> starts = new HashMap<Structure, Integer>();	// Index of each compiled root
+	private final HashSet<Structure> changed = new HashSet<Structure>();	// Roots whose children changed
+	private boolean dirty = false;				// Whether the list must be recompiled before the next frame
+	
+	private Structure[] nodes = new Structure[16];	// Structures in topological order
+	private int[] parent = new int[16];				// Index of the parent of each structure (0 for the roots)
+	private int[] end = new int[16];				// End of the range of each structure and its descendants
+	private boolean[] direct = new boolean[16];		// Structures rendered by their own render() with the camera's transformation (cameras)
+	private float[][] local = new float[16][];		// Local transformation of each structure (its transform)
+	private float[] world = new float[16 * 9];		// Final transformation of each structure (9 floats per structure)
+	private float[] trig = new float[16 * 6];		// Sines and cosines of the final rotations (6 floats per structure)
+	private float[] matrices = new float[16 * 12];	// 3x4 matrix of each world transformation (12 floats per structure)
+	private float[] previous = new float[16 * 9];	// Local transformation last propagated (9 floats per structure)
+	private int[] version = new int[16];			// Incremented when the world transformation is propagated
+	private int[] parentVersion = new int[16];		// Version of the parent's slot when the structure was propagated
+	private int[] loaded = new int[16];				// Version of the structure's transformation after loading its slot
+	private boolean tracking = true;				// Whether unchanged transformations are skipped
+	private boolean composed = false;				// Whether the slots were propagated with matrices
+	private int count = FIRST;
+	private Transformation reference;				// Transformation of the camera
+	
+	public RenderList()
+	{
+		Arrays.fill(world, 0, 9, Float.NaN);
+	}
+	
+	// Compiles the structures into the list
+	public void compile(List<Structure> structures)
+	{
+		roots.clear();
+		starts.clear();
+		roots.addAll(structures);
+		dirty = true;
+		update();
+	}
+	
+	// Adds a root structure, it is compiled before the next frame
+	public void add(Structure s)
+	{
+		roots.add(s);
+		dirty = true;
+	}
+	
+	// Removes a root structure before the next frame
+	public void remove(Structure s)
+	{
+		if(roots.remove(s))
+			dirty = true;
+	}
+	
+	// Recompiles a root before the next frame
+	void invalidate(Structure root)
+	{
+		changed.add(root);
+		dirty = true;
+	}
+	
+	// Recompiles the roots which were added or changed, the ranges of the others are copied
+	public void update()
+	{
+		if(!dirty)
+			return;
+		
+		Structure[] oldNodes = nodes;
+		int[] oldParent = parent;
+		int[] oldEnd = end;
+		boolean[] oldDirect = direct;
+		float[][] oldLocal = local;
+		float[] oldWorld = world;
+		float[] oldTrig = trig;
+		float[] oldMatrices = matrices;
+		float[] oldPrevious = previous;
+		int[] oldVersion = version;
+		int[] oldParentVersion = parentVersion;
+		int[] oldLoaded = loaded;
+		HashMap<Structure, Integer> oldStarts = starts;
+		
+		nodes = new Structure[oldNodes.length];
+		parent = new int[oldNodes.length];
+		end = new int[oldNodes.length];
+		direct = new boolean[oldNodes.length];
+		local = new float[oldNodes.length][];
+		world = Arrays.copyOf(oldWorld, oldWorld.length);
+		trig = Arrays.copyOf(oldTrig, oldTrig.length);
+		matrices = Arrays.copyOf(oldMatrices, oldMatrices.length);
+		previous = new float[oldPrevious.length];
+		version = Arrays.copyOf(oldVersion, oldVersion.length);
+		parentVersion = new int[oldNodes.length];
+		loaded = new int[oldNodes.length];
+		starts = new HashMap<Structure, Integer>();
+		count = FIRST;
+		
+		for(Structure r : roots)
+		{
+			Integer old = changed.contains(r) ? null : oldStarts.get(r);
+			starts.put(r, count);
+			
+			if(old == null)
+			{
+				flatten(r, 0, r);
+				continue;
+			}
+			
+			int n = oldEnd[old] - old;
+			int shift = count - old;
+			grow(count + n);
+			System.arraycopy(oldNodes, old, nodes, count, n);
+			System.arraycopy(oldDirect, old, direct, count, n);
+			System.arraycopy(oldLocal, old, local, count, n);
+			System.arraycopy(oldWorld, old * 9, world, count * 9, n * 9);
+			System.arraycopy(oldTrig, old * 6, trig, count * 6, n * 6);
+			System.arraycopy(oldMatrices, old * 12, matrices, count * 12, n * 12);
+			System.arraycopy(oldPrevious, old * 9, previous, count * 9, n * 9);
+			System.arraycopy(oldVersion, old, version, count, n);
+			System.arraycopy(oldParentVersion, old, parentVersion, count, n);
+			System.arraycopy(oldLoaded, old, loaded, count, n);
+			
+			for(int i = 0; i < n; i++)
+			{
+				parent[count + i] = i == 0 ? 0 : oldParent[old + i] + shift;
+				end[count + i] = oldEnd[old + i] + shift;
+			}
+			
+			count += n;
+		}
+		
+		end[0] = count;
+		changed.clear();
+		dirty = false;
+	}
+	
+	// Appends a structure and its descendants
+	private void flatten(Structure s, int p, Structure root)
+	{
+		int i = count++;
+		grow(count);
+		nodes[i] = s;
+		parent[i] = p;
+		local[i] = s.transform;
+		Arrays.fill(previous, i * 9, i * 9 + 9, Float.NaN);
+		s.list = this;
+		s.listRoot = root;
+		direct[i] = s instanceof Camera;
+		
+		if(!direct[i])
+			for(Renderable r : s.getCompiledChildren())
+				if(r instanceof Structure)
+					flatten((Structure) r, i, root);
+		
+		end[i] = count;
+	}
+	
+	// Grows the arrays to hold a number of structures
+	private void grow(int size)
+	{
+		if(size <= nodes.length)
+			return;
+		
+		int length = Math.max(size, nodes.length * 2);
+		nodes = Arrays.copyOf(nodes, length);
+		parent = Arrays.copyOf(parent, length);
+		end = Arrays.copyOf(end, length);
+		direct = Arrays.copyOf(direct, length);
+		local = Arrays.copyOf(local, length);
+		world = Arrays.copyOf(world, length * 9);
+		trig = Arrays.copyOf(trig, length * 6);
+		matrices = Arrays.copyOf(matrices, length * 12);
+		previous = Arrays.copyOf(previous, length * 9);
+		version = Arrays.copyOf(version, length);
+		parentVersion = Arrays.copyOf(parentVersion, length);
+		loaded = Arrays.copyOf(loaded, length);
+	}
+	
+	// Sets the transformation of the camera, the parent of the roots, and whether the structures are propagated with matrices
+	public void setReference(Transformation camera, boolean matrices)
+	{
+		reference = camera;
+		
+		// Switching paths propagates every structure again
+		if(camera.store(world, trig, this.matrices, 0) || composed != matrices)
+			version[0]++;
+		
+		composed = matrices;
+	}
+	
+	// Refits the bounding spheres from the last structure back, so descendants are refit before their parents
+	public void refitBounds()
+	{
+		for(int i = count - 1; i >= FIRST; i--)
+			if(!direct[i])
+				nodes[i].refitNode();
+	}
+	
+	// Renders the structures in [from, to), a structure which is hidden or culled skips its descendants
+	public void render(RenderPackage context, int from, int to)
+	{
+		DepthPyramid occlusion = context.occlusion;
+		int restore = to;	// End of a range which is not tested against the depth (nothing is in front of it)
+		
+		for(int i = from; i < to;)
+		{
+			if(i >= restore)
+			{
+				context.occlusion = occlusion;
+				restore = to;
+			}
+			
+			Structure s = nodes[i];
+			
+			if(direct[i])
+			{
+				context.transform = reference;
+				s.render(context);
+				i = end[i];
+				continue;
+			}
+			
+			long start = context.stats.start();
+			if(propagate(i))
+				context.stats.count(RenderStats.Counter.TRANSFORMS_UPDATED, 1);
+			context.stats.stop(RenderStats.Stage.TRANSFORM, start);
+			
+			if(!s.isShown() || s.isCulled(context))
+			{
+				i = end[i];
+				continue;
+			}
+			
+			// Nothing is in front of the structure, so its descendants do not need to be tested
+			if(s.occlusionResult == DepthPyramid.IN_FRONT && context.occlusion != null)
+			{
+				context.occlusion = null;
+				restore = end[i];
+			}
+			
+			context.transform = parent[i] == 0 ? reference : nodes[parent[i]].transformation;
+			s.draw(context, true);
+			i++;
+		}
+		
+		context.occlusion = occlusion;
+	}
+	
+	// Propagates the transformation of a root and tests its bounding sphere against a depth pyramid
+	public int propagateAndTest(RenderPackage context, int root, DepthPyramid pyramid)
+	{
+		propagate(root);
+		return nodes[root].testOcclusion(context, pyramid);
+	}
+	
+	// Propagates the transformation of a structure from its parent's if either changed, returns false if it was skipped
+	private boolean propagate(int i)
+	{
+		Transformation t = nodes[i].transformation;
+		int p = parent[i];
+		boolean moved = !tracking || parentVersion[i] != version[p] || moved(i);
+		
+		if(moved)
+		{
+			if(composed)
+				Transformation.propagateMatrix(local[i], world, trig, matrices, p, i);
+			else
+				Transformation.propagate(local[i], world, trig, p, i);
+			System.arraycopy(local[i], 0, previous, i * 9, 9);
+			parentVersion[i] = version[p];
+			version[i]++;
+		}
+		
+		// A transformation propagated outside of the list (by the hierarchy walk) is loaded again
+		if(moved || t.version != loaded[i])
+		{
+			if(composed)
+				t.load(world, trig, matrices, i);
+			else
+				t.load(world, trig, i);
+			loaded[i] = t.version;
+		}
+		
+		return moved;
+	}
+	
+	// Returns whether the local transformation differs from the one last propagated
+	private boolean moved(int i)
+	{
+		float[] l = local[i];
+		int n = i * 9;
+		
+		for(int k = 0; k < 9; k++)
+			if(l[k] != previous[n + k])
+				return true;
+		
+		return false;
+	}
+	
+	// Sets whether unchanged transformations are skipped (false propagates every structure each frame)
+	public void setTracking(boolean tracking) { this.tracking = tracking; }
+	public boolean isTracking() { return tracking; }
+	
+	public Structure get(int index) { return nodes[index]; }
+	public int next(int index) { return end[index]; }
+	public int size() { return count; }
+}
@@ -1,18 +1,161 @@
+/*
+ * File: RenderPackage.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ * 
+ * Render context passed down the render() call chain. Each camera owns its own
+ * package, so separate environments can be rendered on separate threads.
+ * With compact formats (see RenderBuffer) the pixels are tested and written through
+ * nearer() and write(). Integer depths are reverse mapped, the nearest depth of the
+ * camera is the largest value and a cleared pixel is 0, so the precision follows the
+ * precision of the projection instead of being spent on distant depths.
+ * Pixel (x, y) of the buffers is at rows[y] + columns[x]. In the linear layout these
+ * are y * width and x, in the tiled layout the buffers are 8x8 tiles in rows and the
+ * pixels of a tile are in Morton order, so a tile is 64 consecutive pixels.
+ */
 
 public class RenderPackage 
 {
 	Camera camera = null;
 	Transformation transform = null;
-	final float[] depth;
-	final int[] frame;
+	TileRenderer tiles = null;		// Tile binner, triangles are rasterized immediately when null
+	RenderStats stats = new RenderStats();	// Frame metrics (disabled unless the owner enables them)
+	RenderableTriangle.Rasterizer rasterizer = RenderableTriangle.Rasterizer.SCANLINE;	// Algorithm filling the triangles
+	boolean matrices = false;		// Whether vertices are transformed by composed 3x4 matrices
+	boolean batch = false;			// Whether vertices are projected once in batches instead of per triangle
+	boolean micro = true;			// Whether triangles covering a single sample are drawn from that sample alone
+	DepthPyramid occlusion = null;	// Depth of the frame so far, structures and triangles behind it are skipped when set
+	float depthScale = 1;			// Scale of the depths written this frame (see RenderBuffer)
+	final int[] dirty = new int[4];	// Rectangle drawn this frame (x0, y0, x1, y1)
+	final float[] depth;			// Float depths (null with integer depths)
+	final int[] frame;				// ARGB colours (the presented image when the layout is linear, unused when frame565 is set)
+	final char[] frame565;			// RGB565 colours (null unless the colour format is compact)
+	final char[] depth16;			// 16 bit integer depths (null unless the depth format)
+	final int[] depth24;			// 24 bit integer depths (null unless the depth format)
+	final boolean compact;			// Whether either buffer has a compact format
+	float depthRange;				// Depth mapped to 1 by the integer depth, times the largest integer depth
+	int depthMax;					// Largest integer depth
 	final int width;
 	final int height;
+	final boolean tiled;			// Whether the buffers are in 8x8 Morton ordered tiles
+	final int[] rows;				// Index of the first pixel of each row
+	final int[] columns;			// Offset of each column from the first pixel of its row
+	
+	// Scratch record for rasterizing triangles immediately
+	final float[] setup = new float[RenderableTriangle.REC_SIZE];
+	final int[] bounds = new int[RenderableTriangle.BOUNDS_SIZE];
+	float[] lights = new float[0];	// Lights of the vertices of the triangles of the mesh being drawn (batch path, see BatchKernels)
+	
+	// Faces are shared by the instances of a model, so what they draw each frame is kept in the package
+	VertexCache vertices = null;	// Transformed vertices of the body group being drawn
+	final RenderableTriangle triangle = new RenderableTriangle(Material.DEFAULT_MAT, new Vertex[3], new float[3][6]);	// Projected and lit vertices of the face being drawn
 	
 	public RenderPackage(int[] frm, float[] dp, int w, int h)
+	{
+		this(frm, null, dp, null, null, w, h, false);
+	}
+	
+	// Creates a package for buffers of any format and layout, only one depth buffer is set
+	public RenderPackage(int[] frm, char[] frm565, float[] dp, char[] dp16, int[] dp24, int w, int h, boolean tiled)
 	{
 		depth = dp;
 		frame = frm;
+		frame565 = frm565;
+		depth16 = dp16;
+		depth24 = dp24;
+		compact = frm565 != null || dp == null;
+		depthMax = dp16 != null ? 0xFFFF : 0xFFFFFF;
 		width = w;
 		height = h;
+		this.tiled = tiled;
+		rows = new int[h];
+		columns = new int[w];
+		
+		for(int y = 0; y < h; y++)
+			rows[y] = tiled ? (y >> 3) * tilesX(w) * 64 + (morton(y & 7) << 1) : y * w;
+		for(int x = 0; x < w; x++)
+			columns[x] = tiled ? ((x >> 3) << 6) + morton(x & 7) : x;
+		
+		resetRectangle(dirty);
+	}
+	
+	// Spreads the three bits of a coordinate within a tile to every other bit
+	private static int morton(int v)
+	{
+		return (v & 1) | ((v & 2) << 1) | ((v & 4) << 2);
+	}
+	
+	// Returns the number of 8x8 tiles across a width
+	static int tilesX(int width)
+	{
+		return (width + 7) >> 3;
+	}
+	
+	// Returns whether a depth is nearer than the depth stored at a pixel
+	boolean nearer(int index, float d)
+	{
+		if(depth16 != null)
+			return depth16[index] < depthKey(d);
+		if(depth24 != null)
+			return depth24[index] < depthKey(d);
+		return depth[index] > d;
+	}
+	
+	// Writes the colour and depth of a pixel
+	void write(int index, float d, int color)
+	{
+		if(frame565 != null)
+			frame565[index] = (char)(((color >> 8) & 0xF800) | ((color >> 5) & 0x07E0) | ((color >> 3) & 0x001F));
+		else
+			frame[index] = color;
+		
+		if(depth16 != null)
+			depth16[index] = (char) depthKey(d);
+		else if(depth24 != null)
+			depth24[index] = depthKey(d);
+		else
+			depth[index] = d;
+	}
+	
+	// Reverse maps a depth to an integer, nearer depths are larger and every depth is at least 1 (0 is cleared)
+	int depthKey(float d)
+	{
+		float key = depthRange / d;
+		return key >= depthMax ? depthMax : key < 1 ? 1 : (int) key;
+	}
+	
+	// Copies the depths into a linear array, integer depths are decoded so that a decoded depth is never nearer than the depth
+	// drawn (cleared and clamped depths are infinite)
+	void linearDepth(float[] out)
+	{
+		for(int y = 0, i = 0; y < height; y++)
+			for(int x = 0; x < width; x++, i++)
+			{
+				int index = rows[y] + columns[x];
+				int key = depth16 != null ? depth16[index] : depth24 != null ? depth24[index] : 0;
+				out[i] = depth != null ? depth[index] : key <= 1 ? Float.POSITIVE_INFINITY : depthRange / key;
+			}
+	}
+	
+	// Grows the rectangle drawn this frame to hold the bounds of a triangle
+	void touch(int[] bounds, int b)
+	{
+		growRectangle(dirty, bounds, b);
+	}
+	
+	// Grows a rectangle (x0, y0, x1, y1) to hold another
+	static void growRectangle(int[] rect, int[] other, int o)
+	{
+		if(other[o] < rect[0]) rect[0] = other[o];
+		if(other[o + 1] < rect[1]) rect[1] = other[o + 1];
+		if(other[o + 2] > rect[2]) rect[2] = other[o + 2];
+		if(other[o + 3] > rect[3]) rect[3] = other[o + 3];
+	}
+	
+	// Empties a rectangle, growing it sets it to the other
+	static void resetRectangle(int[] rect)
+	{
+		rect[0] = rect[1] = Integer.MAX_VALUE;
+		rect[2] = rect[3] = Integer.MIN_VALUE;
 	}
 }
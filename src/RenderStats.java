@@ -0,0 +1,191 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+ * File: RenderStats.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Metrics registry of a camera. Stage times are summed over a frame and recorded
+ * into a latency histogram when the frame ends, counters are lock-free so the
+ * rasterizer threads can add to them. Stats are off by default, in which case every
+ * call is a single branch. Timing the stages costs a few nanoTime() calls per
+ * triangle while enabled.
+ * Note: setEnabled() and the stage timers are used by the thread rendering the camera.
+ */
+
+public class RenderStats implements RenderStatsMBean
+{
+	// Stages of a frame
+	public enum Stage { CLEAR, TRANSFORM, PLANE, PROJECT, SETUP, RASTER, OCCLUSION, PRESENT }
+	
+	// Counted events
+	public enum Counter { TRIANGLES_SUBMITTED, TRIANGLES_REJECTED, TRIANGLES_DRAWN, PIXELS_TESTED, PIXELS_WRITTEN, STRUCTURES_CULLED, BACKFACES_CULLED, STRUCTURES_OCCLUDED, TRIANGLES_OCCLUDED, VERTICES_TRANSFORMED, TRANSFORMS_UPDATED, VERTICES_PROJECTED, TRIANGLES_MICRO }
+	
+	private static final Stage[] STAGES = Stage.values();
+	private static final Counter[] COUNTERS = Counter.values();
+	
+	boolean enabled = false;									// Whether stats are collected
+	
+	private final long[] frameTimes = new long[STAGES.length];	// Stage times of the current frame
+	private final LatencyHistogram[] stages = new LatencyHistogram[STAGES.length];
+	private final LongAdder[] counters = new LongAdder[COUNTERS.length];
+	private final AtomicLong frames = new AtomicLong();
+	
+	public RenderStats()
+	{
+		for(int i = 0; i < stages.length; i++)
+			stages[i] = new LatencyHistogram();
+		
+		for(int i = 0; i < counters.length; i++)
+			counters[i] = new LongAdder();
+	}
+	
+	// Starts timing a stage, returns 0 when disabled
+	public long start()
+	{
+		return enabled ? System.nanoTime() : 0;
+	}
+	
+	// Adds the time since start() to a stage of the current frame
+	public void stop(Stage stage, long start)
+	{
+		if(enabled)
+			frameTimes[stage.ordinal()] += System.nanoTime() - start;
+	}
+	
+	// Records a stage which happens once per frame outside of the camera (e.g. presenting)
+	public void record(Stage stage, long nanos)
+	{
+		if(enabled)
+			stages[stage.ordinal()].record(nanos);
+	}
+	
+	// Adds to a counter (safe from any thread)
+	public void count(Counter counter, long n)
+	{
+		if(enabled && n != 0)
+			counters[counter.ordinal()].add(n);
+	}
+	
+	// Records the stage times of the current frame
+	public void endFrame()
+	{
+		if(!enabled)
+			return;
+		
+		for(int i = 0; i < frameTimes.length; i++)
+		{
+			if(STAGES[i] != Stage.PRESENT)
+				stages[i].record(frameTimes[i]);
+			frameTimes[i] = 0;
+		}
+		
+		frames.incrementAndGet();
+	}
+	
+	// Clears all recorded stats
+	public void reset()
+	{
+		for(LatencyHistogram h : stages)
+			h.reset();
+		
+		for(LongAdder c : counters)
+			c.reset();
+		
+		frames.set(0);
+	}
+	
+	// Copies the current stats
+	public Snapshot snapshot()
+	{
+		return new Snapshot(this);
+	}
+	
+	// Registers the stats with the platform MBean server as "engine:type=RenderStats,name=<name>"
+	public void export(String name)
+	{
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("engine:type=RenderStats,name=" + ObjectName.quote(name)));
+		}
+		catch (JMException e) { System.out.println("ERROR - FAILED TO EXPORT RENDER STATS: " + name); }
+	}
+	
+	public boolean isEnabled() { return enabled; }
+	public void setEnabled(boolean enabled) { this.enabled = enabled; }
+	
+	public long getCounter(Counter counter) { return counters[counter.ordinal()].sum(); }
+	public long getFrames() { return frames.get(); }
+	public long getTrianglesSubmitted() { return getCounter(Counter.TRIANGLES_SUBMITTED); }
+	public long getTrianglesRejected() { return getCounter(Counter.TRIANGLES_REJECTED); }
+	public long getTrianglesDrawn() { return getCounter(Counter.TRIANGLES_DRAWN); }
+	public long getPixelsTested() { return getCounter(Counter.PIXELS_TESTED); }
+	public long getPixelsWritten() { return getCounter(Counter.PIXELS_WRITTEN); }
+	
+	public String[] getCounterNames() { return names(COUNTERS); }
+	public long[] getCounters() { return snapshot().counters; }
+	public String[] getStageNames() { return names(STAGES); }
+	public double[] getStageMeanMicros() { return snapshot().mean; }
+	public double[] getStageP50Micros() { return snapshot().p50; }
+	public double[] getStageP99Micros() { return snapshot().p99; }
+	public double[] getStageMaxMicros() { return snapshot().max; }
+	
+	private static String[] names(Enum<?>[] values)
+	{
+		String[] names = new String[values.length];
+		for(int i = 0; i < values.length; i++)
+			names[i] = values[i].name();
+		return names;
+	}
+	
+	// Point in time copy of the stats, stage times are in microseconds per frame
+	public static class Snapshot
+	{
+		public final long frames;
+		public final long[] counters = new long[COUNTERS.length];
+		public final double[] mean = new double[STAGES.length];
+		public final double[] p50 = new double[STAGES.length];
+		public final double[] p99 = new double[STAGES.length];
+		public final double[] max = new double[STAGES.length];
+		
+		private Snapshot(RenderStats stats)
+		{
+			frames = stats.frames.get();
+			
+			for(int i = 0; i < counters.length; i++)
+				counters[i] = stats.counters[i].sum();
+			
+			for(int i = 0; i < mean.length; i++)
+			{
+				long[] h = stats.stages[i].snapshot();
+				mean[i] = LatencyHistogram.mean(h) / 1000;
+				p50[i] = LatencyHistogram.percentile(h, 50) / 1000.0;
+				p99[i] = LatencyHistogram.percentile(h, 99) / 1000.0;
+				max[i] = LatencyHistogram.percentile(h, 100) / 1000.0;
+			}
+		}
+		
+		public long get(Counter counter) { return counters[counter.ordinal()]; }
+		public double mean(Stage stage) { return mean[stage.ordinal()]; }
+		public double p99(Stage stage) { return p99[stage.ordinal()]; }
+		
+		@Override
+		// Table of stage times and counters (counters are averaged per frame)
+		public String toString()
+		{
+			StringBuilder s = new StringBuilder(String.format("%d frames%n%-10s %10s %10s %10s %10s%n", frames, "stage (us)", "mean", "p50", "p99", "max"));
+			
+			for(int i = 0; i < mean.length; i++)
+				s.append(String.format("%-10s %10.1f %10.1f %10.1f %10.1f%n", STAGES[i], mean[i], p50[i], p99[i], max[i]));
+			
+			for(int i = 0; i < counters.length; i++)
+				s.append(String.format("%-20s %14d (%.1f per frame)%n", COUNTERS[i], counters[i], frames == 0 ? 0.0 : (double) counters[i] / frames));
+			
+			return s.toString();
+		}
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * File: RenderStatsMBean.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Management interface of RenderStats, exported over JMX by RenderStats.export()
+ */
+
+public interface RenderStatsMBean
+{
+	boolean isEnabled();
+	void setEnabled(boolean enabled);
+	void reset();
+	
+	long getFrames();
+	long getTrianglesSubmitted();
+	long getTrianglesRejected();
+	long getTrianglesDrawn();
+	long getPixelsTested();
+	long getPixelsWritten();
+	String[] getCounterNames();
+	long[] getCounters();
+	
+	String[] getStageNames();
+	double[] getStageMeanMicros();
+	double[] getStageP50Micros();
+	double[] getStageP99Micros();
+	double[] getStageMaxMicros();
+}
@@ -8,14 +8,13 @@
 
 public abstract class Renderable
 {
-	protected static RenderPackage binded;
 	protected boolean visible = true; // sets if object will show during rendering
 	
 	// Processes object when rendering process begins
 	public abstract void finalizeRender();
 	
-	// Updates transformation and renders object to camera
-	public abstract void render();
+	// Updates transformation and renders object to the camera of the render context
+	public abstract void render(RenderPackage context);
 	
 	// Toggles visibility of structure
 	public void toggleVisibility() { visible = !visible;}
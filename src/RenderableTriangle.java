@@ -9,48 +9,179 @@ public class RenderableTriangle extends Renderable
 	private static final byte TY = 4;
 	private static final byte LT = 5;
 	
+	// Layout of a triangle setup record
+	public static final byte REC_S = 0;
+	public static final byte REC_T = 1;
+	public static final byte REC_DSX = 2;
+	public static final byte REC_DTX = 3;
+	public static final byte REC_DSY = 4;
+	public static final byte REC_DTY = 5;
+	public static final byte REC_D = 6;
+	public static final byte REC_D_S = 7;
+	public static final byte REC_D_T = 8;
+	public static final byte REC_LT = 9;
+	public static final byte REC_LT_S = 10;
+	public static final byte REC_LT_T = 11;
+	public static final byte REC_TX = 12;
+	public static final byte REC_TY = 13;
+	public static final byte REC_TX_S = 14;
+	public static final byte REC_TX_T = 15;
+	public static final byte REC_TY_S = 16;
+	public static final byte REC_TY_T = 17;
+	public static final byte REC_RHO = 18;		// Squared texels per pixel along the steeper screen axis (picks the mip level)
+	public static final byte REC_SIZE = 19;
+	
+	// Layout of the bounds of a set up triangle (pixel rectangle [xmin, xmax) x [ymin, ymax) followed by the edge data)
+	public static final byte BOUNDS_EDGE = 4;		// 1 when set up by setupEdges(), POINT when drawn from a single sample
+	public static final byte BOUNDS_FIXED = 5;		// Fixed point x, y of the vertices ordered to a positive area
+	public static final byte BOUNDS_SIZE = 11;
+	public static final byte POINT = 2;
+	
+	// Results of setting up a triangle from a single sample
+	private static final int DROPPED = 0;		// No pixels are covered
+	private static final int COVERED = 1;		// The sample is covered
+	private static final int LARGER = -1;		// More than one sample, the triangle is set up normally
+	
+	// Rasterization algorithms
+	public enum Rasterizer { SCANLINE, EDGE }
+	
+	// Fixed point edge rasterizer
+	public static final int SUB_BITS = 4;				// Sub-pixel precision of vertex positions
+	public static final int BLOCK_BITS = 3;				// 8x8 pixel blocks
+	private static final int HALF = 1 << (SUB_BITS - 1);	// Centre of a pixel
+	private static final float GUARD = 1 << 14;			// Largest vertex coordinate (pixels) handled in fixed point
+	
 	public Material material;
 	public Vertex[] vertices;
 	public float[][] pixelData;
-	public float[][] projections;
+	public float[] positions;		// Packed positions of the vertices relative to the camera
+	public float[] projected;		// Packed screen positions of the vertices (batch projection)
+	public int p1;					// Offsets of the vertices in positions
+	public int p2;
+	public int p3;
 	public float[] v1;
 	public float[] v2;
 	public float[] v3;
+	public RenderableTriangle source = this;	// Fills the pixels (the triangle of a face drawn through the triangle of a render package)
 	
-	private int[] texture;
-	private short[] r_image;
-	private short[] g_image;
-	private short[] b_image;
-	private float s_vector_tx_comp;
-	private float s_vector_ty_comp;
-	private float t_vector_tx_comp;
-	private float t_vector_ty_comp;
+	private int[][] levels;			// ARGB texels of each mip level of the material (see Material)
+	private int[] levelTiles;		// Bits of the width of the texel tiles of each level (0 when the texels are linear)
 	
 	public RenderableTriangle(Material m, Vertex[] v, float[][] data)
 	{
 		material = m;
 		vertices = v;
 		pixelData = data;
-		projections = new float[v.length][];
 		v1 = pixelData[0];
 		v2 = pixelData[1];
 		v3 = pixelData[2];
 	}
 	
+	// Caches the texture of the material, everything else a fill needs is in the setup record
 	public void finalizeRender()
 	{
-		s_vector_tx_comp = (v2[TX] - v1[TX]);
-		s_vector_ty_comp = (v2[TY] - v1[TY]);
-		t_vector_tx_comp = (v3[TX] - v1[TX]);
-		t_vector_ty_comp = (v3[TY] - v1[TY]);
-		texture = material.getTexture();
-		r_image = material.getRedChannel();
-		g_image = material.getGreenChannel();
-		b_image = material.getBlueChannel();
+		levels = material.getLevels();
+		levelTiles = material.levelTiles;
+	}
+	
+	// Copies the screen positions of the vertices projected in a batch, returns false if one is not in front of the camera
+	public boolean gather()
+	{
+		float[] s = projected;
+		
+		if(s[p1 + DEPTH] < 0 || s[p2 + DEPTH] < 0 || s[p3 + DEPTH] < 0)
+			return false;
+		
+		v1[X] = s[p1];
+		v1[Y] = s[p1 + Y];
+		v1[DEPTH] = s[p1 + DEPTH];
+		v2[X] = s[p2];
+		v2[Y] = s[p2 + Y];
+		v2[DEPTH] = s[p2 + DEPTH];
+		v3[X] = s[p3];
+		v3[Y] = s[p3 + Y];
+		v3[DEPTH] = s[p3 + DEPTH];
+		return true;
 	}
 	
 	// Dynamic Lighting (simplified)
-	public void render()
+	// Binned triangles are queued and set up by the tile renderer when it is flushed, the others are set up and filled now
+	public void render(RenderPackage context)
+	{
+		long start = context.stats.start();
+		
+		if(context.occlusion != null && isOccluded(context.occlusion))
+		{
+			context.stats.count(RenderStats.Counter.TRIANGLES_OCCLUDED, 1);
+			context.stats.count(RenderStats.Counter.TRIANGLES_REJECTED, 1);
+			context.stats.stop(RenderStats.Stage.SETUP, start);
+			return;
+		}
+		
+		if(context.tiles != null)
+		{
+			context.tiles.submit(this, context.rasterizer);
+			context.stats.stop(RenderStats.Stage.SETUP, start);
+			return;
+		}
+		
+		boolean covered = setup(context.rasterizer, context.micro, v1, v2, v3, context.setup, 0, context.bounds, 0, context.width, context.height);
+		context.stats.count(covered ? RenderStats.Counter.TRIANGLES_DRAWN : RenderStats.Counter.TRIANGLES_REJECTED, 1);
+		if(covered && context.bounds[BOUNDS_EDGE] == POINT)
+			context.stats.count(RenderStats.Counter.TRIANGLES_MICRO, 1);
+		context.stats.stop(RenderStats.Stage.SETUP, start);
+		
+		if(covered)
+		{
+			context.touch(context.bounds, 0);
+			start = context.stats.start();
+			source.fill(context, context.setup, 0, context.bounds, 0, 0, 0, context.width, context.height);
+			context.stats.stop(RenderStats.Stage.RASTER, start);
+		}
+	}
+	
+	// Tests the screen bounds and nearest depth of the projected vertices against a depth pyramid
+	private boolean isOccluded(DepthPyramid pyramid)
+	{
+		float[] p1 = pixelData[0];
+		float[] p2 = pixelData[1];
+		float[] p3 = pixelData[2];
+		float nearest = Math.min(p1[DEPTH], Math.min(p2[DEPTH], p3[DEPTH])) * 0.9999f;
+		
+		return pyramid.test((int) Math.min(p1[X], Math.min(p2[X], p3[X])) - 2, (int) Math.min(p1[Y], Math.min(p2[Y], p3[Y])) - 2,
+				(int) Math.max(p1[X], Math.max(p2[X], p3[X])) + 3, (int) Math.max(p1[Y], Math.max(p2[Y], p3[Y])) + 3,
+				nearest, Float.POSITIVE_INFINITY) == DepthPyramid.OCCLUDED;
+	}
+	
+	// Sets up the triangle for a rasterizer, returns false if no pixels are covered
+	public boolean setup(Rasterizer rasterizer, float[] rec, int r, int[] bounds, int b, int width, int height)
+	{
+		return setup(rasterizer, false, v1, v2, v3, rec, r, bounds, b, width, height);
+	}
+	
+	// Calculates the rasterization constants of the triangle into a record, returns false if no pixels are covered
+	public boolean setup(float[] rec, int r, int[] bounds, int b, int width, int height)
+	{
+		return setup(v1, v2, v3, rec, r, bounds, b, width, height);
+	}
+	
+	// Sets up a triangle of vertex data (x, y, depth, tx, ty, light) for a rasterizer, returns false if no pixels are covered
+	// Only the vertices are read, so triangles can be set up in parallel from copies of their vertices (see TileRenderer)
+	// With micro set, triangles whose bounds hold a single sample of the rasterizer are set up from that sample alone
+	public static boolean setup(Rasterizer rasterizer, boolean micro, float[] v1, float[] v2, float[] v3, float[] rec, int r, int[] bounds, int b, int width, int height)
+	{
+		if(micro)
+		{
+			int result = rasterizer == Rasterizer.EDGE ? sampleEdges(v1, v2, v3, rec, r, bounds, b, width, height) : sample(v1, v2, v3, rec, r, bounds, b, width, height);
+			if(result != LARGER)
+				return result == COVERED;
+		}
+		
+		return rasterizer == Rasterizer.EDGE ? setupEdges(v1, v2, v3, rec, r, bounds, b, width, height) : setup(v1, v2, v3, rec, r, bounds, b, width, height);
+	}
+	
+	// Calculates the rasterization constants of a triangle into a record, returns false if no pixels are covered
+	public static boolean setup(float[] v1, float[] v2, float[] v3, float[] rec, int r, int[] bounds, int b, int width, int height)
 	{
 		// Order the vertices
 		float[] x_min, x_max, y_min, y_max;
@@ -111,6 +242,15 @@ public class RenderableTriangle extends Renderable
 			}
 		}
 		
+		int xmin = x_min[0] < 0 ? 0 : (int) x_min[0];
+		int ymin = y_min[1] < 0 ? 0 : (int) y_min[1];
+		int xmax = x_max[0] >= width ? width - 1 : (int) x_max[0];
+		int ymax = y_max[1] >= height ? height - 1 : (int) y_max[1];
+		
+		// Nothing to draw (off screen or zero area)
+		if(xmin >= xmax || ymin >= ymax || (v2[X] - v1[X]) * (v3[Y] - v1[Y]) == (v2[Y] - v1[Y]) * (v3[X] - v1[X]))
+			return false;
+		
 		// Constants for solving S & T
 		float int_vector_denomonator = 1 / ((v2[X] - v1[X]) - (v3[X] - v1[X]) / (v3[Y] - v1[Y]) * (v2[Y] - v1[Y]));
 		float int_vector_t_ratio = (v3[X] - v1[X]) / (v3[Y] - v1[Y]);
@@ -122,53 +262,521 @@ public class RenderableTriangle extends Renderable
 		float s_x_axis = (x_max[0] - v1[0] + int_vector_t_ratio * v1[1] - int_vector_t_ratio * y_min[1]) * int_vector_denomonator;
 		// Y-axis (0,1)
 		float s_y_axis = (x_min[0] - v1[0] + int_vector_t_ratio * v1[1] - int_vector_t_ratio * y_max[1]) * int_vector_denomonator;
-
+		
 		float dsx = (s_x_axis - s_origin) / (x_max[0] - x_min[0]);
 		float dtx = ((y_min[1] - v1[1] - (v2[Y] - v1[Y]) * s_x_axis) / (v3[Y] - v1[Y]) - t_origin) / (x_max[0] - x_min[0]);
 		float dsy = (s_y_axis - s_origin) / (y_max[1] - y_min[1]);
 		float dty = ((y_max[1] - v1[1] - (v2[Y] - v1[Y]) * s_y_axis) / (v3[Y] - v1[Y]) - t_origin) / (y_max[1] - y_min[1]);
-
-		int xmin = x_min[0] < 0 ? 0 : (int) x_min[0];
-		int ymin = y_min[1] < 0 ? 0 : (int) y_min[1];
-		int xmax = x_max[0] >= binded.width ? binded.width - 1 : (int) x_max[0];
-		int ymax = y_max[1] >= binded.height ? binded.height - 1 : (int) y_max[1];
 		
-		float s_y = s_origin + (y_min[1] < 0 ? -y_min[1] * dsy : 0);
-		float t_y = t_origin + (y_min[1] < 0 ? -y_min[1] * dty : 0);
+		rec[r + REC_S] = s_origin + (y_min[1] < 0 ? -y_min[1] * dsy : 0);
+		rec[r + REC_T] = t_origin + (y_min[1] < 0 ? -y_min[1] * dty : 0);
+		rec[r + REC_DSX] = dsx;
+		rec[r + REC_DTX] = dtx;
+		rec[r + REC_DSY] = dsy;
+		rec[r + REC_DTY] = dty;
+		setupAttributes(v1, v2, v3, rec, r);
+		
+		bounds[b] = xmin;
+		bounds[b + 1] = ymin;
+		bounds[b + 2] = xmax;
+		bounds[b + 3] = ymax;
+		bounds[b + BOUNDS_EDGE] = 0;
+		return true;
+	}
+	
+	// Calculates the constants of the fixed point edge rasterizer into a record, returns false if no pixels are covered
+	// Pixels are sampled at their centre and pixels exactly on an edge are only drawn for top and left edges, so triangles
+	// sharing an edge never leave gaps or draw a pixel twice. Triangles reaching outside of the guard band use setup().
+	public static boolean setupEdges(float[] v1, float[] v2, float[] v3, float[] rec, int r, int[] bounds, int b, int width, int height)
+	{
+		if(!(inGuard(v1) && inGuard(v2) && inGuard(v3)))
+			return setup(v1, v2, v3, rec, r, bounds, b, width, height);
+		
+		int x0 = Math.round(v1[X] * (1 << SUB_BITS));
+		int y0 = Math.round(v1[Y] * (1 << SUB_BITS));
+		int x1 = Math.round(v2[X] * (1 << SUB_BITS));
+		int y1 = Math.round(v2[Y] * (1 << SUB_BITS));
+		int x2 = Math.round(v3[X] * (1 << SUB_BITS));
+		int y2 = Math.round(v3[Y] * (1 << SUB_BITS));
+		
+		// Twice the signed area, zero area triangles cover nothing
+		long area = (long)(x1 - x0) * (y2 - y0) - (long)(y1 - y0) * (x2 - x0);
+		if(area == 0)
+			return false;
+		
+		// Order the vertices to a positive area, S & T still belong to the second and third vertex
+		boolean swapped = area < 0;
+		if(swapped)
+		{
+			int x = x1, y = y1;
+			x1 = x2; y1 = y2;
+			x2 = x; y2 = y;
+			area = -area;
+		}
+		
+		// Pixels whose centres lie inside the bounds of the vertices
+		int xmin = Math.max(-((HALF - Math.min(x0, Math.min(x1, x2))) >> SUB_BITS), 0);
+		int ymin = Math.max(-((HALF - Math.min(y0, Math.min(y1, y2))) >> SUB_BITS), 0);
+		int xmax = Math.min(((Math.max(x0, Math.max(x1, x2)) - HALF) >> SUB_BITS) + 1, width);
+		int ymax = Math.min(((Math.max(y0, Math.max(y1, y2)) - HALF) >> SUB_BITS) + 1, height);
+		
+		// Nothing to draw
+		if(xmin >= xmax || ymin >= ymax)
+			return false;
+		
+		// Barycentric weights of the second and third vertex at the centre of the first pixel and their steps per pixel
+		long px = ((long) xmin << SUB_BITS) + HALF;
+		long py = ((long) ymin << SUB_BITS) + HALF;
+		double inv = 1.0 / area;
+		double w1 = ((long)(x0 - x2) * (py - y2) - (long)(y0 - y2) * (px - x2)) * inv;
+		double w1x = (long)(y2 - y0) * (1 << SUB_BITS) * inv;
+		double w1y = (long)(x0 - x2) * (1 << SUB_BITS) * inv;
+		double w2 = ((long)(x1 - x0) * (py - y0) - (long)(y1 - y0) * (px - x0)) * inv;
+		double w2x = (long)(y0 - y1) * (1 << SUB_BITS) * inv;
+		double w2y = (long)(x1 - x0) * (1 << SUB_BITS) * inv;
+		
+		rec[r + REC_S] = (float)(swapped ? w2 : w1);
+		rec[r + REC_T] = (float)(swapped ? w1 : w2);
+		rec[r + REC_DSX] = (float)(swapped ? w2x : w1x);
+		rec[r + REC_DTX] = (float)(swapped ? w1x : w2x);
+		rec[r + REC_DSY] = (float)(swapped ? w2y : w1y);
+		rec[r + REC_DTY] = (float)(swapped ? w1y : w2y);
+		setupAttributes(v1, v2, v3, rec, r);
+		
+		bounds[b] = xmin;
+		bounds[b + 1] = ymin;
+		bounds[b + 2] = xmax;
+		bounds[b + 3] = ymax;
+		bounds[b + BOUNDS_EDGE] = 1;
+		bounds[b + BOUNDS_FIXED] = x0;
+		bounds[b + BOUNDS_FIXED + 1] = y0;
+		bounds[b + BOUNDS_FIXED + 2] = x1;
+		bounds[b + BOUNDS_FIXED + 3] = y1;
+		bounds[b + BOUNDS_FIXED + 4] = x2;
+		bounds[b + BOUNDS_FIXED + 5] = y2;
+		return true;
+	}
+	
+	// Sets up a triangle whose bounds hold a single sample of setup() (pixel (xmin, ymin), sampled at the corner of the
+	// bounds), S & T are solved with the same arithmetic as setup() so the pixel matches a full setup and fill
+	private static int sample(float[] v1, float[] v2, float[] v3, float[] rec, int r, int[] bounds, int b, int width, int height)
+	{
+		float x_min = Math.min(v1[X], Math.min(v2[X], v3[X]));
+		float x_max = Math.max(v1[X], Math.max(v2[X], v3[X]));
+		float y_min = Math.min(v1[Y], Math.min(v2[Y], v3[Y]));
+		float y_max = Math.max(v1[Y], Math.max(v2[Y], v3[Y]));
+		
+		int xmin = x_min < 0 ? 0 : (int) x_min;
+		int ymin = y_min < 0 ? 0 : (int) y_min;
+		int xmax = x_max >= width ? width - 1 : (int) x_max;
+		int ymax = y_max >= height ? height - 1 : (int) y_max;
+		
+		// Nothing to draw (no sample, off screen or zero area)
+		if(xmin >= xmax || ymin >= ymax)
+			return DROPPED;
+		if(xmax - xmin > 1 || ymax - ymin > 1 || y_min < 0)
+			return LARGER;
+		if((v2[X] - v1[X]) * (v3[Y] - v1[Y]) == (v2[Y] - v1[Y]) * (v3[X] - v1[X]))
+			return DROPPED;
+		
+		float ratio = (v3[X] - v1[X]) / (v3[Y] - v1[Y]);
+		float s = (x_min - v1[X] + ratio * v1[Y] - ratio * y_min) * (1 / ((v2[X] - v1[X]) - ratio * (v2[Y] - v1[Y])));
+		float t = (y_min - v1[Y] - (v2[Y] - v1[Y]) * s) / (v3[Y] - v1[Y]);
+		
+		if(!(s >= 0 && t >= 0 && s + t <= 1))
+			return DROPPED;
+		
+		return setupPoint(v1, v2, v3, s, t, xmin, ymin, rec, r, bounds, b);
+	}
+	
+	// Sets up a triangle whose bounds hold a single pixel centre of setupEdges(), the edges are tested at that centre only
+	private static int sampleEdges(float[] v1, float[] v2, float[] v3, float[] rec, int r, int[] bounds, int b, int width, int height)
+	{
+		// More than two pixels wide or high always holds more than one centre
+		if(Math.max(v1[X], Math.max(v2[X], v3[X])) - Math.min(v1[X], Math.min(v2[X], v3[X])) > 2 ||
+				Math.max(v1[Y], Math.max(v2[Y], v3[Y])) - Math.min(v1[Y], Math.min(v2[Y], v3[Y])) > 2 ||
+				!(inGuard(v1) && inGuard(v2) && inGuard(v3)))
+			return LARGER;
+		
+		int x0 = Math.round(v1[X] * (1 << SUB_BITS));
+		int y0 = Math.round(v1[Y] * (1 << SUB_BITS));
+		int x1 = Math.round(v2[X] * (1 << SUB_BITS));
+		int y1 = Math.round(v2[Y] * (1 << SUB_BITS));
+		int x2 = Math.round(v3[X] * (1 << SUB_BITS));
+		int y2 = Math.round(v3[Y] * (1 << SUB_BITS));
+		
+		long area = (long)(x1 - x0) * (y2 - y0) - (long)(y1 - y0) * (x2 - x0);
+		if(area == 0)
+			return DROPPED;
+		
+		boolean swapped = area < 0;
+		if(swapped)
+		{
+			int x = x1, y = y1;
+			x1 = x2; y1 = y2;
+			x2 = x; y2 = y;
+			area = -area;
+		}
+		
+		int xmin = Math.max(-((HALF - Math.min(x0, Math.min(x1, x2))) >> SUB_BITS), 0);
+		int ymin = Math.max(-((HALF - Math.min(y0, Math.min(y1, y2))) >> SUB_BITS), 0);
+		int xmax = Math.min(((Math.max(x0, Math.max(x1, x2)) - HALF) >> SUB_BITS) + 1, width);
+		int ymax = Math.min(((Math.max(y0, Math.max(y1, y2)) - HALF) >> SUB_BITS) + 1, height);
+		
+		if(xmin >= xmax || ymin >= ymax)
+			return DROPPED;
+		if(xmax - xmin > 1 || ymax - ymin > 1)
+			return LARGER;
+		
+		// Edge functions at the pixel centre, as evaluated by fillEdges()
+		long e0 = ((long)(y1 - y2) << SUB_BITS) * xmin + ((long)(x2 - x1) << SUB_BITS) * ymin + edgeOrigin(x1, y1, x2, y2);
+		long e1 = ((long)(y2 - y0) << SUB_BITS) * xmin + ((long)(x0 - x2) << SUB_BITS) * ymin + edgeOrigin(x2, y2, x0, y0);
+		long e2 = ((long)(y0 - y1) << SUB_BITS) * xmin + ((long)(x1 - x0) << SUB_BITS) * ymin + edgeOrigin(x0, y0, x1, y1);
+		
+		if((e0 | e1 | e2) < 0)
+			return DROPPED;
+		
+		long px = ((long) xmin << SUB_BITS) + HALF;
+		long py = ((long) ymin << SUB_BITS) + HALF;
+		double inv = 1.0 / area;
+		double w1 = ((long)(x0 - x2) * (py - y2) - (long)(y0 - y2) * (px - x2)) * inv;
+		double w2 = ((long)(x1 - x0) * (py - y0) - (long)(y1 - y0) * (px - x0)) * inv;
+		
+		return setupPoint(v1, v2, v3, (float)(swapped ? w2 : w1), (float)(swapped ? w1 : w2), xmin, ymin, rec, r, bounds, b);
+	}
+	
+	// Writes the attributes of a covered sample at pixel (x, y), s and t weigh the second and third vertex
+	private static int setupPoint(float[] v1, float[] v2, float[] v3, float s, float t, int x, int y, float[] rec, int r, int[] bounds, int b)
+	{
+		rec[r + REC_D] = v1[DEPTH] + (v2[DEPTH] - v1[DEPTH]) * s + (v3[DEPTH] - v1[DEPTH]) * t;
+		rec[r + REC_LT] = v1[LT] + (v2[LT] - v1[LT]) * s + (v3[LT] - v1[LT]) * t;
+		rec[r + REC_TX] = v1[TX] + (v2[TX] - v1[TX]) * s + (v3[TX] - v1[TX]) * t;
+		rec[r + REC_TY] = v1[TY] + (v2[TY] - v1[TY]) * s + (v3[TY] - v1[TY]) * t;
+		
+		// Texels covered over pixels covered by the triangle
+		rec[r + REC_RHO] = Math.abs(((v2[TX] - v1[TX]) * (v3[TY] - v1[TY]) - (v2[TY] - v1[TY]) * (v3[TX] - v1[TX])) /
+				((v2[X] - v1[X]) * (v3[Y] - v1[Y]) - (v2[Y] - v1[Y]) * (v3[X] - v1[X])));
+		
+		bounds[b] = x;
+		bounds[b + 1] = y;
+		bounds[b + 2] = x + 1;
+		bounds[b + 3] = y + 1;
+		bounds[b + BOUNDS_EDGE] = POINT;
+		return COVERED;
+	}
+	
+	// Interpolated attributes (copied so the record outlives this frame's vertex data) and the texel footprint of a pixel
+	// from the S & T gradients
+	private static void setupAttributes(float[] v1, float[] v2, float[] v3, float[] rec, int r)
+	{
+		rec[r + REC_D] = v1[DEPTH];
+		rec[r + REC_D_S] = v2[DEPTH] - v1[DEPTH];
+		rec[r + REC_D_T] = v3[DEPTH] - v1[DEPTH];
+		rec[r + REC_LT] = v1[LT];
+		rec[r + REC_LT_S] = v2[LT] - v1[LT];
+		rec[r + REC_LT_T] = v3[LT] - v1[LT];
+		rec[r + REC_TX] = v1[TX];
+		rec[r + REC_TY] = v1[TY];
+		rec[r + REC_TX_S] = v2[TX] - v1[TX];
+		rec[r + REC_TX_T] = v3[TX] - v1[TX];
+		rec[r + REC_TY_S] = v2[TY] - v1[TY];
+		rec[r + REC_TY_T] = v3[TY] - v1[TY];
+		
+		float ux = rec[r + REC_TX_S] * rec[r + REC_DSX] + rec[r + REC_TX_T] * rec[r + REC_DTX];
+		float vx = rec[r + REC_TY_S] * rec[r + REC_DSX] + rec[r + REC_TY_T] * rec[r + REC_DTX];
+		float uy = rec[r + REC_TX_S] * rec[r + REC_DSY] + rec[r + REC_TX_T] * rec[r + REC_DTY];
+		float vy = rec[r + REC_TY_S] * rec[r + REC_DSY] + rec[r + REC_TY_T] * rec[r + REC_DTY];
+		rec[r + REC_RHO] = Math.max(ux * ux + vx * vx, uy * uy + vy * vy);
+	}
+	
+	private static boolean inGuard(float[] v)
+	{
+		return Math.abs(v[X]) < GUARD && Math.abs(v[Y]) < GUARD;
+	}
+	
+	// Fills the pixels of a set up triangle which lie inside the clip rectangle [cx0, cx1) x [cy0, cy1)
+	public void fill(RenderPackage pkg, float[] rec, int r, int[] bounds, int b, int cx0, int cy0, int cx1, int cy1)
+	{
+		if(bounds[b + BOUNDS_EDGE] == POINT)
+		{
+			fillPoint(pkg, rec, r, bounds, b, cx0, cy0, cx1, cy1);
+			return;
+		}
+		
+		if(bounds[b + BOUNDS_EDGE] != 0)
+		{
+			fillEdges(pkg, rec, r, bounds, b, cx0, cy0, cx1, cy1);
+			return;
+		}
+		
+		final int[] frame = pkg.frame;
+		final float[] depth = pkg.compact ? null : pkg.depth;	// Compact formats are tested and written by the package
+		final int[] rows = pkg.rows;
+		final int[] columns = pkg.tiled ? pkg.columns : null;	// Linear columns are their own offsets
+		final int level = levels.length == 1 ? 0 : Material.mipLevel(rec[r + REC_RHO], levels.length);	// Texel coordinates are shifted to the level
+		final int[] texture = levels[level];
+		final int tiles = levelTiles[level];
+		final int w_bits = Math.max(material.bin_width.bits - level, 0);
+		final int w_mask = (1 << w_bits) - 1;
+		final int h_mask = (1 << Math.max(material.bin_height.bits - level, 0)) - 1;
+		
+		int xmin = bounds[b];
+		int ymin = bounds[b + 1];
+		int xmax = bounds[b + 2] < cx1 ? bounds[b + 2] : cx1;
+		int ymax = bounds[b + 3] < cy1 ? bounds[b + 3] : cy1;
+		int xstart = xmin > cx0 ? xmin : cx0;
+		
+		float dsx = rec[r + REC_DSX];
+		float dtx = rec[r + REC_DTX];
+		float dsy = rec[r + REC_DSY];
+		float dty = rec[r + REC_DTY];
+		float d1 = rec[r + REC_D] * pkg.depthScale;
+		float d_s = rec[r + REC_D_S] * pkg.depthScale;
+		float d_t = rec[r + REC_D_T] * pkg.depthScale;
+		float lt1 = rec[r + REC_LT];
+		float lt_s = rec[r + REC_LT_S];
+		float lt_t = rec[r + REC_LT_T];
+		float tx1 = rec[r + REC_TX];
+		float ty1 = rec[r + REC_TY];
+		float tx_s = rec[r + REC_TX_S];
+		float tx_t = rec[r + REC_TX_T];
+		float ty_s = rec[r + REC_TY_S];
+		float ty_t = rec[r + REC_TY_T];
+		float s_y = rec[r + REC_S];
+		float t_y = rec[r + REC_T];
+		int tested = 0;
+		int written = 0;
+		
+		// S & T are stepped incrementally, so skipped rows are still accumulated to keep results identical to a full scan
+		int y = ymin;
+		for(; y < cy0 && y < ymax; y++, s_y += dsy, t_y += dty);
 		
 		// Draw triangle
-		for(int y = ymin, pi = ymin * binded.width; y < ymax; y++, pi += binded.width, s_y += dsy, t_y += dty)
+		for(; y < ymax; y++, s_y += dsy, t_y += dty)
 		{
+			int pi = rows[y];
 			float s = s_y;
 			float t = t_y;
-					
-			for(int x = xmin; x < xmax; x++, s += dsx, t += dtx)
+			int x = xmin;
+			
+			for(; x < xstart; x++, s += dsx, t += dtx);
+			
+			for(; x < xmax; x++, s += dsx, t += dtx)
 			{
 				if(s >= 0 && t >= 0 && s + t <= 1)
 				{
-					float d = v1[DEPTH] + (v2[DEPTH] - v1[DEPTH]) * s + (v3[DEPTH] - v1[DEPTH]) * t;
-					int index = pi + x;
+					float d = d1 + d_s * s + d_t * t;
+					int index = columns == null ? pi + x : pi + columns[x];
+					tested++;
 					
-					//s = s_origin + dsy * (y - ymin) + dsx * (x - xmin);
-					//t = t_origin + dty * (y - ymin) + dtx * (x - xmin);
-					
-					if(binded.depth[index] > d)
+					if(depth != null ? depth[index] > d : pkg.nearer(index, d))
 					{
-						float lt = v1[LT] + (v2[LT] - v1[LT]) * s + (v3[LT] - v1[LT]) * t;
-						int t_index = ((int)(v1[TX] + s_vector_tx_comp * s + t_vector_tx_comp * t) & material.bin_width.max) | 
-								(((int)(v1[TY] + s_vector_ty_comp * s + t_vector_ty_comp * t) & material.bin_height.max) << material.bin_width.bits);
+						float lt = lt1 + lt_s * s + lt_t * t;
+						int u = ((int)(tx1 + tx_s * s + tx_t * t) >> level) & w_mask;
+						int v = ((int)(ty1 + ty_s * s + ty_t * t) >> level) & h_mask;
+						int texel = texture[tiles == 0 ? u | (v << w_bits) : Material.texelIndex(u, v, tiles, w_bits)];
 						
-						if((texture[t_index] & 0xFF000000) < 0)
+						if((texel & 0xFF000000) < 0)
+						{
+							int color = 
+									((int)(((texel >> 16) & 0xFF) * lt) << 16) |
+									((int)(((texel >> 8) & 0xFF) * lt) << 8) | 
+									 (int)((texel & 0xFF) * lt);
+							
+							if(depth != null)
+							{
+								frame[index] = color;
+								depth[index] = d;
+							}
+							else
+								pkg.write(index, d, color);
+							written++;
+						}
+					}
+				}
+			}
+		}
+		
+		pkg.stats.count(RenderStats.Counter.PIXELS_TESTED, tested);
+		pkg.stats.count(RenderStats.Counter.PIXELS_WRITTEN, written);
+	}
+	
+	// Draws the single covered sample of a triangle, one depth compare and one texel fetch
+	private void fillPoint(RenderPackage pkg, float[] rec, int r, int[] bounds, int b, int cx0, int cy0, int cx1, int cy1)
+	{
+		int x = bounds[b];
+		int y = bounds[b + 1];
+		
+		if(x < cx0 || y < cy0 || x >= cx1 || y >= cy1)
+			return;
+		
+		int index = pkg.rows[y] + pkg.columns[x];
+		float d = rec[r + REC_D] * pkg.depthScale;
+		int written = 0;
+		
+		if(pkg.compact ? pkg.nearer(index, d) : pkg.depth[index] > d)
+		{
+			float lt = rec[r + REC_LT];
+			int level = levels.length == 1 ? 0 : Material.mipLevel(rec[r + REC_RHO], levels.length);
+			int w_bits = Math.max(material.bin_width.bits - level, 0);
+			int h_bits = Math.max(material.bin_height.bits - level, 0);
+			int texel = levels[level][Material.texelIndex(((int) rec[r + REC_TX] >> level) & ((1 << w_bits) - 1),
+					((int) rec[r + REC_TY] >> level) & ((1 << h_bits) - 1), levelTiles[level], w_bits)];
+			
+			if((texel & 0xFF000000) < 0)
+			{
+				pkg.write(index, d, 
+						((int)(((texel >> 16) & 0xFF) * lt) << 16) |
+						((int)(((texel >> 8) & 0xFF) * lt) << 8) | 
+						 (int)((texel & 0xFF) * lt));
+				written = 1;
+			}
+		}
+		
+		pkg.stats.count(RenderStats.Counter.PIXELS_TESTED, 1);
+		pkg.stats.count(RenderStats.Counter.PIXELS_WRITTEN, written);
+	}
+	
+	// Fills a triangle set up by setupEdges() in 8x8 blocks. Blocks outside of an edge are skipped and blocks inside of
+	// every edge are filled without testing the edges per pixel.
+	private void fillEdges(RenderPackage pkg, float[] rec, int r, int[] bounds, int b, int cx0, int cy0, int cx1, int cy1)
+	{
+		final int[] frame = pkg.frame;
+		final float[] depth = pkg.compact ? null : pkg.depth;	// Compact formats are tested and written by the package
+		final int[] rows = pkg.rows;
+		final int[] columns = pkg.tiled ? pkg.columns : null;	// Linear columns are their own offsets
+		final int level = levels.length == 1 ? 0 : Material.mipLevel(rec[r + REC_RHO], levels.length);	// Texel coordinates are shifted to the level
+		final int[] texture = levels[level];
+		final int tiles = levelTiles[level];
+		final int w_bits = Math.max(material.bin_width.bits - level, 0);
+		final int w_mask = (1 << w_bits) - 1;
+		final int h_mask = (1 << Math.max(material.bin_height.bits - level, 0)) - 1;
+		
+		int ox = bounds[b];
+		int oy = bounds[b + 1];
+		int xmin = ox > cx0 ? ox : cx0;
+		int ymin = oy > cy0 ? oy : cy0;
+		int xmax = bounds[b + 2] < cx1 ? bounds[b + 2] : cx1;
+		int ymax = bounds[b + 3] < cy1 ? bounds[b + 3] : cy1;
+		
+		int x0 = bounds[b + BOUNDS_FIXED];
+		int y0 = bounds[b + BOUNDS_FIXED + 1];
+		int x1 = bounds[b + BOUNDS_FIXED + 2];
+		int y1 = bounds[b + BOUNDS_FIXED + 3];
+		int x2 = bounds[b + BOUNDS_FIXED + 4];
+		int y2 = bounds[b + BOUNDS_FIXED + 5];
+		
+		// Edge functions E = a*x + b*y + c of the pixel centres, a pixel is covered when all three are zero or more
+		long a0 = (long)(y1 - y2) << SUB_BITS, b0 = (long)(x2 - x1) << SUB_BITS, c0 = edgeOrigin(x1, y1, x2, y2);
+		long a1 = (long)(y2 - y0) << SUB_BITS, b1 = (long)(x0 - x2) << SUB_BITS, c1 = edgeOrigin(x2, y2, x0, y0);
+		long a2 = (long)(y0 - y1) << SUB_BITS, b2 = (long)(x1 - x0) << SUB_BITS, c2 = edgeOrigin(x0, y0, x1, y1);
+		
+		float s0 = rec[r + REC_S];
+		float t0 = rec[r + REC_T];
+		float dsx = rec[r + REC_DSX];
+		float dtx = rec[r + REC_DTX];
+		float dsy = rec[r + REC_DSY];
+		float dty = rec[r + REC_DTY];
+		float d1 = rec[r + REC_D] * pkg.depthScale;
+		float d_s = rec[r + REC_D_S] * pkg.depthScale;
+		float d_t = rec[r + REC_D_T] * pkg.depthScale;
+		float lt1 = rec[r + REC_LT];
+		float lt_s = rec[r + REC_LT_S];
+		float lt_t = rec[r + REC_LT_T];
+		float tx1 = rec[r + REC_TX];
+		float ty1 = rec[r + REC_TY];
+		float tx_s = rec[r + REC_TX_S];
+		float tx_t = rec[r + REC_TX_T];
+		float ty_s = rec[r + REC_TY_S];
+		float ty_t = rec[r + REC_TY_T];
+		int tested = 0;
+		int written = 0;
+		
+		for(int by = ymin >> BLOCK_BITS << BLOCK_BITS; by < ymax; by += 1 << BLOCK_BITS)
+		{
+			int py0 = by > ymin ? by : ymin;
+			int py1 = by + (1 << BLOCK_BITS) < ymax ? by + (1 << BLOCK_BITS) : ymax;
+			
+			for(int bx = xmin >> BLOCK_BITS << BLOCK_BITS; bx < xmax; bx += 1 << BLOCK_BITS)
+			{
+				int px0 = bx > xmin ? bx : xmin;
+				int px1 = bx + (1 << BLOCK_BITS) < xmax ? bx + (1 << BLOCK_BITS) : xmax;
+				int dx = px1 - 1 - px0;
+				int dy = py1 - 1 - py0;
+				
+				// Edges at the first pixel of the block and their range over the block
+				long e0 = a0 * px0 + b0 * py0 + c0;
+				long e1 = a1 * px0 + b1 * py0 + c1;
+				long e2 = a2 * px0 + b2 * py0 + c2;
+				long r0x = a0 * dx, r0y = b0 * dy;
+				long r1x = a1 * dx, r1y = b1 * dy;
+				long r2x = a2 * dx, r2y = b2 * dy;
+				
+				// Trivial reject, a corner of the block is furthest inside of each edge
+				if(e0 + Math.max(r0x, 0) + Math.max(r0y, 0) < 0 || 
+						e1 + Math.max(r1x, 0) + Math.max(r1y, 0) < 0 ||
+						e2 + Math.max(r2x, 0) + Math.max(r2y, 0) < 0)
+					continue;
+				
+				// Trivial accept, the opposite corner is inside of every edge
+				boolean inside = e0 + Math.min(r0x, 0) + Math.min(r0y, 0) >= 0 &&
+						e1 + Math.min(r1x, 0) + Math.min(r1y, 0) >= 0 &&
+						e2 + Math.min(r2x, 0) + Math.min(r2y, 0) >= 0;
+				
+				for(int y = py0; y < py1; y++, e0 += b0, e1 += b1, e2 += b2)
+				{
+					// S & T are evaluated at the start of each row so they do not drift across the triangle
+					float s = s0 + (px0 - ox) * dsx + (y - oy) * dsy;
+					float t = t0 + (px0 - ox) * dtx + (y - oy) * dty;
+					long f0 = e0, f1 = e1, f2 = e2;
+					
+					for(int x = px0, row = rows[y]; x < px1; x++, s += dsx, t += dtx, f0 += a0, f1 += a1, f2 += a2)
+					{
+						if(inside || (f0 | f1 | f2) >= 0)
 						{
-							binded.frame[index] = 
-									((int)(r_image[t_index] * lt) << 16) |
-									((int)(g_image[t_index] * lt) << 8) | 
-									 (int)(b_image[t_index] * lt);
-							binded.depth[index] = d;
+							int index = columns == null ? row + x : row + columns[x];
+							float d = d1 + d_s * s + d_t * t;
+							tested++;
+							
+							if(depth != null ? depth[index] > d : pkg.nearer(index, d))
+							{
+								float lt = lt1 + lt_s * s + lt_t * t;
+								int u = ((int)(tx1 + tx_s * s + tx_t * t) >> level) & w_mask;
+								int v = ((int)(ty1 + ty_s * s + ty_t * t) >> level) & h_mask;
+								int texel = texture[tiles == 0 ? u | (v << w_bits) : Material.texelIndex(u, v, tiles, w_bits)];
+								
+								if((texel & 0xFF000000) < 0)
+								{
+									int color = 
+											((int)(((texel >> 16) & 0xFF) * lt) << 16) |
+											((int)(((texel >> 8) & 0xFF) * lt) << 8) | 
+											 (int)((texel & 0xFF) * lt);
+									
+									if(depth != null)
+									{
+										frame[index] = color;
+										depth[index] = d;
+									}
+									else
+										pkg.write(index, d, color);
+									written++;
+								}
+							}
 						}
 					}
 				}
 			}
 		}
+		
+		pkg.stats.count(RenderStats.Counter.PIXELS_TESTED, tested);
+		pkg.stats.count(RenderStats.Counter.PIXELS_WRITTEN, written);
+	}
+	
+	// Edge function from a to b at the centre of pixel (0, 0), pixels on an edge which is neither a top nor a left edge
+	// are biased outside so that only one of two triangles sharing the edge draws them
+	private static long edgeOrigin(int ax, int ay, int bx, int by)
+	{
+		long c = (long)(bx - ax) * (HALF - ay) - (long)(by - ay) * (HALF - ax);
+		return by < ay || (by == ay && bx > ax) ? c : c - 1;
 	}
 }
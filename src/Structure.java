@@ -1,4 +1,6 @@
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
 /*
  * File: Structure.java
@@ -27,19 +29,65 @@ public abstract class Structure extends Renderable
 	
 	protected Transformation transformation;
 	protected LinkedList<Renderable> children;	// The dynamic list of children stored within the structure
+	protected ArrayList<Renderable> leaves;		// Children which are not structures (drawn with the structure by a render list)
+	
+	// Bounding sphere, its radius is boundScaled * (largest final scale) + boundFixed
+	protected float[] boundCenter = new float[3];	// Center of the faces in the structure's space
+	protected float boundFaces = 0;					// Radius of the faces around the center
+	protected float boundScaled = 0;				// Radius per unit of final scale (includes child structures)
+	protected float boundFixed = 0;					// Radius added by the scale of child structures
+	private float[] worldCenter = new float[3];		// Center of the sphere relative to the camera
+	private boolean nested = false;					// Whether any children are structures
+	protected int occlusionResult;					// Last occlusion test of isCulled
+	
+	// Render list the structure is compiled into (null until compiled)
+	RenderList list;
+	Structure listRoot;								// Root of the list which contains the structure
+	
+	// Last propagation of the hierarchy walk, the transformation is not propagated again until one of these changes
+	private final float[] propagated = {Float.NaN, 0, 0, 0, 0, 0, 0, 0, 0};	// Transform last propagated
+	private Transformation propagatedParent;		// Transformation it was propagated from
+	private int parentVersion;						// Version of the parent's transformation when propagated
+	private int propagatedVersion;					// Version of the transformation after propagating (changes if a render list loads it)
 	
 	public Structure(String name)
 	{
 		float[] temp = {0,0,0,0,0,0,1,1,1};
 		transformation = new Transformation(transform, temp);
 		children = new LinkedList<Renderable>();
+		leaves = new ArrayList<Renderable>();
 		this.name = name;
 		numStructures++;
 	}
 	
 	// Adds a child to the structure
-	public void addChild(Renderable child){children.add(child);}
+	public void addChild(Renderable child)
+	{
+		children.add(child);
+		
+		if(child instanceof Structure)
+		{
+			nested = true;
+			recompile();
+		}
+		else
+			leaves.add(child);
+	}
+	
+	// Removes a child from the structure, returns false if it is not a child
+	public boolean removeChild(Renderable child)
+	{
+		if(!children.remove(child))
+			return false;
+		
+		if(child instanceof Structure)
+			recompile();
+		else
+			leaves.remove(child);
 		
+		return true;
+	}
+	
 	// Returns a specified child from the list
 	public Renderable getChild(int index){return children.get(index);}
 	
@@ -49,20 +97,202 @@ public abstract class Structure extends Renderable
 	{
 		for(Renderable r : children)
 			r.finalizeRender();
+		
+		fitBounds();
 	}
 	
 	@Override
 	// Default Rendering process, can be overwritten
-	public void render() 
+	public void render(RenderPackage context) 
+	{
+		long start = context.stats.start();
+		if(propagate(context.transform))
+			context.stats.count(RenderStats.Counter.TRANSFORMS_UPDATED, 1);
+		context.stats.stop(RenderStats.Stage.TRANSFORM, start);
+		
+		if(isShown() && !isCulled(context))
+			draw(context, false);
+	}
+	
+	// Propagates the transformation from the parent's unless neither changed since it was last propagated, returns false if it was skipped
+	// Static subtrees keep their transformations (and the vertices stamped with them) without computing them again
+	private boolean propagate(Transformation parent)
+	{
+		if(parent == propagatedParent && parent.version == parentVersion && transformation.version == propagatedVersion && !moved())
+			return false;
+		
+		transformation.propagateTransformation(parent);
+		System.arraycopy(transform, 0, propagated, 0, 9);
+		propagatedParent = parent;
+		parentVersion = parent.version;
+		propagatedVersion = transformation.version;
+		return true;
+	}
+	
+	// Returns whether the transform differs from the one last propagated
+	private boolean moved()
+	{
+		for(int i = 0; i < 9; i++)
+			if(transform[i] != propagated[i])
+				return true;
+		
+		return false;
+	}
+	
+	// Draws the structure once its transformation is propagated and its bounds are tested, can be overwritten
+	// A render list (compiled) draws the child structures itself, so only the leaves are drawn
+	protected void draw(RenderPackage context, boolean compiled)
+	{
+		renderChildren(context, compiled ? leaves : children);
+	}
+	
+	// Returns whether the structure is drawn, can be overwritten
+	protected boolean isShown() { return visible; }
+	
+	// Returns the children whose structures are compiled below this one in a render list, can be overwritten
+	protected List<Renderable> getCompiledChildren() { return children; }
+	
+	// Recompiles the root of the render list which contains the structure before the next frame
+	protected void recompile()
+	{
+		if(list != null)
+			list.invalidate(listRoot);
+	}
+	
+	// Renders children with the structure's transformation (after isCulled has been tested)
+	protected void renderChildren(RenderPackage context, List<Renderable> list)
 	{
-		transformation.propagateTransformation(binded.transform);
+		DepthPyramid occlusion = context.occlusion;
 		
-		if(visible)
+		// Nothing is in front of the structure, so its faces do not need to be tested
+		if(occlusionResult == DepthPyramid.IN_FRONT)
+			context.occlusion = null;
+		
+		for(Renderable r : list)
+		{
+			context.transform = transformation;
+			r.render(context);
+		}
+		
+		context.occlusion = occlusion;
+	}
+	
+	// Fits the bounding sphere around the vertices of the faces in the structure
+	protected void fitBounds()
+	{
+		float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+		float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+		boolean faces = false;
+		nested = false;
+		
+		for(Renderable r : children)
+			if(r instanceof Structure)
+				nested = true;
+			else if(r instanceof Face)
+				for(Vertex v : ((Face) r).getVertecies())
+					for(int a = 0; a < 3; a++)
+					{
+						min[a] = Math.min(min[a], v.vertex[a]);
+						max[a] = Math.max(max[a], v.vertex[a]);
+						faces = true;
+					}
+		
+		boundFaces = 0;
+		
+		if(faces)
+		{
+			for(int a = 0; a < 3; a++)
+				boundCenter[a] = (min[a] + max[a]) / 2;
+			
+			for(Renderable r : children)
+				if(r instanceof Face)
+					for(Vertex v : ((Face) r).getVertecies())
+						boundFaces = Math.max(boundFaces, distance(v.vertex, boundCenter));
+		}
+		
+		refitBounds();
+	}
+	
+	// Refits the bounding sphere around the child structures (their transformations can change every frame)
+	public void refitBounds()
+	{
+		if(nested)
 			for(Renderable r : children)
-			{
-				binded.transform = transformation;
-				r.render();
-			}
+				if(r instanceof Structure)
+					((Structure) r).refitBounds();
+		
+		refitNode();
+	}
+	
+	// Refits the bounding sphere of this structure alone (the child structures must be refit first), can be overwritten
+	protected void refitNode()
+	{
+		boundScaled = boundFaces;
+		boundFixed = 0;
+		
+		if(nested)
+			for(Renderable r : children)
+				if(r instanceof Structure)
+				{
+					Structure s = (Structure) r;
+					
+					// Reach of the child around its own position, its final scale is at most its scale plus this one's
+					float reach = length(s.boundCenter) + s.boundScaled;
+					float scale = Math.max(Math.abs(s.transform[SCA_X]), Math.max(Math.abs(s.transform[SCA_Y]), Math.abs(s.transform[SCA_Z])));
+					
+					boundScaled = Math.max(boundScaled, distance(s.transform, boundCenter) + reach);
+					boundFixed = Math.max(boundFixed, reach * scale + s.boundFixed);
+				}
+	}
+	
+	// Tests the bounding sphere against the camera's view volume and the depth of the frame (the transformation must be propagated first)
+	protected boolean isCulled(RenderPackage context)
+	{
+		transformation.transformPoint(boundCenter, worldCenter);
+		float radius = boundScaled * transformation.getMaxScale() + boundFixed;
+		
+		if(!context.camera.isVisible(worldCenter, radius))
+		{
+			context.stats.count(RenderStats.Counter.STRUCTURES_CULLED, 1);
+			return true;
+		}
+		
+		occlusionResult = context.occlusion != null ? context.camera.testOcclusion(worldCenter, radius, context.occlusion) : DepthPyramid.PARTIAL;
+		
+		if(occlusionResult == DepthPyramid.OCCLUDED)
+		{
+			context.stats.count(RenderStats.Counter.STRUCTURES_OCCLUDED, 1);
+			return true;
+		}
+		
+		return false;
+	}
+	
+	// Propagates the transformation of the context and tests the bounding sphere against a depth pyramid
+	int propagateAndTest(RenderPackage context, DepthPyramid pyramid)
+	{
+		propagate(context.transform);
+		return testOcclusion(context, pyramid);
+	}
+	
+	// Tests the bounding sphere against a depth pyramid (the transformation must be propagated first)
+	int testOcclusion(RenderPackage context, DepthPyramid pyramid)
+	{
+		transformation.transformPoint(boundCenter, worldCenter);
+		return context.camera.testOcclusion(worldCenter, boundScaled * transformation.getMaxScale() + boundFixed, pyramid);
+	}
+	
+	private static float distance(float[] a, float[] b)
+	{
+		float x = a[0] - b[0];
+		float y = a[1] - b[1];
+		float z = a[2] - b[2];
+		return (float) Math.sqrt(x*x + y*y + z*z);
+	}
+	
+	private static float length(float[] a)
+	{
+		return (float) Math.sqrt(a[0]*a[0] + a[1]*a[1] + a[2]*a[2]);
 	}
 	
 	// Returns number of existing structures created
@@ -0,0 +1,305 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * File: TileRenderer.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Bins set up triangles into screen tiles and rasterizes the tiles in parallel.
+ * Each tile only writes its own region of the frame and depth buffers, and
+ * triangles are kept in submission order within a tile so the output matches
+ * the single-threaded path exactly.
+ * Submitted triangles only copy their vertices into a primitive buffer. When
+ * flushed, the setup stage writes the records of every triangle (in parallel
+ * chunks) and bins the covered ones, triangles covering no pixels are dropped
+ * before binning. The fill stage then only reads the records.
+ */
+
+public class TileRenderer
+{
+	public static final int DEFAULT_TILE_SIZE = 64;
+	private static final int SETUP_CHUNK = 256;	// Triangles set up by each task of the setup stage
+
+	private final int tileSize;			// Width and height of a tile in pixels
+	private final int tilesX;			// Number of tile columns
+	private final int tilesY;			// Number of tile rows
+	private final int width;			// Width of the frame
+	private final int height;			// Height of the frame
+	private int threads;				// Number of worker threads
+	private ForkJoinPool pool;			// Worker pool (null when single threaded)
+
+	// Triangles submitted this frame, their vertices (three rows of vertex data each) and the records of their setup
+	private float[][] vertices = newRows(new float[0][], 1024 * 3);
+	private RenderableTriangle.Rasterizer[] rasterizers = new RenderableTriangle.Rasterizer[1024];
+	private float[] records = new float[1024 * RenderableTriangle.REC_SIZE];
+	private int[] bounds = new int[1024 * RenderableTriangle.BOUNDS_SIZE];
+	private boolean[] covered = new boolean[1024];
+	private boolean micro;				// Whether triangles covering a single sample are set up from it (see RenderPackage)
+	private RenderableTriangle[] triangles = new RenderableTriangle[1024];
+	private int count = 0;
+
+	// Record indices binned to each tile
+	private int[][] bins;
+	private int[] binSizes;
+
+	public TileRenderer(int w, int h, int tile, int threads)
+	{
+		width = w;
+		height = h;
+		tileSize = tile;
+		tilesX = (w + tile - 1) / tile;
+		tilesY = (h + tile - 1) / tile;
+		bins = new int[tilesX * tilesY][64];
+		binSizes = new int[tilesX * tilesY];
+		setThreads(threads);
+	}
+
+	// Sets the number of threads used to rasterize the tiles
+	public void setThreads(int threads)
+	{
+		if(threads < 1)
+			threads = 1;
+
+		if(pool != null)
+			pool.shutdown();
+
+		this.threads = threads;
+		pool = threads > 1 ? new ForkJoinPool(threads) : null;
+	}
+
+	// Queues a triangle, its vertices are copied so the triangle can be reused before the buffer is flushed
+	public void submit(RenderableTriangle tri, RenderableTriangle.Rasterizer rasterizer)
+	{
+		if(count == triangles.length)
+			grow();
+
+		int v = count * 3;
+		copy(tri.v1, vertices[v]);
+		copy(tri.v2, vertices[v + 1]);
+		copy(tri.v3, vertices[v + 2]);
+		rasterizers[count] = rasterizer;
+		triangles[count] = tri.source;
+		count++;
+	}
+
+	// Copies a row of vertex data (six floats are copied faster than by System.arraycopy)
+	private static void copy(float[] from, float[] to)
+	{
+		to[0] = from[0];
+		to[1] = from[1];
+		to[2] = from[2];
+		to[3] = from[3];
+		to[4] = from[4];
+		to[5] = from[5];
+	}
+	
+	// Sets up, bins and rasterizes the triangles submitted this frame, then clears the buffers for the next frame
+	public void flush(RenderPackage pkg)
+	{
+		long start = pkg.stats.start();
+		micro = pkg.micro;
+		
+		if(pool == null || count <= SETUP_CHUNK)
+			setup(0, count);
+		else
+			pool.invoke(new SetupTask(0, count));
+		
+		int drawn = 0;
+		int points = 0;
+		for(int i = 0; i < count; i++)
+			if(covered[i])
+			{
+				bin(i);
+				pkg.touch(bounds, i * RenderableTriangle.BOUNDS_SIZE);
+				drawn++;
+				if(bounds[i * RenderableTriangle.BOUNDS_SIZE + RenderableTriangle.BOUNDS_EDGE] == RenderableTriangle.POINT)
+					points++;
+			}
+		
+		pkg.stats.count(RenderStats.Counter.TRIANGLES_DRAWN, drawn);
+		pkg.stats.count(RenderStats.Counter.TRIANGLES_MICRO, points);
+		pkg.stats.count(RenderStats.Counter.TRIANGLES_REJECTED, count - drawn);
+		pkg.stats.stop(RenderStats.Stage.SETUP, start);
+		
+		start = pkg.stats.start();
+		if(pool == null)
+			for(int tile = 0; tile < binSizes.length; tile++)
+				renderTile(pkg, tile);
+		else
+			pool.invoke(new TileTask(pkg, 0, binSizes.length));
+		pkg.stats.stop(RenderStats.Stage.RASTER, start);
+
+		Arrays.fill(triangles, 0, count, null);
+		Arrays.fill(binSizes, 0);
+		count = 0;
+	}
+
+	// Writes the records of the triangles in [from, to), each only reads its vertices and writes its own record
+	private void setup(int from, int to)
+	{
+		for(int i = from; i < to; i++)
+			covered[i] = RenderableTriangle.setup(rasterizers[i], micro, vertices[i * 3], vertices[i * 3 + 1], vertices[i * 3 + 2],
+					records, i * RenderableTriangle.REC_SIZE, bounds, i * RenderableTriangle.BOUNDS_SIZE, width, height);
+	}
+	
+	// Work on a band of rows [from, to) of the frame
+	public interface Rows { void run(int from, int to); }
+	
+	// Runs work over the rows [y0, y1) of the frame, bands of tile rows are split across the workers (used to clear and resolve)
+	public void forRows(int y0, int y1, Rows rows)
+	{
+		if(pool == null || y1 - y0 <= tileSize)
+			rows.run(y0, y1);
+		else
+			pool.invoke(new RowsTask(rows, y0, y1));
+	}
+	
+	// Adds a set up triangle to the bins of every tile its bounds overlap
+	private void bin(int i)
+	{
+		int b = i * RenderableTriangle.BOUNDS_SIZE;
+		int tx0 = bounds[b] / tileSize;
+		int ty0 = bounds[b + 1] / tileSize;
+		int tx1 = (bounds[b + 2] - 1) / tileSize;
+		int ty1 = (bounds[b + 3] - 1) / tileSize;
+		
+		for(int ty = ty0; ty <= ty1; ty++)
+			for(int tx = tx0, tile = ty * tilesX + tx0; tx <= tx1; tx++, tile++)
+			{
+				if(binSizes[tile] == bins[tile].length)
+					bins[tile] = Arrays.copyOf(bins[tile], bins[tile].length * 2);
+				bins[tile][binSizes[tile]++] = i;
+			}
+	}
+	
+	// Rasterizes the binned triangles of a single tile in submission order
+	private void renderTile(RenderPackage pkg, int tile)
+	{
+		int cx0 = (tile % tilesX) * tileSize;
+		int cy0 = (tile / tilesX) * tileSize;
+		int cx1 = cx0 + tileSize < width ? cx0 + tileSize : width;
+		int cy1 = cy0 + tileSize < height ? cy0 + tileSize : height;
+		int[] bin = bins[tile];
+
+		for(int i = 0, size = binSizes[tile]; i < size; i++)
+		{
+			int rec = bin[i];
+			triangles[rec].fill(pkg, records, rec * RenderableTriangle.REC_SIZE, bounds, rec * RenderableTriangle.BOUNDS_SIZE, cx0, cy0, cx1, cy1);
+		}
+	}
+
+	// Doubles the capacity of the record buffers
+	private void grow()
+	{
+		int capacity = triangles.length * 2;
+		vertices = newRows(vertices, capacity * 3);
+		rasterizers = Arrays.copyOf(rasterizers, capacity);
+		covered = Arrays.copyOf(covered, capacity);
+		records = Arrays.copyOf(records, capacity * RenderableTriangle.REC_SIZE);
+		bounds = Arrays.copyOf(bounds, capacity * RenderableTriangle.BOUNDS_SIZE);
+		triangles = Arrays.copyOf(triangles, capacity);
+	}
+
+	// Grows an array of vertex rows, the new rows are allocated once and reused every frame
+	private static float[][] newRows(float[][] rows, int size)
+	{
+		float[][] grown = Arrays.copyOf(rows, size);
+		for(int i = rows.length; i < size; i++)
+			grown[i] = new float[6];
+		return grown;
+	}
+	
+	public int getThreads() { return threads; }
+	public int getTileSize() { return tileSize; }
+
+	// Splits the setup of a range of triangles across the worker pool
+	private class SetupTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final int start;
+		private final int end;
+		
+		SetupTask(int start, int end)
+		{
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if(end - start <= SETUP_CHUNK)
+			{
+				setup(start, end);
+				return;
+			}
+			
+			int mid = (start + end) >>> 1;
+			invokeAll(new SetupTask(start, mid), new SetupTask(mid, end));
+		}
+	}
+	
+	// Splits a range of tiles across the worker pool
+	private class TileTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final RenderPackage pkg;
+		private final int start;
+		private final int end;
+
+		TileTask(RenderPackage pkg, int start, int end)
+		{
+			this.pkg = pkg;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(end - start == 1)
+			{
+				renderTile(pkg, start);
+				return;
+			}
+
+			int mid = (start + end) >>> 1;
+			invokeAll(new TileTask(pkg, start, mid), new TileTask(pkg, mid, end));
+		}
+	}
+	
+	// Splits bands of rows across the worker pool
+	private class RowsTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final Rows rows;
+		private final int start;
+		private final int end;
+		
+		RowsTask(Rows rows, int start, int end)
+		{
+			this.rows = rows;
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if(end - start <= tileSize)
+			{
+				rows.run(start, end);
+				return;
+			}
+			
+			// Bands split at multiples of 8 rows, so the 8x8 tiles of the tiled layout are never shared
+			int mid = ((start + end) >>> 1) & ~7;
+			invokeAll(new RowsTask(rows, start, mid), new RowsTask(rows, mid, end));
+		}
+	}
+}
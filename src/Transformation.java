@@ -26,6 +26,10 @@ public class Transformation
 	private float cosz;
 	private float[] transform;	   // Transformation matrix
 	private float[] finalTransform; // Calculated rendering transformation matrix
+	int version = 0;				// Incremented when the final transformation changes (stamps the data computed from it)
+	private final float[] matrix = new float[12];	// Final transformation as a 3x4 matrix (rows of x, y, z and the position)
+	private int matrixVersion = -1;					// Version the matrix was composed for
+	private final float[] reference = new float[9];	// Values of the reference when it was last set
 	
 	public Transformation(float[] trans, float[] fTrans)
 	{
@@ -33,18 +37,20 @@ public class Transformation
 		finalTransform = fTrans;
 	}
 	
+	// Uses a transform (the camera's) as the final transformation, the version only changes when its values did
 	public void setReference(float[] ref)
 	{
+		boolean changed = ref != finalTransform || version == 0;
+		for(int i = 0; i < 9; i++)
+			changed |= ref[i] != reference[i];
+		
+		if(!changed)
+			return;
+		
 		finalTransform = ref;
-		int lookup_x = (int)(finalTransform[Structure.ROT_X] * SIN_CONVERT) & 0xFFFF;
-		int lookup_y = (int)(finalTransform[Structure.ROT_Y] * SIN_CONVERT) & 0xFFFF;
-		int lookup_z = (int)(finalTransform[Structure.ROT_Z] * SIN_CONVERT) & 0xFFFF;
-		sinx = SINE[lookup_x];
-		cosx = COSINE[lookup_x];
-		siny = SINE[lookup_y];
-		cosy = COSINE[lookup_y];
-		sinz = SINE[lookup_z];
-		cosz = COSINE[lookup_z];
+		System.arraycopy(ref, 0, reference, 0, 9);
+		lookup();
+		version++;
 	}
 	
 	public float[] propagatePosition(Transformation prev)
@@ -70,18 +76,40 @@ public class Transformation
 		float rot_x = transform[POS_X]*prev.cosy - rot_z*prev.siny;
 		
 		// Final position from rotations
-		finalTransform[POS_X] = (rot_x*prev.cosz - rot_y*prev.sinz)*prev.finalTransform[SCA_X] + prev.finalTransform[POS_X];
-		finalTransform[POS_Y] = (rot_x*prev.sinz + rot_y*prev.cosz)*prev.finalTransform[SCA_Y] + prev.finalTransform[POS_Y];
-		finalTransform[POS_Z] = (transform[POS_X]*prev.siny + rot_z*prev.cosy)*prev.finalTransform[SCA_Z] + prev.finalTransform[POS_Z];
+		float pos_x = (rot_x*prev.cosz - rot_y*prev.sinz)*prev.finalTransform[SCA_X] + prev.finalTransform[POS_X];
+		float pos_y = (rot_x*prev.sinz + rot_y*prev.cosz)*prev.finalTransform[SCA_Y] + prev.finalTransform[POS_Y];
+		float pos_z = (transform[POS_X]*prev.siny + rot_z*prev.cosy)*prev.finalTransform[SCA_Z] + prev.finalTransform[POS_Z];
 		
 		// Other transformations
-		finalTransform[SCA_X] = transform[SCA_X] + prev.finalTransform[SCA_X];
-		finalTransform[SCA_Y] = transform[SCA_Y] + prev.finalTransform[SCA_Y];
-		finalTransform[SCA_Z] = transform[SCA_Z] + prev.finalTransform[SCA_Z];
-		finalTransform[ROT_X] = transform[ROT_X] + prev.finalTransform[ROT_X];
-		finalTransform[ROT_Y] = transform[ROT_Y] + prev.finalTransform[ROT_Y];
-		finalTransform[ROT_Z] = transform[ROT_Z] + prev.finalTransform[ROT_Z];
+		float sca_x = transform[SCA_X] + prev.finalTransform[SCA_X];
+		float sca_y = transform[SCA_Y] + prev.finalTransform[SCA_Y];
+		float sca_z = transform[SCA_Z] + prev.finalTransform[SCA_Z];
+		float angle_x = transform[ROT_X] + prev.finalTransform[ROT_X];
+		float angle_y = transform[ROT_Y] + prev.finalTransform[ROT_Y];
+		float angle_z = transform[ROT_Z] + prev.finalTransform[ROT_Z];
+		
+		// Unchanged since the last propagation, the lookups and the data stamped with the version stay valid
+		if(version != 0 && pos_x == finalTransform[POS_X] && pos_y == finalTransform[POS_Y] && pos_z == finalTransform[POS_Z]
+				&& sca_x == finalTransform[SCA_X] && sca_y == finalTransform[SCA_Y] && sca_z == finalTransform[SCA_Z]
+				&& angle_x == finalTransform[ROT_X] && angle_y == finalTransform[ROT_Y] && angle_z == finalTransform[ROT_Z])
+			return;
 		
+		finalTransform[POS_X] = pos_x;
+		finalTransform[POS_Y] = pos_y;
+		finalTransform[POS_Z] = pos_z;
+		finalTransform[SCA_X] = sca_x;
+		finalTransform[SCA_Y] = sca_y;
+		finalTransform[SCA_Z] = sca_z;
+		finalTransform[ROT_X] = angle_x;
+		finalTransform[ROT_Y] = angle_y;
+		finalTransform[ROT_Z] = angle_z;
+		lookup();
+		version++;
+	}
+	
+	// Looks up the sines and cosines of the final rotations
+	private void lookup()
+	{
 		int lookup_x = (int)(finalTransform[Structure.ROT_X] * SIN_CONVERT) & 0xFFFF;
 		int lookup_y = (int)(finalTransform[Structure.ROT_Y] * SIN_CONVERT) & 0xFFFF;
 		int lookup_z = (int)(finalTransform[Structure.ROT_Z] * SIN_CONVERT) & 0xFFFF;
@@ -93,6 +121,241 @@ public class Transformation
 		cosz = COSINE[lookup_z];
 	}
 	
+	// Propagates a packed transformation (9 floats per slot) from the slot prev to the slot node, the same as propagateTransformation, trig holds the cached sines and cosines (6 floats per slot)
+	static void propagate(float[] transform, float[] world, float[] trig, int prev, int node)
+	{
+		int p = prev * 9;
+		int n = node * 9;
+		int t = prev * 6;
+		float psinx = trig[t];
+		float pcosx = trig[t + 1];
+		float psiny = trig[t + 2];
+		float pcosy = trig[t + 3];
+		float psinz = trig[t + 4];
+		float pcosz = trig[t + 5];
+		
+		// Rotations
+		float rot_y = transform[POS_Y]*pcosx - transform[POS_Z]*psinx;
+		float rot_z = transform[POS_Y]*psinx + transform[POS_Z]*pcosx;
+		float rot_x = transform[POS_X]*pcosy - rot_z*psiny;
+		
+		// Final position from rotations
+		world[n + POS_X] = (rot_x*pcosz - rot_y*psinz)*world[p + SCA_X] + world[p + POS_X];
+		world[n + POS_Y] = (rot_x*psinz + rot_y*pcosz)*world[p + SCA_Y] + world[p + POS_Y];
+		world[n + POS_Z] = (transform[POS_X]*psiny + rot_z*pcosy)*world[p + SCA_Z] + world[p + POS_Z];
+		
+		// Other transformations
+		world[n + SCA_X] = transform[SCA_X] + world[p + SCA_X];
+		world[n + SCA_Y] = transform[SCA_Y] + world[p + SCA_Y];
+		world[n + SCA_Z] = transform[SCA_Z] + world[p + SCA_Z];
+		world[n + ROT_X] = transform[ROT_X] + world[p + ROT_X];
+		world[n + ROT_Y] = transform[ROT_Y] + world[p + ROT_Y];
+		world[n + ROT_Z] = transform[ROT_Z] + world[p + ROT_Z];
+		
+		int lookup_x = (int)(world[n + ROT_X] * SIN_CONVERT) & 0xFFFF;
+		int lookup_y = (int)(world[n + ROT_Y] * SIN_CONVERT) & 0xFFFF;
+		int lookup_z = (int)(world[n + ROT_Z] * SIN_CONVERT) & 0xFFFF;
+		t = node * 6;
+		trig[t] = SINE[lookup_x];
+		trig[t + 1] = COSINE[lookup_x];
+		trig[t + 2] = SINE[lookup_y];
+		trig[t + 3] = COSINE[lookup_y];
+		trig[t + 4] = SINE[lookup_z];
+		trig[t + 5] = COSINE[lookup_z];
+	}
+	
+	// Propagates a packed transformation like propagate, but the position goes through the parent's 3x4 matrix (12 floats per slot) and the matrix of node is composed
+	static void propagateMatrix(float[] transform, float[] world, float[] trig, float[] matrices, int prev, int node)
+	{
+		int p = prev * 9;
+		int n = node * 9;
+		int m = prev * 12;
+		float x = transform[POS_X];
+		float y = transform[POS_Y];
+		float z = transform[POS_Z];
+		
+		world[n + POS_X] = matrices[m]*x + matrices[m + 1]*y + matrices[m + 2]*z + matrices[m + 3];
+		world[n + POS_Y] = matrices[m + 4]*x + matrices[m + 5]*y + matrices[m + 6]*z + matrices[m + 7];
+		world[n + POS_Z] = matrices[m + 8]*x + matrices[m + 9]*y + matrices[m + 10]*z + matrices[m + 11];
+		
+		// Other transformations
+		world[n + SCA_X] = transform[SCA_X] + world[p + SCA_X];
+		world[n + SCA_Y] = transform[SCA_Y] + world[p + SCA_Y];
+		world[n + SCA_Z] = transform[SCA_Z] + world[p + SCA_Z];
+		world[n + ROT_X] = transform[ROT_X] + world[p + ROT_X];
+		world[n + ROT_Y] = transform[ROT_Y] + world[p + ROT_Y];
+		world[n + ROT_Z] = transform[ROT_Z] + world[p + ROT_Z];
+		
+		int lookup_x = (int)(world[n + ROT_X] * SIN_CONVERT) & 0xFFFF;
+		int lookup_y = (int)(world[n + ROT_Y] * SIN_CONVERT) & 0xFFFF;
+		int lookup_z = (int)(world[n + ROT_Z] * SIN_CONVERT) & 0xFFFF;
+		int t = node * 6;
+		trig[t] = SINE[lookup_x];
+		trig[t + 1] = COSINE[lookup_x];
+		trig[t + 2] = SINE[lookup_y];
+		trig[t + 3] = COSINE[lookup_y];
+		trig[t + 4] = SINE[lookup_z];
+		trig[t + 5] = COSINE[lookup_z];
+		
+		compose(world, n, trig[t], trig[t + 1], trig[t + 2], trig[t + 3], trig[t + 4], trig[t + 5], matrices, node * 12);
+	}
+	
+	// Composes the 3x4 matrix (at offset m) of a transformation (at offset o) and the sines and cosines of its rotations, the same mapping as transformPoint
+	static void compose(float[] f, int o, float sinx, float cosx, float siny, float cosy, float sinz, float cosz, float[] matrix, int m)
+	{
+		// Scale * rotation around z * rotation around y * rotation around x
+		matrix[m] = f[o + SCA_X] * cosy*cosz;
+		matrix[m + 1] = f[o + SCA_X] * (-sinx*siny*cosz - cosx*sinz);
+		matrix[m + 2] = f[o + SCA_X] * (-cosx*siny*cosz + sinx*sinz);
+		matrix[m + 3] = f[o + POS_X];
+		matrix[m + 4] = f[o + SCA_Y] * cosy*sinz;
+		matrix[m + 5] = f[o + SCA_Y] * (-sinx*siny*sinz + cosx*cosz);
+		matrix[m + 6] = f[o + SCA_Y] * (-cosx*siny*sinz - sinx*cosz);
+		matrix[m + 7] = f[o + POS_Y];
+		matrix[m + 8] = f[o + SCA_Z] * siny;
+		matrix[m + 9] = f[o + SCA_Z] * sinx*cosy;
+		matrix[m + 10] = f[o + SCA_Z] * cosx*cosy;
+		matrix[m + 11] = f[o + POS_Z];
+	}
+	
+	// Multiplies packed points (x, y, z per point) by the 3x4 matrix of a slot (12 floats per slot)
+	static void multiplyPoints(float[] matrices, int node, float[] in, float[] out, int count)
+	{
+		int m = node * 12;
+		float m00 = matrices[m];
+		float m01 = matrices[m + 1];
+		float m02 = matrices[m + 2];
+		float m03 = matrices[m + 3];
+		float m10 = matrices[m + 4];
+		float m11 = matrices[m + 5];
+		float m12 = matrices[m + 6];
+		float m13 = matrices[m + 7];
+		float m20 = matrices[m + 8];
+		float m21 = matrices[m + 9];
+		float m22 = matrices[m + 10];
+		float m23 = matrices[m + 11];
+		
+		for(int i = 0, end = count * 3; i < end; i += 3)
+		{
+			float x = in[i];
+			float y = in[i + 1];
+			float z = in[i + 2];
+			
+			out[i] = m00*x + m01*y + m02*z + m03;
+			out[i + 1] = m10*x + m11*y + m12*z + m13;
+			out[i + 2] = m20*x + m21*y + m22*z + m23;
+		}
+	}
+	
+	// Multiplies packed points by the 3x4 matrix of the final transformation (composed once per version), close to transformPoints but not bit identical
+	public void multiplyPoints(float[] in, float[] out, int count)
+	{
+		if(matrixVersion != version)
+		{
+			compose(finalTransform, 0, sinx, cosx, siny, cosy, sinz, cosz, matrix, 0);
+			matrixVersion = version;
+		}
+		
+		multiplyPoints(matrix, 0, in, out, count);
+	}
+	
+	// Copies the packed transformation and the 3x4 matrix of a slot into the final transformation
+	void load(float[] world, float[] trig, float[] matrices, int node)
+	{
+		load(world, trig, node);
+		System.arraycopy(matrices, node * 12, matrix, 0, 12);
+		matrixVersion = version;
+	}
+	
+	// Copies the packed transformation of a slot into the final transformation
+	void load(float[] world, float[] trig, int node)
+	{
+		version++;
+		System.arraycopy(world, node * 9, finalTransform, 0, 9);
+		int t = node * 6;
+		sinx = trig[t];
+		cosx = trig[t + 1];
+		siny = trig[t + 2];
+		cosy = trig[t + 3];
+		sinz = trig[t + 4];
+		cosz = trig[t + 5];
+	}
+	
+	// Copies the final transformation and its 3x4 matrix into a slot, returns false if the slot already holds it
+	boolean store(float[] world, float[] trig, float[] matrices, int node)
+	{
+		if(!store(world, trig, node))
+			return false;
+		
+		compose(world, node * 9, sinx, cosx, siny, cosy, sinz, cosz, matrices, node * 12);
+		return true;
+	}
+	
+	// Copies the final transformation into the packed transformation of a slot, returns false if the slot already holds it
+	boolean store(float[] world, float[] trig, int node)
+	{
+		int n = node * 9;
+		boolean changed = false;
+		for(int i = 0; i < 9; i++)
+			changed |= world[n + i] != finalTransform[i];
+		
+		if(!changed)
+			return false;
+		
+		System.arraycopy(finalTransform, 0, world, n, 9);
+		int t = node * 6;
+		trig[t] = sinx;
+		trig[t + 1] = cosx;
+		trig[t + 2] = siny;
+		trig[t + 3] = cosy;
+		trig[t + 4] = sinz;
+		trig[t + 5] = cosz;
+		return true;
+	}
+	
+	// Transforms a point in the space of this transformation (as propagatePosition would for a child at that point)
+	public void transformPoint(float[] p, float[] out)
+	{
+		float rot_y = p[POS_Y]*cosx - p[POS_Z]*sinx;
+		float rot_z = p[POS_Y]*sinx + p[POS_Z]*cosx;
+		float rot_x = p[POS_X]*cosy - rot_z*siny;
+		
+		out[POS_X] = (rot_x*cosz - rot_y*sinz)*finalTransform[SCA_X] + finalTransform[POS_X];
+		out[POS_Y] = (rot_x*sinz + rot_y*cosz)*finalTransform[SCA_Y] + finalTransform[POS_Y];
+		out[POS_Z] = (p[POS_X]*siny + rot_z*cosy)*finalTransform[SCA_Z] + finalTransform[POS_Z];
+	}
+	
+	// Transforms packed points (x, y, z per point) in the space of this transformation, the same as propagatePosition for children at those points
+	public void transformPoints(float[] in, float[] out, int count)
+	{
+		float pos_x = finalTransform[POS_X];
+		float pos_y = finalTransform[POS_Y];
+		float pos_z = finalTransform[POS_Z];
+		float sca_x = finalTransform[SCA_X];
+		float sca_y = finalTransform[SCA_Y];
+		float sca_z = finalTransform[SCA_Z];
+		
+		for(int i = 0, end = count * 3; i < end; i += 3)
+		{
+			float x = in[i];
+			float y = in[i + 1];
+			float z = in[i + 2];
+			float rot_y = y*cosx - z*sinx;
+			float rot_z = y*sinx + z*cosx;
+			float rot_x = x*cosy - rot_z*siny;
+			
+			out[i] = (rot_x*cosz - rot_y*sinz)*sca_x + pos_x;
+			out[i + 1] = (rot_x*sinz + rot_y*cosz)*sca_y + pos_y;
+			out[i + 2] = (x*siny + rot_z*cosy)*sca_z + pos_z;
+		}
+	}
+	
+	// Returns the largest absolute scale of the final transformation
+	public float getMaxScale()
+	{
+		return Math.max(Math.abs(finalTransform[SCA_X]), Math.max(Math.abs(finalTransform[SCA_Y]), Math.abs(finalTransform[SCA_Z])));
+	}
+	
 	private static float[] generateSineLookup()
 	{
 		float[] sine = new float[65536];
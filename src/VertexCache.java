@@ -0,0 +1,111 @@
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * File: VertexCache.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Transformed vertices of a body group. Faces share their vertices, so each unique
+ * vertex is transformed once into packed arrays (x, y, z per vertex) which the faces
+ * read by offset. The cache is stamped with the transformation and its version (and
+ * whether its matrix was used), so static geometry is not transformed again until it
+ * moves. Each instance of a model has its own cache over the model's positions, so
+ * instances do not transform each other's vertices again (a model drawn by several
+ * cameras still is). With batching the camera projects every vertex once into
+ * packed screen positions which the triangles gather (see Plane.projectPoints).
+ */
+
+public class VertexCache
+{
+	private final float[] local;		// Positions in the space of the body group
+	final float[] positions;			// Positions relative to the camera
+	final float[] directions;			// Unit vectors from the camera to the vertices (used for lighting)
+	final float[] projected;			// Screen x, y and depth of the vertices (batch projection)
+	private final int count;			// Number of unique vertices
+	
+	// Stamp of the last update
+	private Transformation stamp = null;
+	private int stampVersion;
+	private boolean stampMatrix;
+	
+	// Packs the unique vertices of the faces and binds each face to their offsets
+	public VertexCache(List<Face> faces)
+	{
+		IdentityHashMap<Vertex, Integer> offsets = new IdentityHashMap<Vertex, Integer>();
+		
+		for(Face f : faces)
+			for(Vertex v : f.getVertecies())
+				if(!offsets.containsKey(v))
+					offsets.put(v, offsets.size() * 3);
+		
+		count = offsets.size();
+		local = new float[count * 3];
+		positions = new float[count * 3];
+		directions = new float[count * 3];
+		projected = new float[count * 3];
+		
+		for(Map.Entry<Vertex, Integer> e : offsets.entrySet())
+			System.arraycopy(e.getKey().vertex, 0, local, e.getValue(), 3);
+		
+		for(Face f : faces)
+		{
+			Vertex[] v = f.getVertecies();
+			f.bind(offsets.get(v[0]), offsets.get(v[1]), offsets.get(v[2]));
+		}
+	}
+	
+	// Transforms the positions of another cache into its own arrays (the body groups of a model instance)
+	public VertexCache(VertexCache shared)
+	{
+		count = shared.count;
+		local = shared.local;
+		positions = new float[count * 3];
+		directions = new float[count * 3];
+		projected = new float[count * 3];
+	}
+	
+	// Uses packed positions directly (see PackedMesh)
+	public VertexCache(float[] positions)
+	{
+		count = positions.length / 3;
+		local = positions;
+		this.positions = new float[count * 3];
+		directions = new float[count * 3];
+		projected = new float[count * 3];
+	}
+	
+	// Transforms the vertices unless the transformation is unchanged since the last update, returns the number of vertices transformed
+	// With matrix set the vertices are multiplied by the 3x4 matrix of the transformation
+	public int update(Transformation transformation, boolean matrix)
+	{
+		if(stamp == transformation && stampVersion == transformation.version && stampMatrix == matrix)
+			return 0;
+		
+		if(matrix)
+			transformation.multiplyPoints(local, positions, count);
+		else
+			transformation.transformPoints(local, positions, count);
+		
+		for(int i = 0, end = count * 3; i < end; i += 3)
+		{
+			float x = positions[i];
+			float y = positions[i + 1];
+			float z = positions[i + 2];
+			float mag = (float) Math.sqrt(x*x + y*y + z*z);
+			directions[i] = x / mag;
+			directions[i + 1] = y / mag;
+			directions[i + 2] = z / mag;
+		}
+		
+		stamp = transformation;
+		stampVersion = transformation.version;
+		stampMatrix = matrix;
+		return count;
+	}
+	
+	// Forgets the last update, the vertices are transformed again on the next update
+	public void invalidate() { stamp = null; }
+	public int size() { return count; }
+}
@@ -0,0 +1,93 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/*
+ * File: AssetPackTest.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Compiles a model into an asset pack and checks that the pack renders the same
+ * frames as the obj it was compiled from, that it goes out of date when any of its
+ * source files changes, and that files which are not packs are rejected.
+ */
+
+public class AssetPackTest
+{
+	private static final int FRAMES = 5;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	private String assets;
+	private File pack;
+	
+	@Before
+	public void compilePack() throws Exception
+	{
+		File dir = folder.getRoot();
+		TestAssets.writeSphere(dir, "packed", 16, 32);
+		assets = TestAssets.path(dir);
+		pack = new File(dir, AssetPack.packName("packed.obj"));
+		AssetPack.compile(new Model(assets, "packed.obj"), pack.getPath());
+	}
+	
+	@Test
+	public void packRendersTheFramesOfTheObj() throws Exception
+	{
+		int[][] objFrames = new TestAssets.Scene(() -> new Model(assets, "packed.obj"), 3, 0, true).render(FRAMES);
+		int[][] packFrames = new TestAssets.Scene(() -> load(), 3, 0, true).render(FRAMES);
+		
+		for(int f = 0; f < FRAMES; f++)
+			assertArrayEquals("frame " + f, objFrames[f], packFrames[f]);
+	}
+	
+	@Test
+	public void packIsOutOfDateWhenASourceChanges() throws Exception
+	{
+		assertTrue(AssetPack.isCurrent(pack));
+		
+		for(String source : new String[] {"packed.obj", "packed.mtl", "packed.png"})
+		{
+			File file = new File(assets + source);
+			long modified = file.lastModified();
+			
+			assertTrue(file.setLastModified(modified + 2000));
+			assertFalse(source + " changed", AssetPack.isCurrent(pack));
+			assertTrue(file.setLastModified(modified));
+			assertTrue(AssetPack.isCurrent(pack));
+		}
+	}
+	
+	@Test
+	public void otherFilesAreNotPacks() throws Exception
+	{
+		FileOutputStream out = new FileOutputStream(pack);
+		out.write(new byte[] {'n', 'o', 't', ' ', 'a', ' ', 'p', 'a', 'c', 'k'});
+		out.close();
+		
+		assertFalse(AssetPack.isCurrent(pack));
+		
+		try {
+			AssetPack.load(assets, pack.getName());
+			throw new AssertionError("loaded a file which is not a pack");
+		}
+		catch (IOException e) {}
+	}
+	
+	private Model load()
+	{
+		try {
+			return AssetPack.load(assets, pack.getName());
+		}
+		catch (IOException e) { throw new AssertionError(e); }
+	}
+}
@@ -0,0 +1,94 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/*
+ * File: ConcurrentRenderTest.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Renders several environments on separate threads at once and checks every frame
+ * against the same environments rendered one at a time, so no render state is shared
+ * between environments (see RenderPackage). Both the compiled render list and the
+ * hierarchy walk are checked.
+ */
+
+public class ConcurrentRenderTest
+{
+	private static final int ENVIRONMENTS = 4;
+	private static final int MODELS = 6;
+	private static final int FRAMES = 20;
+	
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+	private static String assets;
+	
+	@BeforeClass
+	public static void writeAssets() throws Exception
+	{
+		File dir = folder.getRoot();
+		TestAssets.writeSphere(dir, "sphere", 24, 48);
+		assets = TestAssets.path(dir);
+	}
+	
+	@Test
+	public void compiledEnvironmentsRenderConcurrently() throws Exception
+	{
+		checkConcurrent(true);
+	}
+	
+	@Test
+	public void walkedEnvironmentsRenderConcurrently() throws Exception
+	{
+		checkConcurrent(false);
+	}
+	
+	// Renders the environments one at a time, then the same environments on a thread each, and compares the frames
+	private static void checkConcurrent(boolean compiled) throws Exception
+	{
+		int[][][] reference = new int[ENVIRONMENTS][][];
+		for(int i = 0; i < ENVIRONMENTS; i++)
+			reference[i] = scene(i, compiled).render(FRAMES);
+		
+		final TestAssets.Scene[] scenes = new TestAssets.Scene[ENVIRONMENTS];
+		final int[][][] results = new int[ENVIRONMENTS][][];
+		final Throwable[] errors = new Throwable[ENVIRONMENTS];
+		Thread[] threads = new Thread[ENVIRONMENTS];
+		
+		for(int i = 0; i < ENVIRONMENTS; i++)
+			scenes[i] = scene(i, compiled);
+		
+		for(int i = 0; i < ENVIRONMENTS; i++)
+		{
+			final int index = i;
+			threads[i] = new Thread(() -> {
+				try {
+					results[index] = scenes[index].render(FRAMES);
+				}
+				catch (Throwable e) { errors[index] = e; }
+			}, "Render " + i);
+			threads[i].start();
+		}
+		
+		for(Thread t : threads)
+			t.join();
+		
+		for(int i = 0; i < ENVIRONMENTS; i++)
+		{
+			assertEquals("environment " + i + " failed", null, errors[i]);
+			for(int f = 0; f < FRAMES; f++)
+				assertArrayEquals("environment " + i + ", frame " + f, reference[i][f], results[i][f]);
+		}
+	}
+	
+	private static TestAssets.Scene scene(int seed, boolean compiled)
+	{
+		return new TestAssets.Scene(() -> new Model(assets, "sphere.obj"), MODELS, seed, compiled);
+	}
+}
@@ -0,0 +1,118 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.function.Supplier;
+
+import javax.imageio.ImageIO;
+
+/*
+ * File: TestAssets.java
+ * Author: Sean Rannie
+ * Last Edited: October/18/2026
+ *
+ * Assets and scenes shared by the tests: a textured UV sphere written to a folder
+ * (the same mesh as the benchmarks) and a row of models rendered frame by frame.
+ */
+
+public class TestAssets
+{
+	// Writes a textured UV sphere (obj, mtl and png) to a folder
+	public static void writeSphere(File folder, String name, int rings, int segments) throws IOException
+	{
+		PrintWriter obj = new PrintWriter(new File(folder, name + ".obj"));
+		obj.println("mtllib " + name + ".mtl");
+		
+		for(int i = 0; i <= rings; i++)
+			for(int j = 0; j <= segments; j++)
+			{
+				double theta = Math.PI * i / rings;
+				double phi = 2 * Math.PI * j / segments;
+				obj.println("v " + (float)(Math.sin(theta) * Math.cos(phi)) + " " + (float)(Math.sin(theta) * Math.sin(phi)) + " " + (float)Math.cos(theta));
+			}
+		
+		for(int i = 0; i <= rings; i++)
+			for(int j = 0; j <= segments; j++)
+				obj.println("vt " + ((float) j / segments) + " " + ((float) i / rings));
+		
+		obj.println("g body");
+		obj.println("usemtl skin");
+		
+		for(int i = 0; i < rings; i++)
+			for(int j = 0; j < segments; j++)
+			{
+				int a = i * (segments + 1) + j + 1;
+				int b = a + segments + 1;
+				obj.println("f " + a + "/" + a + " " + b + "/" + b + " " + (b + 1) + "/" + (b + 1));
+				obj.println("f " + a + "/" + a + " " + (b + 1) + "/" + (b + 1) + " " + (a + 1) + "/" + (a + 1));
+			}
+		
+		obj.close();
+		
+		PrintWriter mtl = new PrintWriter(new File(folder, name + ".mtl"));
+		mtl.println("newmtl skin");
+		mtl.println("Ka 1 1 1");
+		mtl.println("Kd 1 1 1");
+		mtl.println("illum 2");
+		mtl.println("map_Kd " + name + ".png");
+		mtl.close();
+		
+		BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+		for(int x = 0; x < 64; x++)
+			for(int y = 0; y < 64; y++)
+				image.setRGB(x, y, 0xFF000000 | ((x * 255 / 64) << 16) | ((y * 255 / 64) << 8) | (((x ^ y) & 8) != 0 ? 0xFF : 0x40));
+		ImageIO.write(image, "png", new File(folder, name + ".png"));
+	}
+	
+	// Returns the folder path the engine expects (ending with a separator)
+	public static String path(File folder)
+	{
+		return folder.getPath() + File.separator;
+	}
+	
+	// A row of models in front of an orthographic camera, placed by a seed so that scenes differ
+	public static class Scene
+	{
+		final Environment env = new Environment();
+		final Model[] models;
+		
+		public Scene(Supplier<Model> loader, int count, int seed, boolean compiled)
+		{
+			models = new Model[count];
+			env.setCompiled(compiled);
+			
+			for(int i = 0; i < count; i++)
+			{
+				models[i] = loader.get();
+				models[i].transform[Structure.POS_X] = 100 + i * 20 + seed * 3;
+				models[i].transform[Structure.POS_Y] = (i % 3 - 1) * 8 + seed * 0.5f;
+				models[i].transform[Structure.POS_Z] = (i / 3 - 0.5f) * 6;
+				models[i].transform[Structure.ROT_Z] = seed * 0.25f;
+				env.addStructure(models[i]);
+			}
+			
+			env.addCamera(new OrthographicCamera(1.5f, 1.0f, 10.0f, 320, 200));
+			env.finalizeRender();
+		}
+		
+		// Turns the models and renders a copy of each frame
+		public int[][] render(int frames)
+		{
+			int[][] result = new int[frames][];
+			
+			for(int f = 0; f < frames; f++)
+			{
+				for(Model m : models)
+				{
+					m.transform[Structure.ROT_X] += 0.05f;
+					m.transform[Structure.ROT_Z] += 0.03f;
+				}
+				
+				result[f] = ((DataBufferInt) env.drawEnvironment(null).getRaster().getDataBuffer()).getData().clone();
+			}
+			
+			return result;
+		}
+	}
+}